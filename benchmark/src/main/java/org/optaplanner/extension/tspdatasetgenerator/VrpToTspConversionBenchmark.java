@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.tspdatasetgenerator;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.extension.vrpdatasetgenerator.FromCsvLocationsToVrpGenerator;
+import org.optaplanner.extension.vrpdatasetgenerator.GenerationDistanceType;
+import org.optaplanner.extension.vrpdatasetgenerator.SyntheticDataset;
+import org.optaplanner.extension.vrpdatasetgenerator.VrpType;
+
+/**
+ * Time of {@link FromVrpToTspConverter#convert(File, File)} on a vrp file generated from the synthetic dataset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class VrpToTspConversionBenchmark {
+
+    @Param({"100", "1000"})
+    public int locationListSize;
+
+    @Param({"AIR_DISTANCE", "ROAD_DISTANCE_KM"})
+    public GenerationDistanceType distanceType;
+
+    private File workDir;
+    private FromVrpToTspConverter converter;
+    private File vrpFile;
+    private File tspFile;
+
+    @Setup
+    public void setup() {
+        workDir = SyntheticDataset.createWorkDir();
+        FromCsvLocationsToVrpGenerator generator = SyntheticDataset.createGenerator(workDir);
+        generator.setOneToManyEnabled(true);
+        generator.generateVrp(SyntheticDataset.getLocationFile(locationListSize), null,
+                locationListSize, 1, locationListSize / 10, 250, distanceType, VrpType.BASIC);
+        Collection<File> vrpFiles = FileUtils.listFiles(generator.getOutputDir(), new String[]{"vrp"}, true);
+        if (vrpFiles.size() != 1) {
+            throw new IllegalStateException("The generator generated " + vrpFiles.size() + " vrp files.");
+        }
+        vrpFile = vrpFiles.iterator().next();
+        tspFile = new File(workDir, "output.tsp");
+        converter = new FromVrpToTspConverter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Benchmark
+    public File convert() {
+        converter.convert(vrpFile, tspFile);
+        return tspFile;
+    }
+
+}
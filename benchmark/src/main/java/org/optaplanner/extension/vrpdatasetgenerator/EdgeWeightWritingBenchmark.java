@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.examples.vehiclerouting.domain.location.Location;
+import org.optaplanner.extension.vrpdatasetgenerator.io.FixedPrecisionWriter;
+import org.optaplanner.extension.vrpdatasetgenerator.io.NullByteChannel;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.RouteMatrix;
+
+/**
+ * Formatting cost of the EDGE_WEIGHT_SECTION of an already routed matrix,
+ * written to a sink that discards everything, so only the number formatting is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class EdgeWeightWritingBenchmark {
+
+    @Param({"100", "1000"})
+    public int locationListSize;
+
+    @Param({"ROAD_DISTANCE_KM", "ROAD_DISTANCE_TIME"})
+    public GenerationDistanceType distanceType;
+
+    private File workDir;
+    private FromCsvLocationsToVrpGenerator generator;
+    private List<Location> locationList;
+    private RouteMatrix routeMatrix;
+
+    @Setup
+    public void setup() {
+        workDir = SyntheticDataset.createWorkDir();
+        generator = SyntheticDataset.createGenerator(workDir);
+        generator.setOneToManyEnabled(true);
+        locationList = generator.selectLocationSubList(SyntheticDataset.getLocationFile(locationListSize),
+                locationListSize, 1, 0L, distanceType);
+        routeMatrix = generator.calculateRouteMatrix(locationList, distanceType);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        routeMatrix.close();
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Benchmark
+    public void writeEdgeWeightSection() throws IOException {
+        try (FixedPrecisionWriter vrpWriter = new FixedPrecisionWriter(new NullByteChannel(), 3)) {
+            generator.writeEdgeWeightSection(vrpWriter, null, distanceType, Collections.emptyList(), locationList, routeMatrix);
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
+import org.optaplanner.extension.vrpdatasetgenerator.BelgiumHubSuggester.Point;
+import org.optaplanner.extension.vrpdatasetgenerator.BelgiumHubSuggester.PointPart;
+
+/**
+ * Time of {@link BelgiumHubSuggester#extractFromHubs} on the route points of n x n routes.
+ * <p>
+ * The routes are only collected once per trial.
+ * Because the extraction consumes its points, every invocation extracts from a fresh deep copy.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class HubExtractionBenchmark {
+
+    @Param({"50", "100"})
+    public int locationListSize;
+
+    @Param({"10", "30"})
+    public int hubSize;
+
+    private File workDir;
+    private BelgiumHubSuggester suggester;
+    private List<Point> originalPointList;
+    private List<Point> pointList;
+
+    @Setup
+    public void setup() {
+        workDir = SyntheticDataset.createWorkDir();
+        suggester = new BelgiumHubSuggester(SyntheticDataset.getOsmFile().getPath(),
+                new File(workDir, "graphHopper").getPath());
+        List<AirLocation> locationList = suggester.readAirLocationFile(
+                SyntheticDataset.getLocationFile(locationListSize));
+        locationList = suggester.subselectLocationList(locationListSize, locationList);
+        Map<Point, Point> fromPointMap = new LinkedHashMap<>(locationListSize * 10);
+        Map<Point, Point> toPointMap = new LinkedHashMap<>(locationListSize * 10);
+        suggester.collectRoutePoints(locationList, fromPointMap, toPointMap);
+        originalPointList = new ArrayList<>(fromPointMap.values());
+    }
+
+    @Setup(Level.Invocation)
+    public void copyPointList() {
+        pointList = deepCopy(originalPointList);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Benchmark
+    public Set<Point> extractFromHubs() {
+        Set<Point> hubPointList = new LinkedHashSet<>(hubSize);
+        suggester.extractFromHubs(pointList, hubPointList, hubSize);
+        return hubPointList;
+    }
+
+    private static List<Point> deepCopy(List<Point> pointList) {
+        Map<PointPart, PointPart> partCopyMap = new IdentityHashMap<>();
+        List<Point> pointListCopy = new ArrayList<>(pointList.size());
+        for (Point point : pointList) {
+            Point pointCopy = new Point(point.latitude, point.longitude);
+            pointCopy.pointPartMap = new LinkedHashMap<>(point.pointPartMap.size());
+            for (Map.Entry<AirLocation, PointPart> entry : point.pointPartMap.entrySet()) {
+                PointPart part = entry.getValue();
+                PointPart partCopy = new PointPart(pointCopy, part.anchor);
+                partCopy.count = part.count;
+                pointCopy.pointPartMap.put(entry.getKey(), partCopy);
+                partCopyMap.put(part, partCopy);
+            }
+            pointListCopy.add(pointCopy);
+        }
+        for (Map.Entry<PointPart, PointPart> entry : partCopyMap.entrySet()) {
+            PointPart previousPart = entry.getKey().previousPart;
+            entry.getValue().previousPart = previousPart == null ? null : partCopyMap.get(previousPart);
+        }
+        return pointListCopy;
+    }
+
+}
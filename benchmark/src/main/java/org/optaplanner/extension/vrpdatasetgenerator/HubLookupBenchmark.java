@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.graphhopper.util.PointList;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.examples.vehiclerouting.domain.location.Location;
+import org.optaplanner.examples.vehiclerouting.domain.location.segmented.HubSegmentLocation;
+import org.optaplanner.extension.vrpdatasetgenerator.location.HubSpatialIndex;
+
+/**
+ * Time to find the first and last hub on the route points of n x n routes,
+ * as the segmented edge weight section does,
+ * with a boxed exact coordinate {@link HashMap} (the old way) versus a {@link HubSpatialIndex}.
+ * <p>
+ * The hubs are sampled from the route points, so both variants find the same hubs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class HubLookupBenchmark {
+
+    @Param({"50"})
+    public int locationListSize;
+
+    @Param({"20", "200"})
+    public int hubSize;
+
+    private File workDir;
+    private List<PointList> pointListList;
+    private Map<HubKey, Integer> hubKeyToIndexMap;
+    private HubSpatialIndex hubSpatialIndex;
+
+    @Setup
+    public void setup() {
+        workDir = SyntheticDataset.createWorkDir();
+        FromCsvLocationsToVrpGenerator generator = SyntheticDataset.createGenerator(workDir);
+        GenerationDistanceType distanceType = GenerationDistanceType.ROAD_DISTANCE_KM;
+        List<Location> locationList = generator.selectLocationSubList(
+                SyntheticDataset.getLocationFile(locationListSize), locationListSize, 1, 0L, distanceType);
+        pointListList = new ArrayList<>(locationListSize * locationListSize);
+        for (Location fromLocation : locationList) {
+            for (Location toLocation : locationList) {
+                if (fromLocation != toLocation) {
+                    pointListList.add(generator.fetchGhResponse(fromLocation, toLocation, distanceType)
+                            .getBest().getPoints());
+                }
+            }
+        }
+        Random random = new Random(37);
+        List<HubSegmentLocation> hubList = new ArrayList<>(hubSize);
+        hubKeyToIndexMap = new HashMap<>(hubSize);
+        while (hubList.size() < hubSize) {
+            PointList pointList = pointListList.get(random.nextInt(pointListList.size()));
+            int i = random.nextInt(pointList.size());
+            HubKey hubKey = new HubKey(pointList.getLatitude(i), pointList.getLongitude(i));
+            if (!hubKeyToIndexMap.containsKey(hubKey)) {
+                HubSegmentLocation hub = new HubSegmentLocation();
+                hub.setId((long) hubList.size());
+                hub.setLatitude(hubKey.latitude);
+                hub.setLongitude(hubKey.longitude);
+                hubKeyToIndexMap.put(hubKey, hubList.size());
+                hubList.add(hub);
+            }
+        }
+        hubSpatialIndex = new HubSpatialIndex(hubList, 1e-6);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Benchmark
+    public long hashMapLookup() {
+        long hubIndexSum = 0L;
+        for (PointList pointList : pointListList) {
+            for (int i = 0; i < pointList.size(); i++) {
+                Integer hubIndex = hubKeyToIndexMap.get(new HubKey(pointList.getLatitude(i), pointList.getLongitude(i)));
+                if (hubIndex != null) {
+                    hubIndexSum += hubIndex;
+                    break;
+                }
+            }
+            for (int i = pointList.size() - 1; i >= 0; i--) {
+                Integer hubIndex = hubKeyToIndexMap.get(new HubKey(pointList.getLatitude(i), pointList.getLongitude(i)));
+                if (hubIndex != null) {
+                    hubIndexSum += hubIndex;
+                    break;
+                }
+            }
+        }
+        return hubIndexSum;
+    }
+
+    @Benchmark
+    public long spatialIndexLookup() {
+        long hubIndexSum = 0L;
+        for (PointList pointList : pointListList) {
+            int firstHubIndex = hubSpatialIndex.findFirstHubIndex(pointList);
+            if (firstHubIndex >= 0) {
+                hubIndexSum += firstHubIndex + hubSpatialIndex.findLastHubIndex(pointList);
+            }
+        }
+        return hubIndexSum;
+    }
+
+    private static final class HubKey {
+
+        private final double latitude;
+        private final double longitude;
+
+        private HubKey(double latitude, double longitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof HubKey)) {
+                return false;
+            }
+            HubKey other = (HubKey) o;
+            return Double.compare(latitude, other.latitude) == 0 && Double.compare(longitude, other.longitude) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            long latitudeBits = Double.doubleToLongBits(latitude);
+            long longitudeBits = Double.doubleToLongBits(longitude);
+            return 31 * (int) (latitudeBits ^ (latitudeBits >>> 32)) + (int) (longitudeBits ^ (longitudeBits >>> 32));
+        }
+
+    }
+
+}
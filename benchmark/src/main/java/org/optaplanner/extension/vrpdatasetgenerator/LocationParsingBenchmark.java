@@ -0,0 +1,73 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
+import org.optaplanner.extension.vrpdatasetgenerator.location.LocationColumns;
+
+/**
+ * Time to parse a location CSV with {@link LocationFileLayout#parseLocationColumns(File)}
+ * and to get its locations from the cache with {@link FromCsvLocationsToVrpGenerator#readAirLocationFile}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class LocationParsingBenchmark {
+
+    @Param({"1000", "10000"})
+    public int locationFileSize;
+
+    private FromCsvLocationsToVrpGenerator generator;
+    private File locationFile;
+
+    @Setup
+    public void setup() {
+        // No osmPath, because parsing doesn't route
+        generator = new FromCsvLocationsToVrpGenerator(DataSource.BELGIUM, null, null);
+        locationFile = SyntheticDataset.getLocationFile(locationFileSize);
+    }
+
+    @Benchmark
+    public LocationColumns parseLocationColumns() throws IOException {
+        return generator.getCatalogue().getLocationFileLayout().parseLocationColumns(locationFile);
+    }
+
+    @Benchmark
+    public List<AirLocation> readAirLocationFile() {
+        return generator.readAirLocationFile(locationFile, 0L);
+    }
+
+}
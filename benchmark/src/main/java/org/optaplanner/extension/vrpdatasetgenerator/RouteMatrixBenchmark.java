@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.optaplanner.examples.vehiclerouting.domain.location.Location;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.RouteMatrix;
+
+/**
+ * Time to route a full n x n road matrix with {@link FromCsvLocationsToVrpGenerator#calculateRouteMatrix}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RouteMatrixBenchmark {
+
+    @Param({"50", "200"})
+    public int locationListSize;
+
+    @Param({"ROAD_DISTANCE_KM", "ROAD_DISTANCE_TIME"})
+    public GenerationDistanceType distanceType;
+
+    @Param({"false", "true"})
+    public boolean oneToManyEnabled;
+
+    @Param({"1", "4"})
+    public int matrixThreadCount;
+
+    private File workDir;
+    private FromCsvLocationsToVrpGenerator generator;
+    private List<Location> locationList;
+
+    @Setup
+    public void setup() {
+        workDir = SyntheticDataset.createWorkDir();
+        generator = SyntheticDataset.createGenerator(workDir);
+        generator.setOneToManyEnabled(oneToManyEnabled);
+        generator.setMatrixThreadCount(matrixThreadCount);
+        locationList = generator.selectLocationSubList(SyntheticDataset.getLocationFile(locationListSize),
+                locationListSize, 1, 0L, distanceType);
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Benchmark
+    public void calculateRouteMatrix(Blackhole blackhole) throws IOException {
+        try (RouteMatrix routeMatrix = generator.calculateRouteMatrix(locationList, distanceType)) {
+            blackhole.consume(routeMatrix.getDistance(0, locationList.size() - 1));
+        }
+    }
+
+}
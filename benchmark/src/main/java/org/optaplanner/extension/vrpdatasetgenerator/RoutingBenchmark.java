@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.graphhopper.GHResponse;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.examples.vehiclerouting.domain.location.Location;
+
+/**
+ * Latency of routing 1 pair through {@link FromCsvLocationsToVrpGenerator#fetchGhResponse},
+ * cycling through all pairs of the location list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class RoutingBenchmark {
+
+    @Param({"100"})
+    public int locationListSize;
+
+    @Param({"ROAD_DISTANCE_KM", "ROAD_DISTANCE_TIME"})
+    public GenerationDistanceType distanceType;
+
+    private File workDir;
+    private FromCsvLocationsToVrpGenerator generator;
+    private List<Location> locationList;
+    private int fromIndex;
+    private int toIndex;
+
+    @Setup
+    public void setup() {
+        workDir = SyntheticDataset.createWorkDir();
+        generator = SyntheticDataset.createGenerator(workDir);
+        locationList = generator.selectLocationSubList(SyntheticDataset.getLocationFile(locationListSize),
+                locationListSize, 1, 0L, distanceType);
+        fromIndex = 0;
+        toIndex = 1;
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(workDir);
+    }
+
+    @Benchmark
+    public GHResponse fetchGhResponse() {
+        GHResponse response = generator.fetchGhResponse(locationList.get(fromIndex), locationList.get(toIndex),
+                distanceType);
+        toIndex++;
+        if (toIndex == fromIndex) {
+            toIndex++;
+        }
+        if (toIndex >= locationList.size()) {
+            fromIndex = (fromIndex + 1) % locationList.size();
+            toIndex = fromIndex == 0 ? 1 : 0;
+        }
+        return response;
+    }
+
+}
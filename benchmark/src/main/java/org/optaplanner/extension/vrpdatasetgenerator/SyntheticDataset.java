@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.optaplanner.extension.vrpdatasetgenerator.routing.PreparationProfile;
+
+/**
+ * Locates the synthetic dataset generated by {@link SyntheticDatasetGenerator}
+ * and sets up generators that only read from it and only write to a temporary directory.
+ */
+public final class SyntheticDataset {
+
+    /**
+     * Defaults to {@code data}, so the benchmarks can be run from the benchmark directory.
+     */
+    public static final String DATA_DIR_PROPERTY = "vrpdatasetgenerator.benchmark.dataDir";
+
+    public static File getDataDir() {
+        File dataDir = new File(System.getProperty(DATA_DIR_PROPERTY, "data"));
+        if (!new File(dataDir, "synthetic-grid.osm").exists()) {
+            throw new IllegalStateException("The dataDir (" + dataDir.getAbsolutePath()
+                    + ") does not contain the synthetic dataset.\n"
+                    + "Run the benchmarks from the benchmark directory or set -D" + DATA_DIR_PROPERTY + ".");
+        }
+        return dataDir;
+    }
+
+    public static File getOsmFile() {
+        return new File(getDataDir(), "synthetic-grid.osm");
+    }
+
+    /**
+     * @param locationListSize at most the biggest {@link SyntheticDatasetGenerator#LOCATION_FILE_SIZES}
+     * @return never null, the smallest location file with at least locationListSize locations
+     */
+    public static File getLocationFile(int locationListSize) {
+        for (int locationFileSize : SyntheticDatasetGenerator.LOCATION_FILE_SIZES) {
+            if (locationFileSize >= locationListSize) {
+                return new File(getDataDir(), "synthetic-" + locationFileSize + ".csv");
+            }
+        }
+        throw new IllegalArgumentException("The locationListSize (" + locationListSize
+                + ") is bigger than the biggest synthetic location file.");
+    }
+
+    public static File createWorkDir() {
+        try {
+            return Files.createTempDirectory("vrpdatasetgenerator-benchmark").toFile();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create a temporary workDir.", e);
+        }
+    }
+
+    /**
+     * @param workDir never null, receives the GraphHopper graph and the generated vrp files
+     * @return never null, without route cache or checkpoints, so every benchmark invocation does the full work
+     */
+    public static FromCsvLocationsToVrpGenerator createGenerator(File workDir) {
+        return createGenerator(workDir, PreparationProfile.DEFAULT);
+    }
+
+    /**
+     * @param workDir never null, receives the GraphHopper graph and the generated vrp files
+     * @param preparationProfile never null
+     * @return never null, without route cache or checkpoints, so every benchmark invocation does the full work
+     */
+    public static FromCsvLocationsToVrpGenerator createGenerator(File workDir, PreparationProfile preparationProfile) {
+        DatasetCatalogue catalogue = DataSource.BELGIUM.loadCatalogue();
+        FromCsvLocationsToVrpGenerator generator = new FromCsvLocationsToVrpGenerator(
+                catalogue, getOsmFile().getPath(), new File(workDir, "graphHopper").getPath(), preparationProfile);
+        generator.setRouteCacheDir(null);
+        generator.setCheckpointDir(null);
+        File outputDir = new File(workDir, "output");
+        generator.setOutputDir(outputDir);
+        for (VrpType vrpType : VrpType.values()) {
+            for (boolean multidepot : new boolean[]{false, true}) {
+                for (GenerationDistanceType distanceType : GenerationDistanceType.values()) {
+                    File dir = new File(outputDir, catalogue.getName()
+                            + "/" + vrpType.getDirName(multidepot) + "/" + distanceType.getDirName());
+                    if (!dir.exists() && !dir.mkdirs()) {
+                        throw new IllegalStateException("Could not create the output dir (" + dir + ").");
+                    }
+                }
+            }
+        }
+        return generator;
+    }
+
+    private SyntheticDataset() {
+    }
+
+}
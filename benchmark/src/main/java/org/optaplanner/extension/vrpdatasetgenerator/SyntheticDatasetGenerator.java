@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+import org.optaplanner.examples.common.app.LoggingMain;
+
+/**
+ * Generates the small synthetic dataset bundled in {@code benchmark/data}:
+ * a grid shaped road network in OSM XML and location CSVs in the Belgium CSV layout on top of it.
+ * <p>
+ * The output is deterministic, so it only needs to be rerun if the grid or the CSV layout changes.
+ */
+public class SyntheticDatasetGenerator extends LoggingMain {
+
+    public static final int GRID_SIZE = 50;
+    public static final double MIN_LATITUDE = 50.70;
+    public static final double MIN_LONGITUDE = 4.20;
+    public static final double LATITUDE_STEP = 0.004;
+    public static final double LONGITUDE_STEP = 0.006;
+    /**
+     * Every so many grid lines, the road is a fast primary road instead of a slow residential road,
+     * so the fastest route differs from the shortest route.
+     */
+    public static final int PRIMARY_ROAD_INTERVAL = 5;
+
+    public static final int[] LOCATION_FILE_SIZES = {1000, 10000};
+
+    public static void main(String[] args) {
+        File dataDir = new File(args.length == 0 ? "data" : args[0]);
+        new SyntheticDatasetGenerator().generate(dataDir);
+    }
+
+    public void generate(File dataDir) {
+        if (!dataDir.isDirectory()) {
+            throw new IllegalArgumentException("The dataDir (" + dataDir + ") does not exist.");
+        }
+        writeOsmFile(new File(dataDir, "synthetic-grid.osm"));
+        for (int locationFileSize : LOCATION_FILE_SIZES) {
+            writeLocationFile(new File(dataDir, "synthetic-" + locationFileSize + ".csv"), locationFileSize);
+        }
+    }
+
+    private void writeOsmFile(File osmFile) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(osmFile), "UTF-8"))) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<osm version=\"0.6\" generator=\"SyntheticDatasetGenerator\">\n");
+            for (int row = 0; row < GRID_SIZE; row++) {
+                for (int column = 0; column < GRID_SIZE; column++) {
+                    writer.write(String.format(Locale.ROOT, "  <node id=\"%d\" lat=\"%.6f\" lon=\"%.6f\"/>\n",
+                            nodeId(row, column),
+                            MIN_LATITUDE + row * LATITUDE_STEP, MIN_LONGITUDE + column * LONGITUDE_STEP));
+                }
+            }
+            long wayId = 1L;
+            for (int row = 0; row < GRID_SIZE; row++) {
+                writer.write("  <way id=\"" + wayId + "\">\n");
+                wayId++;
+                for (int column = 0; column < GRID_SIZE; column++) {
+                    writer.write("    <nd ref=\"" + nodeId(row, column) + "\"/>\n");
+                }
+                writeHighwayTag(writer, row);
+                writer.write("  </way>\n");
+            }
+            for (int column = 0; column < GRID_SIZE; column++) {
+                writer.write("  <way id=\"" + wayId + "\">\n");
+                wayId++;
+                for (int row = 0; row < GRID_SIZE; row++) {
+                    writer.write("    <nd ref=\"" + nodeId(row, column) + "\"/>\n");
+                }
+                writeHighwayTag(writer, column);
+                writer.write("  </way>\n");
+            }
+            writer.write("</osm>\n");
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not write the osmFile (" + osmFile + ").", e);
+        }
+        logger.info("Generated: {}", osmFile);
+    }
+
+    private static long nodeId(int row, int column) {
+        return 1L + row * GRID_SIZE + column;
+    }
+
+    private static void writeHighwayTag(Writer writer, int gridLine) throws IOException {
+        writer.write("    <tag k=\"highway\" v=\""
+                + (gridLine % PRIMARY_ROAD_INTERVAL == 0 ? "primary" : "residential") + "\"/>\n");
+    }
+
+    private void writeLocationFile(File locationFile, int locationFileSize) {
+        Random random = new Random(37);
+        // Stay 1 grid cell away from the border, so every location snaps to a road
+        double latitudeRange = (GRID_SIZE - 3) * LATITUDE_STEP;
+        double longitudeRange = (GRID_SIZE - 3) * LONGITUDE_STEP;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(locationFile), "UTF-8"))) {
+            for (int i = 0; i < locationFileSize; i++) {
+                double latitude = MIN_LATITUDE + LATITUDE_STEP + random.nextDouble() * latitudeRange;
+                double longitude = MIN_LONGITUDE + LONGITUDE_STEP + random.nextDouble() * longitudeRange;
+                writer.write(String.format(Locale.ROOT, "200;%d;%.7f;%.7f;SYNTHETIC_%d\n",
+                        1 + random.nextInt(5), latitude, longitude, i));
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not write the locationFile (" + locationFile + ").", e);
+        }
+        logger.info("Generated: {}", locationFile);
+    }
+
+}
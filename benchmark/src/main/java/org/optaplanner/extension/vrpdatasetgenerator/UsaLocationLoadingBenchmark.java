@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
+import org.optaplanner.extension.vrpdatasetgenerator.location.LocationColumns;
+
+/**
+ * Time to load the 115k locations of the USA location file:
+ * parsing it with {@code String.split(";")} per line (as every variant used to do),
+ * parsing it with the split-free {@link LocationFileLayout#parseLocationColumns(File)},
+ * on the heap or into a memory-mapped file,
+ * and getting it from the location cache, which is what every variant after the first one does.
+ * <p>
+ * This is the only benchmark that uses a file outside the synthetic dataset,
+ * because the size of the USA file is the point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class UsaLocationLoadingBenchmark {
+
+    /**
+     * Defaults to {@code ../data/raw/usa-115475.csv}, so the benchmarks can be run from the benchmark directory.
+     */
+    public static final String USA_LOCATION_FILE_PROPERTY = "vrpdatasetgenerator.benchmark.usaLocationFile";
+
+    private FromCsvLocationsToVrpGenerator generator;
+    private File locationFile;
+    private File mappedDir;
+
+    @Setup
+    public void setup() {
+        locationFile = new File(System.getProperty(USA_LOCATION_FILE_PROPERTY, "../data/raw/usa-115475.csv"));
+        if (!locationFile.exists()) {
+            throw new IllegalStateException("The locationFile (" + locationFile.getAbsolutePath()
+                    + ") does not exist.\n"
+                    + "Run the benchmarks from the benchmark directory or set -D" + USA_LOCATION_FILE_PROPERTY + ".");
+        }
+        try {
+            mappedDir = Files.createTempDirectory("usaLocationLoadingBenchmark").toFile();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create the mappedDir.", e);
+        }
+        mappedDir.deleteOnExit();
+        // No osmPath, because loading doesn't route
+        generator = new FromCsvLocationsToVrpGenerator(DataSource.USA, null, null);
+        // Fill the cache
+        generator.readAirLocationFile(locationFile, 0L);
+    }
+
+    @Benchmark
+    public List<AirLocation> splitLines() throws IOException {
+        List<AirLocation> locationList = new ArrayList<>(3000);
+        long id = 0L;
+        try (BufferedReader bufferedReader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(locationFile), StandardCharsets.UTF_8))) {
+            for (String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine()) {
+                String[] tokens = line.split(";");
+                AirLocation location = new AirLocation();
+                location.setId(id);
+                id++;
+                location.setLatitude(Double.parseDouble(tokens[1]));
+                location.setLongitude(Double.parseDouble(tokens[2]));
+                location.setName(tokens[0]);
+                locationList.add(location);
+            }
+        }
+        return locationList;
+    }
+
+    @Benchmark
+    public LocationColumns parseLocationColumns() throws IOException {
+        return generator.getCatalogue().getLocationFileLayout().parseLocationColumns(locationFile);
+    }
+
+    @Benchmark
+    public LocationColumns parseLocationColumnsMapped() throws IOException {
+        // The file is deleted as soon as it is mapped
+        return generator.getCatalogue().getLocationFileLayout().parseLocationColumns(locationFile,
+                new File(mappedDir, "locations.bin"));
+    }
+
+    @Benchmark
+    public List<AirLocation> readAirLocationFileCached() {
+        return generator.readAirLocationFile(locationFile, 0L);
+    }
+
+}
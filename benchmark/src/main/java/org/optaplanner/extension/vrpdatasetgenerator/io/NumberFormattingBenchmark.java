@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Formatting 1 matrix row of road distances:
+ * the former {@code DecimalFormat("0.000").format(distance) + " "} approach versus {@link FixedPrecisionWriter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class NumberFormattingBenchmark {
+
+    @Param({"2750"})
+    public int rowSize;
+
+    private double[] distances;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(37);
+        distances = new double[rowSize];
+        for (int i = 0; i < rowSize; i++) {
+            distances[i] = random.nextDouble() * 300.0;
+        }
+    }
+
+    @Benchmark
+    public void decimalFormat() throws IOException {
+        DecimalFormat distanceFormat = new DecimalFormat("0.000");
+        try (BufferedWriter writer = new BufferedWriter(new NullWriter())) {
+            for (double distance : distances) {
+                writer.write(distanceFormat.format(distance) + " ");
+            }
+            writer.write("\n");
+        }
+    }
+
+    @Benchmark
+    public void fixedPrecisionWriter() throws IOException {
+        try (FixedPrecisionWriter writer = new FixedPrecisionWriter(new NullByteChannel(), 3)) {
+            for (double distance : distances) {
+                writer.writeFixed(distance);
+                writer.write(' ');
+            }
+            writer.write('\n');
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filling a full n x n distance matrix stored as boxed {@link LinkedHashMap} rows (the old way)
+ * versus the primitive {@link DistanceMatrix} variants.
+ * <p>
+ * Run it with the GC profiler ({@code -prof gc}) to compare the heap they allocate:
+ * see {@code gc.alloc.rate.norm}, in bytes per fill.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DistanceMatrixBenchmark {
+
+    @Param({"1000", "2750"})
+    public int size;
+
+    @Param({"BOXED", "DENSE", "SPARSE", "MAPPED"})
+    public String matrixType;
+
+    private File mappedFile;
+
+    @Setup
+    public void setup() throws IOException {
+        mappedFile = File.createTempFile("distanceMatrixBenchmark", ".matrix");
+    }
+
+    @TearDown
+    public void tearDown() {
+        FileUtils.deleteQuietly(mappedFile);
+    }
+
+    @Benchmark
+    public Object fill() throws IOException {
+        switch (matrixType) {
+            case "BOXED":
+                return fillBoxed(size);
+            case "DENSE":
+                return fill(new DenseDistanceMatrix(size, size), 1);
+            case "SPARSE":
+                // 10% per row
+                return fill(new SparseDistanceMatrix(size, size), 10);
+            case "MAPPED":
+                try (MappedDistanceMatrix mappedMatrix = new MappedDistanceMatrix(mappedFile, size, size)) {
+                    return fill(mappedMatrix, 1);
+                }
+            default:
+                throw new IllegalStateException("The matrixType (" + matrixType + ") is not implemented.");
+        }
+    }
+
+    private static List<Map<Object, Double>> fillBoxed(int size) {
+        Object[] keys = new Object[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = new Object();
+        }
+        Random random = new Random(37);
+        List<Map<Object, Double>> rowList = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            Map<Object, Double> rowMap = new LinkedHashMap<>(size);
+            for (int column = 0; column < size; column++) {
+                rowMap.put(keys[column], random.nextDouble() * 100000.0);
+            }
+            rowList.add(rowMap);
+        }
+        return rowList;
+    }
+
+    private static DistanceMatrix fill(DistanceMatrix matrix, int columnStep) {
+        Random random = new Random(37);
+        for (int row = 0; row < matrix.getRowCount(); row++) {
+            for (int column = 0; column < matrix.getColumnCount(); column += columnStep) {
+                matrix.setDistance(row, column, random.nextDouble() * 100000.0);
+            }
+        }
+        return matrix;
+    }
+
+}
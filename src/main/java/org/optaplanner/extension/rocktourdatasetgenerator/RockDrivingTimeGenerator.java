@@ -28,14 +28,14 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import com.graphhopper.GHRequest;
-import com.graphhopper.GHResponse;
 import com.graphhopper.reader.osm.GraphHopperOSM;
-import com.graphhopper.routing.util.EncodingManager;
 import org.apache.commons.lang3.tuple.Pair;
 import org.optaplanner.examples.common.app.LoggingMain;
 import org.optaplanner.examples.vehiclerouting.domain.location.Location;
 import org.optaplanner.extension.vrpdatasetgenerator.GenerationDistanceType;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.DenseDistanceMatrix;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.GraphHopperStoreManager;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.OneToManyRouter;
 
 public class RockDrivingTimeGenerator extends LoggingMain {
 
@@ -43,7 +43,8 @@ public class RockDrivingTimeGenerator extends LoggingMain {
         File inputFile = new File("data/rocktour/xlsxDrivingTimeSheetInput.txt");
         File outputFile = new File("data/rocktour/xlsxDrivingTimeSheetOutput.txt");
         String osmPath = "local/osm/north-america-latest.osm.pbf";
-        new RockDrivingTimeGenerator(inputFile, outputFile, osmPath, "USA").generate();
+        new RockDrivingTimeGenerator(inputFile, outputFile, osmPath, GraphHopperStoreManager.DEFAULT_STORE_DIR)
+                .generate();
     }
 
     private final File inputFile;
@@ -51,20 +52,14 @@ public class RockDrivingTimeGenerator extends LoggingMain {
 
     private final GraphHopperOSM graphHopper;
 
-    public RockDrivingTimeGenerator(File inputFile, File outputFile, String osmPath, String dataSourceName) {
+    /**
+     * @param graphHopperLocation never null, the store directory of the {@link GraphHopperStoreManager},
+     * so the graph is shared with the vrp generators that use the same OSM file
+     */
+    public RockDrivingTimeGenerator(File inputFile, File outputFile, String osmPath, String graphHopperLocation) {
         this.inputFile = inputFile;
         this.outputFile = outputFile;
-        if (!new File(osmPath).exists()) {
-            throw new IllegalStateException("The osmPath (" + osmPath + ") does not exist.\n" +
-                    "Download the osm file from http://download.geofabrik.de/ first.");
-        }
-        graphHopper = (GraphHopperOSM) new GraphHopperOSM().forServer();
-        graphHopper.setOSMFile(osmPath);
-        graphHopper.setGraphHopperLocation("local/graphHopper/" + dataSourceName);
-        graphHopper.setEncodingManager(new EncodingManager("car"));
-        logger.info("graphHopper loading...");
-        graphHopper.importOrLoad();
-        logger.info("graphHopper loaded.");
+        graphHopper = GraphHopperStoreManager.getInstance().load(osmPath, graphHopperLocation, "car");
     }
 
     public void generate() {
@@ -98,41 +93,44 @@ public class RockDrivingTimeGenerator extends LoggingMain {
                 writer.append("\t").append(Double.toString(latLong.getRight()));
             }
             writer.append("\n");
-            for (Pair<Double, Double> fromLatLong : latLongList) {
-                double fromLatitude = fromLatLong.getLeft();
-                double fromLongitude = fromLatLong.getRight();
-                writer.append(Double.toString(fromLatitude));
-                writer.append("\t").append(Double.toString(fromLongitude));
-                for (Pair<Double, Double> toLatLong : latLongList) {
-                    double toLatitude = toLatLong.getLeft();
-                    double toLongitude = toLatLong.getRight();
-                    long drivingSeconds = fetchDrivingTime(fromLatitude, fromLongitude, toLatitude, toLongitude);
-                    writer.append("\t").append(Long.toString(drivingSeconds));
-                }
+            DenseDistanceMatrix drivingTimeMatrix = calculateDrivingTimeMatrix(latLongList);
+            for (int fromIndex = 0; fromIndex < latLongList.size(); fromIndex++) {
+                Pair<Double, Double> fromLatLong = latLongList.get(fromIndex);
+                writer.append(Double.toString(fromLatLong.getLeft()));
+                writer.append("\t").append(Double.toString(fromLatLong.getRight()));
+                drivingTimeMatrix.forEachInRow(fromIndex, (toIndex, drivingSeconds) ->
+                        writer.append("\t").append(Long.toString((long) drivingSeconds)));
                 writer.append("\n");
             }
-
         } catch (IOException e) {
             throw new IllegalArgumentException("Could not write outputFile (" + outputFile + ").", e);
         }
     }
 
-    private long fetchDrivingTime(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
-        if (fromLatitude == toLatitude && fromLongitude == toLongitude) {
-            return 0L;
+    private DenseDistanceMatrix calculateDrivingTimeMatrix(List<Pair<Double, Double>> latLongList) {
+        OneToManyRouter router = createOneToManyRouter(latLongList);
+        DenseDistanceMatrix drivingTimeMatrix = new DenseDistanceMatrix(latLongList.size(), latLongList.size());
+        double[] distances = new double[latLongList.size()];
+        long[] times = new long[latLongList.size()];
+        for (int fromIndex = 0; fromIndex < latLongList.size(); fromIndex++) {
+            Pair<Double, Double> fromLatLong = latLongList.get(fromIndex);
+            router.calcRow(fromIndex, distances, times);
+            for (int toIndex = 0; toIndex < latLongList.size(); toIndex++) {
+                long drivingSeconds = latLongList.get(toIndex).equals(fromLatLong) ? 0L : times[toIndex] / 1000L;
+                drivingTimeMatrix.setDistance(fromIndex, toIndex, drivingSeconds);
+            }
         }
-        GHRequest request = new GHRequest(fromLatitude, fromLongitude, toLatitude, toLongitude)
-                .setWeighting("fastest")
-                .setVehicle("car");
-        GHResponse response = graphHopper.route(request);
-        if (response.hasErrors()) {
-            throw new IllegalStateException("GraphHopper gave " + response.getErrors().size()
-                    + " errors to go from (" + fromLatitude + ", " + fromLongitude
-                    + ") to (" + toLatitude + ", " + toLongitude + "). First error chained.",
-                    response.getErrors().get(0)
-            );
+        return drivingTimeMatrix;
+    }
+
+    private OneToManyRouter createOneToManyRouter(List<Pair<Double, Double>> latLongList) {
+        double[] latitudes = new double[latLongList.size()];
+        double[] longitudes = new double[latLongList.size()];
+        for (int i = 0; i < latLongList.size(); i++) {
+            latitudes[i] = latLongList.get(i).getLeft();
+            longitudes[i] = latLongList.get(i).getRight();
         }
-        return response.getBest().getTime() / 1000L;
+        return new OneToManyRouter(graphHopper, "car", "fastest", latitudes, longitudes);
     }
 
 }
@@ -16,27 +16,71 @@
 
 package org.optaplanner.extension.tspdatasetgenerator;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.optaplanner.examples.common.app.LoggingMain;
+import org.optaplanner.extension.vrpdatasetgenerator.io.LineScanner;
 
 /**
- * This is very quick and VERY DIRTY code.
+ * Converts the basic vrp files (except the segmented ones) to tsp files:
+ * the same locations and distances, without the capacity, demands and depots.
+ * <p>
+ * The header lines are checked with plain prefix comparisons.
+ * The NODE_COORD_SECTION and EDGE_WEIGHT_SECTION are skipped by counting line endings, without decoding them,
+ * and copied as raw byte ranges with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ * The files of a directory are converted in parallel.
  */
 public class FromVrpToTspConverter extends LoggingMain {
 
+    private static final Pattern VRP_SUFFIX_PATTERN = Pattern.compile("-k\\d+\\.vrp$");
+
     public static void main(String[] args) {
-        new FromVrpToTspConverter().convertAll();
+        FromVrpToTspConverter converter = new FromVrpToTspConverter();
+        for (String arg : args) {
+            String[] option = arg.split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("The option (" + arg + ") is not in the format key=value.");
+            }
+            switch (option[0]) {
+                case "threadCount":
+                    converter.setThreadCount(Integer.parseInt(option[1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported option (" + arg + ").");
+            }
+        }
+        converter.convertAll();
+    }
+
+    /**
+     * The number of files converted at the same time. Conversion is mostly I/O, so more threads than
+     * processors rarely help.
+     */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The threadCount (" + threadCount + ") must be at least 1.");
+        }
+        this.threadCount = threadCount;
     }
 
     public void convertAll() {
@@ -48,28 +92,60 @@ public class FromVrpToTspConverter extends LoggingMain {
         convertAllInDir(new File("data/vehiclerouting/import/usa/basic/road-time/"), new File("data/tsp/import/usa/road-time/"));
     }
 
-    private void convertAllInDir(File inputDir, File outputDir) {
-        File[] inputFiles = inputDir.listFiles(new FileFilter() {
-            @Override
-            public boolean accept(File file) {
-                String name = file.getName();
-                return name.endsWith(".vrp") && !name.contains("-segmentedRoad");
-            }
+    void convertAllInDir(File inputDir, File outputDir) {
+        File[] inputFiles = inputDir.listFiles(file -> {
+            String name = file.getName();
+            return name.endsWith(".vrp") && !name.contains("-segmentedRoad");
         });
+        if (inputFiles == null) {
+            logger.warn("Skipping inputDir ({}) because it does not exist.", inputDir);
+            return;
+        }
         Arrays.sort(inputFiles);
-        for (File inputFile : inputFiles) {
-            convert(inputFile, new File(outputDir, inputFile.getName().replaceAll("\\-k\\d+\\.vrp", ".tsp")));
+        try {
+            FileUtils.forceMkdir(outputDir);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not create the outputDir (" + outputDir + ").", e);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount, Math.max(inputFiles.length, 1)));
+        try {
+            List<Future<?>> futureList = new ArrayList<>(inputFiles.length);
+            for (File inputFile : inputFiles) {
+                File outputFile = new File(outputDir, VRP_SUFFIX_PATTERN.matcher(inputFile.getName()).replaceFirst(".tsp"));
+                futureList.add(executor.submit(() -> convert(inputFile, outputFile)));
+            }
+            for (Future<?> future : futureList) {
+                waitFor(future, inputDir);
+            }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
-    private void convert(File inputFile, File outputFile) {
-        BufferedReader vrpReader = null;
-        BufferedWriter tspWriter = null;
+    private void waitFor(Future<?> future, File inputDir) {
         try {
-            vrpReader = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile), "UTF-8"));
-            tspWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"));
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting inputDir (" + inputDir + ").", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Converting inputDir (" + inputDir + ") failed.", cause);
+        }
+    }
+
+    void convert(File inputFile, File outputFile) {
+        String tspName = outputFile.getName().endsWith(".tsp")
+                ? outputFile.getName().substring(0, outputFile.getName().length() - ".tsp".length())
+                : outputFile.getName();
+        try (LineScanner vrpScanner = LineScanner.open(inputFile);
+                FileChannel tspChannel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
             try {
-                convert(vrpReader, tspWriter, outputFile.getName().replaceAll("\\.tsp", ""));
+                convert(vrpScanner, tspChannel, tspName);
             } catch (IllegalArgumentException e) {
                 throw new IllegalArgumentException("Exception in inputFile (" + inputFile + ")", e);
             } catch (IllegalStateException e) {
@@ -78,86 +154,79 @@ public class FromVrpToTspConverter extends LoggingMain {
         } catch (IOException e) {
             throw new IllegalArgumentException("Could not read the inputFile (" + inputFile
                     + ") or write the outputFile (" + outputFile + ").", e);
-        } finally {
-            IOUtils.closeQuietly(vrpReader);
-            IOUtils.closeQuietly(tspWriter);
         }
         logger.info("Converted to: {}", outputFile.getName());
     }
 
-    private void convert(BufferedReader vrpReader, BufferedWriter tspWriter, String tspName) throws IOException {
-        convertLine(vrpReader, tspWriter, "NAME:.*", "NAME: " + tspName);
-        copyLine(vrpReader, tspWriter, "COMMENT:.*");
-        convertLine(vrpReader, tspWriter, "TYPE:.*", "TYPE: TSP");
-        int dimension = readDimension(vrpReader, tspWriter);
-        boolean explicit = readEdgeWeightType(vrpReader, tspWriter);
+    private void convert(LineScanner vrpScanner, FileChannel tspChannel, String tspName) throws IOException {
+        StringBuilder header = new StringBuilder(512);
+        readLine(vrpScanner, "NAME:");
+        header.append("NAME: ").append(tspName).append('\n');
+        String line = readLine(vrpScanner, "COMMENT:");
+        do {
+            header.append(line).append('\n');
+            line = readLine(vrpScanner, null);
+        } while (line.startsWith("COMMENT:"));
+        checkPrefix(line, "TYPE:");
+        header.append("TYPE: TSP\n");
+        line = readLine(vrpScanner, "DIMENSION:");
+        header.append(line).append('\n');
+        int dimension = Integer.parseInt(line.substring("DIMENSION:".length()).trim());
+        line = readLine(vrpScanner, "EDGE_WEIGHT_TYPE:");
+        header.append(line).append('\n');
+        boolean explicit = line.endsWith("EXPLICIT");
         if (explicit) {
-            copyLine(vrpReader, tspWriter, "EDGE_WEIGHT_FORMAT:.*");
-            copyLine(vrpReader, tspWriter, "EDGE_WEIGHT_UNIT_OF_MEASUREMENT:.*");
-        }
-        ignoreLine(vrpReader, tspWriter, "CAPACITY:.*");
-        copyLine(vrpReader, tspWriter, "NODE_COORD_SECTION");
-        for (int i = 0; i < dimension; i++) {
-            copyLine(vrpReader, tspWriter, null);
+            header.append(readLine(vrpScanner, "EDGE_WEIGHT_FORMAT:")).append('\n');
+            header.append(readLine(vrpScanner, "EDGE_WEIGHT_UNIT_OF_MEASUREMENT:")).append('\n');
         }
+        readLine(vrpScanner, "CAPACITY:");
+        header.append(readLine(vrpScanner, "NODE_COORD_SECTION")).append('\n');
+        write(tspChannel, header);
+        copyLines(vrpScanner, tspChannel, dimension);
         if (explicit) {
-            copyLine(vrpReader, tspWriter, "EDGE_WEIGHT_SECTION");
-            for (int i = 0; i < dimension; i++) {
-                copyLine(vrpReader, tspWriter, null);
-            }
-        }
-        ignoreLine(vrpReader, tspWriter, "DEMAND_SECTION");
-        for (int i = 0; i < dimension; i++) {
-            ignoreLine(vrpReader, tspWriter, null);
+            write(tspChannel, readLine(vrpScanner, "EDGE_WEIGHT_SECTION") + "\n");
+            copyLines(vrpScanner, tspChannel, dimension);
         }
-        ignoreLine(vrpReader, tspWriter, "DEPOT_SECTION");
-        ignoreLine(vrpReader, tspWriter, null);
-        ignoreLine(vrpReader, tspWriter, null);
-        copyLine(vrpReader, tspWriter, "EOF");
+        readLine(vrpScanner, "DEMAND_SECTION");
+        vrpScanner.skipLines(dimension);
+        readLine(vrpScanner, "DEPOT_SECTION");
+        do {
+            line = readLine(vrpScanner, null);
+        } while (!line.trim().equals("-1"));
+        write(tspChannel, readLine(vrpScanner, "EOF") + "\n");
     }
 
-    private int readDimension(BufferedReader vrpReader, BufferedWriter tspWriter) throws IOException {
-        String line = vrpReader.readLine();
-        String inputPattern = "DIMENSION:.*";
-        if (!line.matches(inputPattern)) {
-            throw new IllegalStateException("The line (" + line
-                    + ") does not match inputPattern (" + inputPattern + ").");
+    /**
+     * @param prefix null to accept any line
+     * @return never null
+     */
+    private String readLine(LineScanner vrpScanner, String prefix) throws IOException {
+        String line = vrpScanner.readLine();
+        if (line == null) {
+            throw new IllegalStateException("The file ended before a line with prefix (" + prefix + ").");
         }
-        tspWriter.write(line + "\n");
-        return Integer.parseInt(line.replaceAll("DIMENSION: *", ""));
-    }
-
-    private boolean readEdgeWeightType(BufferedReader vrpReader, BufferedWriter tspWriter) throws IOException {
-        String line = vrpReader.readLine();
-        String inputPattern = "EDGE_WEIGHT_TYPE:.*";
-        if (!line.matches(inputPattern)) {
-            throw new IllegalStateException("The line (" + line
-                    + ") does not match inputPattern (" + inputPattern + ").");
+        if (prefix != null) {
+            checkPrefix(line, prefix);
         }
-        tspWriter.write(line + "\n");
-        return line.matches(".*EXPLICIT");
+        return line;
     }
 
-    private void convertLine(BufferedReader vrpReader, BufferedWriter tspWriter, String inputPattern, String outputLine) throws IOException {
-        String line = vrpReader.readLine();
-        if (inputPattern != null && !(line != null && line.matches(inputPattern))) {
-            throw new IllegalStateException("The line (" + line + ") does not match inputPattern (" + inputPattern + ").");
+    private void checkPrefix(String line, String prefix) {
+        if (!line.startsWith(prefix)) {
+            throw new IllegalStateException("The line (" + line + ") does not start with prefix (" + prefix + ").");
         }
-        tspWriter.write(outputLine + "\n");
     }
 
-    private void copyLine(BufferedReader vrpReader, BufferedWriter tspWriter, String inputPattern) throws IOException {
-        String line = vrpReader.readLine();
-        if (inputPattern != null && !(line != null && line.matches(inputPattern))) {
-            throw new IllegalStateException("The line (" + line + ") does not match inputPattern (" + inputPattern + ").");
-        }
-        tspWriter.write(line + "\n");
+    private void copyLines(LineScanner vrpScanner, FileChannel tspChannel, int lineCount) throws IOException {
+        long startPosition = vrpScanner.getPosition();
+        vrpScanner.skipLines(lineCount);
+        vrpScanner.transferTo(startPosition, vrpScanner.getPosition(), tspChannel);
     }
 
-    private void ignoreLine(BufferedReader vrpReader, BufferedWriter tspWriter, String inputPattern) throws IOException {
-        String line = vrpReader.readLine();
-        if (inputPattern != null && !(line != null && line.matches(inputPattern))) {
-            throw new IllegalStateException("The line (" + line + ") does not match inputPattern (" + inputPattern + ").");
+    private void write(FileChannel tspChannel, CharSequence text) throws IOException {
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(text.toString());
+        while (buffer.hasRemaining()) {
+            tspChannel.write(buffer);
         }
     }
 
@@ -24,7 +24,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -35,16 +38,16 @@ import java.util.Set;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Multisets;
-import com.graphhopper.GHRequest;
-import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
-import com.graphhopper.PathWrapper;
 import com.graphhopper.reader.osm.GraphHopperOSM;
-import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.Path;
 import com.graphhopper.util.PointList;
 import org.apache.commons.io.IOUtils;
 import org.optaplanner.examples.common.app.LoggingMain;
 import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.ParallelMatrixEngine;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.GraphHopperStoreManager;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.OneToManyRouter;
 
 /**
  * This is very quick and VERY DIRTY code.
@@ -53,23 +56,43 @@ import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
 public class BelgiumHubSuggester extends LoggingMain {
 
     public static void main(String[] args) {
-        new BelgiumHubSuggester().suggest();
+        BelgiumHubSuggester suggester = new BelgiumHubSuggester();
+        if (args.length == 0) {
+            suggester.suggest();
+        } else if (args.length == 4) {
+            suggester.suggest(new File(args[0]), Integer.parseInt(args[1]), new File(args[2]), Integer.parseInt(args[3]));
+        } else {
+            throw new IllegalArgumentException("Expected no arguments or 4 arguments:"
+                    + " locationFile locationListSize outputFile hubSize.");
+        }
     }
 
     private final GraphHopperOSM graphHopper;
 
+    /**
+     * The routes of the origins are calculated in parallel, the route points are accumulated in origin order,
+     * so the suggested hubs don't depend on the threadCount.
+     */
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+
     public BelgiumHubSuggester() {
-        graphHopper = (GraphHopperOSM) new GraphHopperOSM().forServer();
-        String osmPath = "local/osm/belgium-latest.osm.pbf";
-        if (!new File(osmPath).exists()) {
-            throw new IllegalStateException("The osmPath (" + osmPath + ") does not exist.\n" +
-                    "Download the osm file from http://download.geofabrik.de/ first.");
-        }
-        graphHopper.setOSMFile(osmPath);
-        graphHopper.setGraphHopperLocation("local/graphhopper");
-        graphHopper.setEncodingManager(new EncodingManager("car"));
-        graphHopper.importOrLoad();
-        logger.info("GraphHopper loaded.");
+        this("local/osm/belgium-latest.osm.pbf", GraphHopperStoreManager.DEFAULT_STORE_DIR);
+    }
+
+    /**
+     * @param osmPath never null
+     * @param graphHopperLocation never null, the store directory of the {@link GraphHopperStoreManager}
+     */
+    public BelgiumHubSuggester(String osmPath, String graphHopperLocation) {
+        graphHopper = GraphHopperStoreManager.getInstance().load(osmPath, graphHopperLocation, "car");
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
     }
 
     public void suggest() {
@@ -88,108 +111,7 @@ public class BelgiumHubSuggester extends LoggingMain {
         locationList = subselectLocationList(locationListSize, locationList);
         Map<Point, Point> fromPointMap = new LinkedHashMap<Point, Point>(locationListSize * 10);
         Map<Point, Point> toPointMap = new LinkedHashMap<Point, Point>(locationListSize * 10);
-        int rowIndex = 0;
-        double maxAirDistance = 0.0;
-        for (AirLocation fromAirLocation : locationList) {
-            for (AirLocation toAirLocation : locationList) {
-                double airDistance = fromAirLocation.getAirDistanceDoubleTo(toAirLocation);
-                if (airDistance > maxAirDistance) {
-                    maxAirDistance = airDistance;
-                }
-            }
-        }
-        double airDistanceThreshold = maxAirDistance / 10.0;
-        for (AirLocation fromAirLocation : locationList) {
-            for (AirLocation toAirLocation : locationList) {
-                double distance;
-                if (fromAirLocation != toAirLocation) {
-                    GHRequest request = new GHRequest(fromAirLocation.getLatitude(), fromAirLocation.getLongitude(),
-                            toAirLocation.getLatitude(), toAirLocation.getLongitude())
-                            .setVehicle("car");
-                    GHResponse response = graphHopper.route(request);
-                    if (response.hasErrors()) {
-                        throw new IllegalStateException("GraphHopper gave " + response.getErrors().size()
-                                + " errors. First error chained.",
-                                response.getErrors().get(0)
-                        );
-                    }
-                    // Distance should be in km, not meter
-                    PathWrapper path = response.getBest();
-                    distance = path.getDistance() / 1000.0;
-                    if (distance == 0.0) {
-                        throw new IllegalArgumentException("The fromAirLocation (" + fromAirLocation
-                                + ") and toAirLocation (" + toAirLocation + ") are the same.");
-                    }
-                    PointList ghPointList = path.getPoints();
-                    PointPart previousFromPointPart = null;
-                    PointPart previousToPointPart = null;
-                    double previousLatitude = Double.NaN;
-                    double previousLongitude = Double.NaN;
-                    for (int i = 0; i < ghPointList.size(); i++) {
-                        double latitude = ghPointList.getLatitude(i);
-                        double longitude = ghPointList.getLongitude(i);
-                        if (latitude == previousLatitude && longitude == previousLongitude) {
-                            continue;
-                        }
-                        if (calcAirDistance(latitude, longitude,
-                                fromAirLocation.getLatitude(), fromAirLocation.getLongitude()) < airDistanceThreshold) {
-                            Point fromPoint = new Point(latitude, longitude);
-                            Point oldFromPoint = fromPointMap.get(fromPoint);
-                            if (oldFromPoint == null) {
-                                // Initialize fromPoint instance
-                                fromPoint.pointPartMap = new LinkedHashMap<AirLocation, PointPart>();
-                                fromPointMap.put(fromPoint, fromPoint);
-                            } else {
-                                // Reuse existing fromPoint instance
-                                fromPoint = oldFromPoint;
-                            }
-                            PointPart fromPointPart = fromPoint.pointPartMap.get(fromAirLocation);
-                            if (fromPointPart == null) {
-                                fromPointPart = new PointPart(fromPoint, fromAirLocation);
-                                fromPoint.pointPartMap.put(fromAirLocation, fromPointPart);
-                                fromPointPart.previousPart = previousFromPointPart;
-                            }
-                            fromPointPart.count++;
-                            previousFromPointPart = fromPointPart;
-                        }
-                        if (calcAirDistance(latitude, longitude,
-                                toAirLocation.getLatitude(), toAirLocation.getLongitude()) < airDistanceThreshold) {
-                            Point toPoint = new Point(latitude, longitude);
-                            Point oldToPoint = toPointMap.get(toPoint);
-                            if (oldToPoint == null) {
-                                // Initialize toPoint instance
-                                toPoint.pointPartMap = new LinkedHashMap<AirLocation, PointPart>();
-                                toPointMap.put(toPoint, toPoint);
-                            } else {
-                                // Reuse existing toPoint instance
-                                toPoint = oldToPoint;
-                            }
-                            // Basically do the same as fromPointPart, but while traversing in the other direction
-                            PointPart toPointPart = toPoint.pointPartMap.get(toAirLocation);
-                            boolean newToPointPart = false;
-                            if (toPointPart == null) {
-                                toPointPart = new PointPart(toPoint, toAirLocation);
-                                toPoint.pointPartMap.put(toAirLocation, toPointPart);
-                                newToPointPart = true;
-                            }
-                            if (previousToPointPart != null) {
-                                previousToPointPart.previousPart = toPointPart;
-                            }
-                            toPointPart.count++;
-                            if (newToPointPart) {
-                                previousToPointPart = toPointPart;
-                            } else {
-                                previousToPointPart = null;
-                            }
-                        }
-                        previousLatitude = latitude;
-                        previousLongitude = longitude;
-                    }
-                }
-            }
-            logger.debug("  Finished routes for rowIndex {}/{}", rowIndex, locationList.size());
-            rowIndex++;
-        }
+        collectRoutePoints(locationList, fromPointMap, toPointMap);
         Set<Point> hubPointList = new LinkedHashSet<Point>(20);
         extractFromHubs(new ArrayList<Point>(fromPointMap.values()), hubPointList, (hubSize + 1) / 2);
         extractFromHubs(new ArrayList<Point>(toPointMap.values()), hubPointList, hubSize / 2);
@@ -217,7 +139,158 @@ public class BelgiumHubSuggester extends LoggingMain {
         // Throw in google docs spreadsheet and use add-on Mapping Sheets to visualize.
     }
 
-    private void extractFromHubs(List<Point> pointList, Set<Point> hubPointList, int hubSize) {
+    void collectRoutePoints(List<AirLocation> locationList, Map<Point, Point> fromPointMap, Map<Point, Point> toPointMap) {
+        double maxAirDistance = 0.0;
+        // The air distance is symmetric, so only the upper triangle is compared
+        for (int fromIndex = 0; fromIndex < locationList.size(); fromIndex++) {
+            AirLocation fromAirLocation = locationList.get(fromIndex);
+            for (int toIndex = fromIndex + 1; toIndex < locationList.size(); toIndex++) {
+                double airDistance = fromAirLocation.getAirDistanceDoubleTo(locationList.get(toIndex));
+                if (airDistance > maxAirDistance) {
+                    maxAirDistance = airDistance;
+                }
+            }
+        }
+        double airDistanceThreshold = maxAirDistance / 10.0;
+        // Snap every location once and grow 1 shortest path tree per fromAirLocation
+        OneToManyRouter router = createOneToManyRouter(locationList);
+        // The workers route and filter the route points, but the point maps are only updated on this thread,
+        // in row order, because the previousPart chains depend on the order of the routes
+        ParallelMatrixEngine matrixEngine = new ParallelMatrixEngine(threadCount);
+        try {
+            matrixEngine.calculate(locationList.size(),
+                    fromIndex -> calculateRoutePointRow(router, locationList, fromIndex, airDistanceThreshold),
+                    (fromIndex, row) -> {
+                        AirLocation fromAirLocation = locationList.get(fromIndex);
+                        for (int toIndex = 0; toIndex < locationList.size(); toIndex++) {
+                            if (toIndex != fromIndex) {
+                                accumulateFromPoints(fromAirLocation, row.fromPoints, toIndex, fromPointMap);
+                                accumulateToPoints(locationList.get(toIndex), row.toPoints, toIndex, toPointMap);
+                            }
+                        }
+                        logger.debug("  Finished routes for rowIndex {}/{}", fromIndex, locationList.size());
+                    });
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible state: accumulating route points does not do IO.", e);
+        }
+    }
+
+    /**
+     * Called concurrently, so it only reads the router and the locationList.
+     */
+    private RoutePointRow calculateRoutePointRow(OneToManyRouter router, List<AirLocation> locationList,
+            int fromIndex, double airDistanceThreshold) {
+        AirLocation fromAirLocation = locationList.get(fromIndex);
+        RoutePointRow row = new RoutePointRow(locationList.size());
+        // A worker thread calculates many rows, so start from a cleared tree
+        router.startTree(fromIndex);
+        for (int toIndex = 0; toIndex < locationList.size(); toIndex++) {
+            AirLocation toAirLocation = locationList.get(toIndex);
+            if (fromAirLocation != toAirLocation) {
+                Path path = router.calcPath(fromIndex, toIndex);
+                // Distance should be in km, not meter
+                double distance = path.getDistance() / 1000.0;
+                if (distance == 0.0) {
+                    throw new IllegalArgumentException("The fromAirLocation (" + fromAirLocation
+                            + ") and toAirLocation (" + toAirLocation + ") are the same.");
+                }
+                PointList ghPointList = path.calcPoints();
+                double previousLatitude = Double.NaN;
+                double previousLongitude = Double.NaN;
+                for (int i = 0; i < ghPointList.size(); i++) {
+                    double latitude = ghPointList.getLatitude(i);
+                    double longitude = ghPointList.getLongitude(i);
+                    if (latitude == previousLatitude && longitude == previousLongitude) {
+                        continue;
+                    }
+                    if (calcAirDistance(latitude, longitude,
+                            fromAirLocation.getLatitude(), fromAirLocation.getLongitude()) < airDistanceThreshold) {
+                        row.fromPoints.add(latitude, longitude);
+                    }
+                    if (calcAirDistance(latitude, longitude,
+                            toAirLocation.getLatitude(), toAirLocation.getLongitude()) < airDistanceThreshold) {
+                        row.toPoints.add(latitude, longitude);
+                    }
+                    previousLatitude = latitude;
+                    previousLongitude = longitude;
+                }
+            }
+            row.fromPoints.endRoute(toIndex);
+            row.toPoints.endRoute(toIndex);
+        }
+        return row;
+    }
+
+    private void accumulateFromPoints(AirLocation fromAirLocation, RoutePoints fromPoints, int toIndex,
+            Map<Point, Point> fromPointMap) {
+        PointPart previousFromPointPart = null;
+        for (int i = fromPoints.getStart(toIndex); i < fromPoints.getEnd(toIndex); i++) {
+            Point fromPoint = new Point(fromPoints.latitudes[i], fromPoints.longitudes[i]);
+            Point oldFromPoint = fromPointMap.get(fromPoint);
+            if (oldFromPoint == null) {
+                // Initialize fromPoint instance
+                fromPoint.pointPartMap = new LinkedHashMap<AirLocation, PointPart>();
+                fromPointMap.put(fromPoint, fromPoint);
+            } else {
+                // Reuse existing fromPoint instance
+                fromPoint = oldFromPoint;
+            }
+            PointPart fromPointPart = fromPoint.pointPartMap.get(fromAirLocation);
+            if (fromPointPart == null) {
+                fromPointPart = new PointPart(fromPoint, fromAirLocation);
+                fromPoint.pointPartMap.put(fromAirLocation, fromPointPart);
+                fromPointPart.previousPart = previousFromPointPart;
+            }
+            fromPointPart.count++;
+            previousFromPointPart = fromPointPart;
+        }
+    }
+
+    private void accumulateToPoints(AirLocation toAirLocation, RoutePoints toPoints, int toIndex,
+            Map<Point, Point> toPointMap) {
+        PointPart previousToPointPart = null;
+        for (int i = toPoints.getStart(toIndex); i < toPoints.getEnd(toIndex); i++) {
+            Point toPoint = new Point(toPoints.latitudes[i], toPoints.longitudes[i]);
+            Point oldToPoint = toPointMap.get(toPoint);
+            if (oldToPoint == null) {
+                // Initialize toPoint instance
+                toPoint.pointPartMap = new LinkedHashMap<AirLocation, PointPart>();
+                toPointMap.put(toPoint, toPoint);
+            } else {
+                // Reuse existing toPoint instance
+                toPoint = oldToPoint;
+            }
+            // Basically do the same as fromPointPart, but while traversing in the other direction
+            PointPart toPointPart = toPoint.pointPartMap.get(toAirLocation);
+            boolean newToPointPart = false;
+            if (toPointPart == null) {
+                toPointPart = new PointPart(toPoint, toAirLocation);
+                toPoint.pointPartMap.put(toAirLocation, toPointPart);
+                newToPointPart = true;
+            }
+            if (previousToPointPart != null) {
+                previousToPointPart.previousPart = toPointPart;
+            }
+            toPointPart.count++;
+            if (newToPointPart) {
+                previousToPointPart = toPointPart;
+            } else {
+                previousToPointPart = null;
+            }
+        }
+    }
+
+    private OneToManyRouter createOneToManyRouter(List<AirLocation> locationList) {
+        double[] latitudes = new double[locationList.size()];
+        double[] longitudes = new double[locationList.size()];
+        for (int i = 0; i < locationList.size(); i++) {
+            latitudes[i] = locationList.get(i).getLatitude();
+            longitudes[i] = locationList.get(i).getLongitude();
+        }
+        return new OneToManyRouter(graphHopper, "car", "fastest", latitudes, longitudes);
+    }
+
+    void extractFromHubs(List<Point> pointList, Set<Point> hubPointList, int hubSize) {
 //        logger.info("Filtering points below threshold...");
 //        fromPointMap = null;
 //        int THRESHOLD = 10;
@@ -238,41 +311,78 @@ public class BelgiumHubSuggester extends LoggingMain {
 //            }
 //        }
         logger.info("Extracting hubs...");
-        for (int i = 0; i < hubSize; i++) {
-            logger.info("  {} / {} with remaining pointListSize ({})", i, hubSize, pointList.size());
-            // Make the biggest merger of 2 big streams into 1 stream a hub.
-            int maxCount = -1;
-            Point maxCountPoint = null;
-            for (Point point : pointList) {
-                int count = 0;
-                for (PointPart pointPart : point.pointPartMap.values()) {
-                    count += pointPart.count;
-                }
-                if (count > maxCount) {
-                    maxCount = count;
-                    maxCountPoint = point;
+        // The point totals live in an indexed max heap, updated as parts are removed or decremented,
+        // instead of summing all parts of all points for every hub
+        PointHeap pointHeap = new PointHeap(pointList.size());
+        for (int pointIndex = 0; pointIndex < pointList.size(); pointIndex++) {
+            Point point = pointList.get(pointIndex);
+            point.index = pointIndex;
+            long totalCount = 0L;
+            for (PointPart pointPart : point.pointPartMap.values()) {
+                totalCount += pointPart.count;
+                pointPart.nextPartList = null;
+                pointPart.afterHub = false;
+            }
+            // A part removed from the pointPartMap still puts the parts after it behind this point, if it becomes a hub
+            point.allPartList = new ArrayList<PointPart>(point.pointPartMap.values());
+            pointHeap.add(pointIndex, totalCount);
+        }
+        // The reverse of the previousPart links, to mark the parts that come after a hub only once
+        for (Point point : pointList) {
+            for (PointPart pointPart : point.pointPartMap.values()) {
+                PointPart previousPart = pointPart.previousPart;
+                if (previousPart != null) {
+                    if (previousPart.nextPartList == null) {
+                        previousPart.nextPartList = new ArrayList<PointPart>(2);
+                    }
+                    previousPart.nextPartList.add(pointPart);
                 }
             }
-            if (maxCountPoint == null) {
-                throw new IllegalStateException("No maxCountPoint (" + maxCountPoint + ") found.");
+        }
+        // The points emptied by subtracting prefix parts are only removed after the next hub is chosen
+        List<Point> emptiedPointList = new ArrayList<Point>();
+        for (int i = 0; i < hubSize; i++) {
+            logger.info("  {} / {} with remaining pointListSize ({})", i, hubSize, pointHeap.size());
+            // Make the biggest merger of 2 big streams into 1 stream a hub.
+            if (pointHeap.isEmpty()) {
+                throw new IllegalStateException("No maxCountPoint found for hub (" + i + ").");
             }
+            Point maxCountPoint = pointList.get(pointHeap.poll());
             maxCountPoint.hub = true;
-            pointList.remove(maxCountPoint);
             hubPointList.add(maxCountPoint);
-            // Remove trailing parts
-            for (Iterator<Point> pointIt = pointList.iterator(); pointIt.hasNext(); ) {
-                Point point = pointIt.next();
-                for (Iterator<PointPart> partIt = point.pointPartMap.values().iterator(); partIt.hasNext(); ) {
-                    PointPart pointPart = partIt.next();
-                    if (pointPart.comesAfterHub()) {
-                        partIt.remove();
+            // Remove trailing parts: mark every part that comes after a part of the new hub, only once
+            Deque<PointPart> nextPartQueue = new ArrayDeque<PointPart>();
+            for (PointPart hubPart : maxCountPoint.allPartList) {
+                if (hubPart.nextPartList != null) {
+                    nextPartQueue.addAll(hubPart.nextPartList);
+                }
+            }
+            while (!nextPartQueue.isEmpty()) {
+                PointPart pointPart = nextPartQueue.poll();
+                if (pointPart.afterHub) {
+                    // Its next parts are already marked too
+                    continue;
+                }
+                pointPart.afterHub = true;
+                if (pointPart.nextPartList != null) {
+                    nextPartQueue.addAll(pointPart.nextPartList);
+                }
+                Point point = pointPart.point;
+                if (!point.hub && !point.removed && removePart(pointPart)) {
+                    pointHeap.addToKey(point.index, -pointPart.count);
+                    if (point.pointPartMap.isEmpty()) {
+                        point.removed = true;
+                        pointHeap.remove(point.index);
                     }
                 }
-                if (point.pointPartMap.isEmpty()) {
+            }
+            for (Point point : emptiedPointList) {
+                if (!point.hub && !point.removed && point.pointPartMap.isEmpty()) {
                     point.removed = true;
-                    pointIt.remove();
+                    pointHeap.remove(point.index);
                 }
             }
+            emptiedPointList.clear();
             // Subtract prefix parts
             for (PointPart pointPart : maxCountPoint.pointPartMap.values()) {
                 PointPart ancestorPart = pointPart.previousPart;
@@ -281,16 +391,43 @@ public class BelgiumHubSuggester extends LoggingMain {
 //                    if (ancestorPart.count < 0) {
 //                        throw new IllegalStateException("Impossible state"); // TODO FIXME Does happen! Probably because some paths hit the same point twice at different elevation
 //                    }
-                    if (ancestorPart.count <= 0) {
-                        ancestorPart.point.pointPartMap.remove(ancestorPart.anchor);
+                    Point ancestorPoint = ancestorPart.point;
+                    boolean inHeap = !ancestorPoint.hub && !ancestorPoint.removed;
+                    if (ancestorPoint.pointPartMap.get(ancestorPart.anchor) == ancestorPart) {
+                        if (inHeap) {
+                            pointHeap.addToKey(ancestorPoint.index, -pointPart.count);
+                        }
+                        if (ancestorPart.count <= 0) {
+                            ancestorPoint.pointPartMap.remove(ancestorPart.anchor);
+                            if (inHeap) {
+                                pointHeap.addToKey(ancestorPoint.index, -ancestorPart.count);
+                                if (ancestorPoint.pointPartMap.isEmpty()) {
+                                    emptiedPointList.add(ancestorPoint);
+                                }
+                            }
+                        }
                     }
                     ancestorPart = ancestorPart.previousPart;
                 }
             }
         }
+        // Keep the contract that only the remaining points are left in the pointList
+        pointList.removeIf(point -> point.hub || point.removed);
     }
 
-    private List<AirLocation> subselectLocationList(double locationListSize, List<AirLocation> locationList) {
+    /**
+     * @return true if the pointPart was still in its point's pointPartMap
+     */
+    private static boolean removePart(PointPart pointPart) {
+        Map<AirLocation, PointPart> pointPartMap = pointPart.point.pointPartMap;
+        if (pointPartMap.get(pointPart.anchor) != pointPart) {
+            return false;
+        }
+        pointPartMap.remove(pointPart.anchor);
+        return true;
+    }
+
+    List<AirLocation> subselectLocationList(double locationListSize, List<AirLocation> locationList) {
         double selectionDecrement = locationListSize / (double) locationList.size();
         double selection = locationListSize;
         int index = 1;
@@ -307,7 +444,7 @@ public class BelgiumHubSuggester extends LoggingMain {
         return locationList;
     }
 
-    private List<AirLocation> readAirLocationFile(File locationFile) {
+    List<AirLocation> readAirLocationFile(File locationFile) {
         List<AirLocation> locationList = new ArrayList<AirLocation>(3000);
         BufferedReader bufferedReader = null;
         long id = 0L;
@@ -343,7 +480,179 @@ public class BelgiumHubSuggester extends LoggingMain {
                 (latitudeDifference * latitudeDifference) + (longitudeDifference * longitudeDifference));
     }
 
-    private static class Point {
+    /**
+     * The route points of 1 origin to every destination, near the origin and near the destination.
+     */
+    private static class RoutePointRow {
+
+        private final RoutePoints fromPoints;
+        private final RoutePoints toPoints;
+
+        private RoutePointRow(int locationListSize) {
+            fromPoints = new RoutePoints(locationListSize);
+            toPoints = new RoutePoints(locationListSize);
+        }
+
+    }
+
+    /**
+     * The route points of many routes in primitive arrays, appended route by route.
+     */
+    private static class RoutePoints {
+
+        private double[] latitudes = new double[256];
+        private double[] longitudes = new double[256];
+        private int size = 0;
+        /**
+         * The end of the points of each route, which is the start of the next route.
+         */
+        private final int[] routeEnds;
+
+        private RoutePoints(int routeCount) {
+            routeEnds = new int[routeCount];
+        }
+
+        private void add(double latitude, double longitude) {
+            if (size == latitudes.length) {
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+            }
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+        }
+
+        private void endRoute(int routeIndex) {
+            routeEnds[routeIndex] = size;
+        }
+
+        private int getStart(int routeIndex) {
+            return routeIndex == 0 ? 0 : routeEnds[routeIndex - 1];
+        }
+
+        private int getEnd(int routeIndex) {
+            return routeEnds[routeIndex];
+        }
+
+    }
+
+    /**
+     * Indexed binary max heap of point indexes by their total count.
+     * Ties go to the lowest point index, like a scan in pointList order.
+     */
+    private static class PointHeap {
+
+        private final int[] heap;
+        /**
+         * The position of each point index in the heap, -1 if it is not in the heap.
+         */
+        private final int[] positions;
+        private final long[] keys;
+        private int size = 0;
+
+        private PointHeap(int capacity) {
+            heap = new int[capacity];
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+            keys = new long[capacity];
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private void add(int pointIndex, long key) {
+            keys[pointIndex] = key;
+            heap[size] = pointIndex;
+            positions[pointIndex] = size;
+            size++;
+            siftUp(size - 1);
+        }
+
+        /**
+         * @return the point index with the biggest key
+         */
+        private int poll() {
+            int pointIndex = heap[0];
+            remove(pointIndex);
+            return pointIndex;
+        }
+
+        private void remove(int pointIndex) {
+            int position = positions[pointIndex];
+            size--;
+            positions[pointIndex] = -1;
+            if (position == size) {
+                return;
+            }
+            int lastPointIndex = heap[size];
+            heap[position] = lastPointIndex;
+            positions[lastPointIndex] = position;
+            siftUp(position);
+            siftDown(positions[lastPointIndex]);
+        }
+
+        private void addToKey(int pointIndex, long delta) {
+            keys[pointIndex] += delta;
+            int position = positions[pointIndex];
+            if (delta > 0L) {
+                siftUp(position);
+            } else if (delta < 0L) {
+                siftDown(position);
+            }
+        }
+
+        private boolean isAbove(int pointIndex, int otherPointIndex) {
+            long key = keys[pointIndex];
+            long otherKey = keys[otherPointIndex];
+            return key > otherKey || (key == otherKey && pointIndex < otherPointIndex);
+        }
+
+        private void siftUp(int position) {
+            int pointIndex = heap[position];
+            while (position > 0) {
+                int parentPosition = (position - 1) >>> 1;
+                int parentPointIndex = heap[parentPosition];
+                if (!isAbove(pointIndex, parentPointIndex)) {
+                    break;
+                }
+                heap[position] = parentPointIndex;
+                positions[parentPointIndex] = position;
+                position = parentPosition;
+            }
+            heap[position] = pointIndex;
+            positions[pointIndex] = position;
+        }
+
+        private void siftDown(int position) {
+            int pointIndex = heap[position];
+            while (true) {
+                int childPosition = 2 * position + 1;
+                if (childPosition >= size) {
+                    break;
+                }
+                if (childPosition + 1 < size && isAbove(heap[childPosition + 1], heap[childPosition])) {
+                    childPosition++;
+                }
+                int childPointIndex = heap[childPosition];
+                if (!isAbove(childPointIndex, pointIndex)) {
+                    break;
+                }
+                heap[position] = childPointIndex;
+                positions[childPointIndex] = position;
+                position = childPosition;
+            }
+            heap[position] = pointIndex;
+            positions[pointIndex] = position;
+        }
+
+    }
+
+    static class Point {
 
         public final double latitude;
         public final double longitude;
@@ -353,6 +662,16 @@ public class BelgiumHubSuggester extends LoggingMain {
         public boolean removed = false;
         public boolean hub = false;
 
+        /**
+         * Only used during {@link #extractFromHubs(List, Set, int)}.
+         */
+        int index = -1;
+        /**
+         * Only used during {@link #extractFromHubs(List, Set, int)}:
+         * also the parts already removed from the pointPartMap.
+         */
+        List<PointPart> allPartList;
+
         public Point(double latitude, double longitude) {
             this.latitude = latitude;
             this.longitude = longitude;
@@ -394,31 +713,29 @@ public class BelgiumHubSuggester extends LoggingMain {
 
     }
 
-    private static class PointPart {
+    static class PointPart {
 
         public final Point point;
         public final AirLocation anchor;
         public PointPart previousPart;
         public int count = 0;
 
+        /**
+         * Only used during {@link #extractFromHubs(List, Set, int)}:
+         * the parts that have this part as their previousPart.
+         */
+        List<PointPart> nextPartList;
+        /**
+         * Only used during {@link #extractFromHubs(List, Set, int)}:
+         * true if a part of a hub point is in its previousPart chain.
+         */
+        boolean afterHub = false;
+
         public PointPart(Point point, AirLocation anchor) {
             this.point = point;
             this.anchor = anchor;
         }
 
-        public boolean comesAfterHub() {
-            PointPart ancestorPart = previousPart;
-            while (true) {
-                if (ancestorPart == null) {
-                    return false;
-                }
-                if (ancestorPart.point.hub) {
-                    return true;
-                }
-                ancestorPart = ancestorPart.previousPart;
-            }
-        }
-
         @Override
         public String toString() {
             return point + "-" + anchor.getName();
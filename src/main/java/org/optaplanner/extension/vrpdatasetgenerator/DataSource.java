@@ -16,35 +16,35 @@
 
 package org.optaplanner.extension.vrpdatasetgenerator;
 
-enum DataSource {
+/**
+ * The built-in {@link DatasetCatalogue}s.
+ */
+public enum DataSource {
     BELGIUM,
     USA,
     UK_TEAMS;
 
-    public String getOsmPath() {
+    /**
+     * @return never null, a classpath resource
+     */
+    public String getCatalogueResource() {
         switch (this) {
             case BELGIUM:
-                return "local/osm/belgium-latest.osm.pbf";
+                return "belgiumDatasetCatalogue.xml";
             case USA:
-                return "local/osm/north-america-latest.osm.pbf";
+                return "usaDatasetCatalogue.xml";
             case UK_TEAMS:
-                return"local/osm/great-britain-latest.osm.pbf";
+                return "ukTeamsDatasetCatalogue.xml";
             default:
                 throw new IllegalArgumentException("Unsupported dataSource (" + this + ").");
         }
     }
 
-    public String getDirName() {
-        switch (this) {
-            case BELGIUM:
-                return "belgium";
-            case USA:
-                return "usa";
-            case UK_TEAMS:
-                return "uk-teams";
-            default:
-                throw new IllegalArgumentException("Unsupported dataSource (" + this + ").");
-        }
+    /**
+     * @return never null
+     */
+    public DatasetCatalogue loadCatalogue() {
+        return DatasetCatalogue.loadResource(getCatalogueResource());
     }
 
 }
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.List;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+import com.thoughtworks.xstream.annotations.XStreamImplicit;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.GraphHopperStoreManager;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.PreparationProfile;
+
+/**
+ * Declares which vrp files to generate for a region:
+ * the location file layout, the {@link VrpVariant}s and the {@link VrpDataset} instances.
+ * Every dataset is written in every variant, except the segmented variants of datasets without a hub file
+ * and the variants with a maxLocationListSize below the dataset's locationListSize.
+ * <p>
+ * It is read from an XML file, such as {@code belgiumDatasetCatalogue.xml}.
+ */
+@XStreamAlias("datasetCatalogue")
+public class DatasetCatalogue {
+
+    private static final Class<?>[] XSTREAM_ANNOTATED_TYPES = {
+            DatasetCatalogue.class, LocationFileLayout.class, VrpVariant.class, VrpDataset.class};
+    private static final Class<?>[] XSTREAM_ALLOWED_TYPES = {
+            DatasetCatalogue.class, LocationFileLayout.class, VrpVariant.class, VrpDataset.class,
+            GenerationDistanceType.class, VrpType.class, File.class};
+
+    /**
+     * @param catalogueFile never null
+     * @return never null
+     */
+    public static DatasetCatalogue load(File catalogueFile) {
+        try (Reader reader = new InputStreamReader(new FileInputStream(catalogueFile), "UTF-8")) {
+            return read(reader, catalogueFile.toString());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read the catalogueFile (" + catalogueFile + ").", e);
+        }
+    }
+
+    /**
+     * @param catalogueResource never null, a classpath resource
+     * @return never null
+     */
+    public static DatasetCatalogue loadResource(String catalogueResource) {
+        InputStream in = DatasetCatalogue.class.getResourceAsStream(catalogueResource);
+        if (in == null) {
+            throw new IllegalArgumentException("The catalogueResource (" + catalogueResource
+                    + ") does not exist on the classpath.");
+        }
+        try (Reader reader = new InputStreamReader(in, "UTF-8")) {
+            return read(reader, catalogueResource);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read the catalogueResource (" + catalogueResource + ").", e);
+        }
+    }
+
+    private static DatasetCatalogue read(Reader reader, String description) {
+        XStream xStream = new XStream();
+        XStream.setupDefaultSecurity(xStream);
+        xStream.allowTypes(XSTREAM_ALLOWED_TYPES);
+        xStream.processAnnotations(XSTREAM_ANNOTATED_TYPES);
+        Object catalogue = xStream.fromXML(reader);
+        if (!(catalogue instanceof DatasetCatalogue)) {
+            throw new IllegalArgumentException("The catalogue (" + description + ") is not a datasetCatalogue.");
+        }
+        ((DatasetCatalogue) catalogue).validate();
+        return (DatasetCatalogue) catalogue;
+    }
+
+    /**
+     * The directory name of the output and the checkpoints, for example {@code belgium}.
+     */
+    private String name = null;
+    /**
+     * Null if no road distances are generated.
+     */
+    private String osmPath = null;
+    /**
+     * Null for the {@link GraphHopperStoreManager#DEFAULT_STORE_DIR}, which is shared by all catalogues and generators,
+     * so every OSM file is only imported once.
+     */
+    private String graphHopperLocation = null;
+    /**
+     * Null for the {@link PreparationProfile#DEFAULT},
+     * otherwise in the {@link PreparationProfile#parse(String)} format,
+     * for example {@code fastest:CONTRACTION_HIERARCHIES,shortest:LANDMARKS}.
+     */
+    private String preparationProfile = null;
+    /**
+     * Null to route every pair of a full road matrix,
+     * otherwise the maximum number of locations per tile of a tiled road matrix, for example {@code 500}.
+     */
+    private Integer tileSize = null;
+    /**
+     * Null to leave it out of the comment, for example {@code OptaPlanner Examples}.
+     */
+    private String generatedFor = null;
+    /**
+     * Null to leave it out of the comment.
+     */
+    private String author = null;
+    @XStreamImplicit(itemFieldName = "comment")
+    private List<String> commentList = null;
+
+    private LocationFileLayout locationFileLayout = null;
+    @XStreamImplicit(itemFieldName = "variant")
+    private List<VrpVariant> variantList = null;
+    @XStreamImplicit(itemFieldName = "dataset")
+    private List<VrpDataset> datasetList = null;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getOsmPath() {
+        return osmPath;
+    }
+
+    public void setOsmPath(String osmPath) {
+        this.osmPath = osmPath;
+    }
+
+    public String getGraphHopperLocation() {
+        return graphHopperLocation == null ? GraphHopperStoreManager.DEFAULT_STORE_DIR : graphHopperLocation;
+    }
+
+    public void setGraphHopperLocation(String graphHopperLocation) {
+        this.graphHopperLocation = graphHopperLocation;
+    }
+
+    /**
+     * @return never null
+     */
+    public PreparationProfile getPreparationProfile() {
+        return preparationProfile == null ? PreparationProfile.DEFAULT : PreparationProfile.parse(preparationProfile);
+    }
+
+    public void setPreparationProfile(PreparationProfile preparationProfile) {
+        this.preparationProfile = preparationProfile == null ? null : preparationProfile.toString();
+    }
+
+    public Integer getTileSize() {
+        return tileSize;
+    }
+
+    public void setTileSize(Integer tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public String getGeneratedFor() {
+        return generatedFor;
+    }
+
+    public void setGeneratedFor(String generatedFor) {
+        this.generatedFor = generatedFor;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    /**
+     * @return never null, the extra comment lines of every vrp file
+     */
+    public List<String> getCommentList() {
+        return commentList == null ? Collections.emptyList() : commentList;
+    }
+
+    public void setCommentList(List<String> commentList) {
+        this.commentList = commentList;
+    }
+
+    public LocationFileLayout getLocationFileLayout() {
+        return locationFileLayout;
+    }
+
+    public void setLocationFileLayout(LocationFileLayout locationFileLayout) {
+        this.locationFileLayout = locationFileLayout;
+    }
+
+    /**
+     * @return never null
+     */
+    public List<VrpVariant> getVariantList() {
+        return variantList == null ? Collections.emptyList() : variantList;
+    }
+
+    public void setVariantList(List<VrpVariant> variantList) {
+        this.variantList = variantList;
+    }
+
+    /**
+     * @return never null
+     */
+    public List<VrpDataset> getDatasetList() {
+        return datasetList == null ? Collections.emptyList() : datasetList;
+    }
+
+    public void setDatasetList(List<VrpDataset> datasetList) {
+        this.datasetList = datasetList;
+    }
+
+    public void validate() {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("The catalogue name (" + name + ") must not be empty.");
+        }
+        if (locationFileLayout == null) {
+            throw new IllegalArgumentException("The catalogue (" + name + ") must have a locationFileLayout.");
+        }
+        locationFileLayout.validate();
+        getPreparationProfile();
+        if (tileSize != null && tileSize < 1) {
+            throw new IllegalArgumentException("The catalogue (" + name + ")'s tileSize (" + tileSize
+                    + ") must be at least 1.");
+        }
+        for (VrpVariant variant : getVariantList()) {
+            if (variant.getDistanceType() == null || variant.getVrpType() == null) {
+                throw new IllegalArgumentException("The catalogue (" + name + ")'s variant (" + variant
+                        + ") must have a distanceType and a vrpType.");
+            }
+        }
+        for (VrpDataset dataset : getDatasetList()) {
+            dataset.validate();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
@@ -17,28 +17,33 @@
 package org.optaplanner.extension.vrpdatasetgenerator;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.stream.Collectors;
 
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.PathWrapper;
 import com.graphhopper.reader.osm.GraphHopperOSM;
-import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.Path;
+import com.graphhopper.util.Parameters;
 import com.graphhopper.util.PointList;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.optaplanner.examples.common.app.LoggingMain;
 import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
@@ -47,6 +52,29 @@ import org.optaplanner.examples.vehiclerouting.domain.location.RoadLocation;
 import org.optaplanner.examples.vehiclerouting.domain.location.segmented.HubSegmentLocation;
 import org.optaplanner.examples.vehiclerouting.domain.location.segmented.RoadSegmentLocation;
 import org.optaplanner.examples.vehiclerouting.persistence.VehicleRoutingFileIO;
+import org.optaplanner.extension.vrpdatasetgenerator.io.BinaryMatrixValueType;
+import org.optaplanner.extension.vrpdatasetgenerator.io.BinaryMatrixWriter;
+import org.optaplanner.extension.vrpdatasetgenerator.io.FixedPrecisionWriter;
+import org.optaplanner.extension.vrpdatasetgenerator.location.DuplicateLocationDetector;
+import org.optaplanner.extension.vrpdatasetgenerator.location.HubSpatialIndex;
+import org.optaplanner.extension.vrpdatasetgenerator.location.LocationColumns;
+import org.optaplanner.extension.vrpdatasetgenerator.location.LocationSelection;
+import org.optaplanner.extension.vrpdatasetgenerator.location.LocationTiler;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.DenseDistanceMatrix;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.DistanceMatrix;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.ParallelMatrixEngine;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.RouteCheckpoint;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.RouteMatrix;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.RouteRow;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.SegmentedDistanceMatrix;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.SparseDistanceMatrix;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.TiledRouteAssembler;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.GraphHopperStoreManager;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.OneToManyRouter;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.PreparationProfile;
+import org.optaplanner.extension.vrpdatasetgenerator.routing.RouteCache;
+import org.optaplanner.extension.vrpdatasetgenerator.scheduler.GenerationScheduler;
+import org.optaplanner.extension.vrpdatasetgenerator.scheduler.GenerationTask;
 
 /**
  * This is very quick and VERY DIRTY code.
@@ -54,90 +82,635 @@ import org.optaplanner.examples.vehiclerouting.persistence.VehicleRoutingFileIO;
 public class FromCsvLocationsToVrpGenerator extends LoggingMain {
 
     public static void main(String[] args) {
-        DataSource dataSource = args.length == 0 ? DataSource.BELGIUM : DataSource.valueOf(args[0]);
-        new FromCsvLocationsToVrpGenerator(dataSource).generate();
+        // The first argument is a built-in dataSource or a catalogue file
+        DatasetCatalogue catalogue = args.length == 0 ? DataSource.BELGIUM.loadCatalogue()
+                : args[0].endsWith(".xml") ? DatasetCatalogue.load(new File(args[0]))
+                : DataSource.valueOf(args[0]).loadCatalogue();
+        FromCsvLocationsToVrpGenerator generator = new FromCsvLocationsToVrpGenerator(catalogue);
+        for (int i = 1; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2) {
+                throw new IllegalArgumentException("The option (" + args[i] + ") is not in the format key=value.");
+            }
+            switch (option[0]) {
+                case "batchThreadCount":
+                    generator.setBatchThreadCount(Integer.parseInt(option[1]));
+                    break;
+                case "batchMemoryBudget":
+                    generator.setBatchMemoryBudget(Long.parseLong(option[1]));
+                    break;
+                case "matrixThreadCount":
+                    generator.setMatrixThreadCount(Integer.parseInt(option[1]));
+                    break;
+                case "oneToMany":
+                    generator.setOneToManyEnabled(Boolean.parseBoolean(option[1]));
+                    break;
+                case "tileSize":
+                    generator.setTileSize(option[1].isEmpty() ? null : Integer.valueOf(option[1]));
+                    break;
+                case "symmetricRoadTolerance":
+                    generator.setSymmetricRoadTolerance(option[1].isEmpty() ? null : Double.valueOf(option[1]));
+                    break;
+                case "hubSnappingTolerance":
+                    generator.setHubSnappingTolerance(Double.parseDouble(option[1]));
+                    break;
+                case "multiMetric":
+                    generator.setMultiMetricEnabled(Boolean.parseBoolean(option[1]));
+                    break;
+                case "binaryMatrix":
+                    generator.setBinaryMatrixValueType(option[1].isEmpty() ? null : BinaryMatrixValueType.valueOf(option[1]));
+                    break;
+                case "tspOutputDir":
+                    generator.setTspOutputDir(option[1].isEmpty() ? null : new File(option[1]));
+                    break;
+                case "offHeapMatrixDir":
+                    generator.setOffHeapMatrixDir(option[1].isEmpty() ? null : new File(option[1]));
+                    break;
+                case "offHeapLocationDir":
+                    generator.setOffHeapLocationDir(option[1].isEmpty() ? null : new File(option[1]));
+                    break;
+                case "checkpointDir":
+                    generator.setCheckpointDir(option[1].isEmpty() ? null : new File(option[1]));
+                    break;
+                case "routeCacheDir":
+                    generator.setRouteCacheDir(option[1].isEmpty() ? null : new File(option[1]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unsupported option (" + args[i] + ").");
+            }
+        }
+        generator.generate();
     }
 
+    /**
+     * The number of pairs routed in both directions to check the symmetricRoadTolerance.
+     */
+    private static final int SYMMETRY_SAMPLE_SIZE = 100;
+    /**
+     * The estimated heap usage of a read hub file, relative to its file size.
+     */
+    private static final long LOCATION_FILE_MEMORY_FACTOR = 4L;
+    /**
+     * The estimated heap usage of the {@link LocationColumns} of an on-heap location file, relative to its file size:
+     * the coordinates and the UTF-8 names take at most about as much as their text.
+     */
+    private static final long LOCATION_COLUMNS_MEMORY_FACTOR = 1L;
+    /**
+     * The index of 1 selected location in a {@link LocationSelection}.
+     */
+    private static final long SELECTED_LOCATION_MEMORY_USAGE = Integer.BYTES;
+    /**
+     * A distance and a time per pair of an on-heap {@link RouteMatrix}.
+     */
+    private static final long ROUTE_MATRIX_ENTRY_MEMORY_USAGE = 16L;
+    private static final long SEGMENTED_MATRIX_ENTRY_MEMORY_USAGE = 8L;
+
     protected final VehicleRoutingFileIO vehicleRoutingFileIO;
 
-    private final DataSource dataSource;
+    private final DatasetCatalogue catalogue;
+    private final String osmPath;
 
     private final GraphHopperOSM graphHopper;
+    /**
+     * Selects the prepared speed-up (or none) of the weighting of every route request.
+     */
+    private final PreparationProfile preparationProfile;
+
+    private File outputDir = new File("data/vehiclerouting/import");
+    /**
+     * Null to only write vrp files, otherwise also write a tsp file of every basic single depot vrp file
+     * (except the segmented ones) in this directory, such as {@code data/tsp/import}.
+     * It shares the formatted NODE_COORD_SECTION and EDGE_WEIGHT_SECTION with the vrp file,
+     * so no vrp file needs to be read again by the {@code FromVrpToTspConverter}.
+     */
+    private File tspOutputDir = null;
+
+    /**
+     * 1 to generate the catalogue sequentially,
+     * otherwise the number of tasks (reading, selecting, matrix calculation and writing)
+     * of the catalogue that run at the same time.
+     * Every running matrix task routes with its own matrixThreadCount threads.
+     */
+    private int batchThreadCount = 1;
+    /**
+     * The estimated bytes that the running tasks and the results they share (such as road matrices)
+     * may hold at the same time, when the batchThreadCount is more than 1.
+     */
+    private long batchMemoryBudget = Runtime.getRuntime().maxMemory() / 4L * 3L;
+
+    /**
+     * GraphHopperOSM is read-safe after {@link GraphHopperOSM#importOrLoad()},
+     * so the origin rows of a road matrix are routed in parallel.
+     */
+    private int matrixThreadCount = Runtime.getRuntime().availableProcessors();
+    /**
+     * Instead of routing every pair separately, snap every location once
+     * and run 1 shortest path tree search per origin.
+     * For segmented distance types, that includes 1 search per hub, which also yields the hub legs.
+     */
+    private boolean oneToManyEnabled = false;
+    /**
+     * Null to always route every pair of a road-km matrix,
+     * otherwise only route its upper triangle and mirror it,
+     * if a random sample of pairs differs at most this fraction (for example 0.01) from its mirror.
+     * The shortest road distance is rarely exactly symmetric, because of 1-way streets.
+     */
+    private Double symmetricRoadTolerance = null;
+    /**
+     * Null to route every pair of a full road matrix, otherwise the maximum number of locations per tile:
+     * a bigger matrix is calculated per tile, see {@link #calculateTiledRouteMatrix(List, GenerationDistanceType)}.
+     * Defaults to the tileSize of the catalogue.
+     */
+    private Integer tileSize;
+    /**
+     * Null to disable the persistent route cache, otherwise the directory to memory-map 1 cache file per weighting in,
+     * so a later run doesn't route the same pairs again, for example {@code local/routeCache}.
+     * Every cache file grows up to about 2 GB.
+     */
+    private File routeCacheDir = null;
+    /**
+     * The maximum latitude and longitude difference, in degrees, to recognize a route point as a hub.
+     * GraphHopper stores coordinates with 7 decimals, so they can differ slightly from the hub file.
+     */
+    private double hubSnappingTolerance = 1e-6;
+    /**
+     * Route once per weighting and write all road variants with that weighting from the same matrix.
+     */
+    private boolean multiMetricEnabled = false;
+    /**
+     * Null to only write the text {@code .vrp} file,
+     * otherwise also write the full road matrices in the binary {@code .vrpm} format next to it.
+     */
+    private BinaryMatrixValueType binaryMatrixValueType = null;
+    /**
+     * Null to keep the shared road matrices on the heap,
+     * otherwise the directory to memory-map them in.
+     */
+    private File offHeapMatrixDir = null;
+    /**
+     * Null to keep the parsed location files on the heap,
+     * otherwise the directory to memory-map them in.
+     */
+    private File offHeapLocationDir = null;
+    /**
+     * Null to disable checkpointing, otherwise the directory to keep every completed road matrix row in,
+     * so a crashed run resumes where it stopped, for example {@code local/checkpoint}.
+     */
+    private File checkpointDir = null;
+    /**
+     * Read by every routing thread, so lookups must not lock.
+     */
+    private final Map<String, RouteCache> routeCacheMap = new ConcurrentHashMap<>(2);
+    private final Map<LocationFileKey, LocationColumns> locationColumnsCache = new HashMap<>(4);
+    private final Set<File> checkpointFileSet = Collections.synchronizedSet(new LinkedHashSet<>());
 
     public FromCsvLocationsToVrpGenerator(DataSource dataSource) {
+        this(dataSource.loadCatalogue());
+    }
+
+    /**
+     * @param dataSource never null, determines the location file layout and the output directory
+     * @param osmPath null if no road distances are generated
+     * @param graphHopperLocation never null if osmPath is not null, the store directory of the
+     * {@link GraphHopperStoreManager}
+     */
+    public FromCsvLocationsToVrpGenerator(DataSource dataSource, String osmPath, String graphHopperLocation) {
+        this(dataSource.loadCatalogue(), osmPath, graphHopperLocation);
+    }
+
+    public FromCsvLocationsToVrpGenerator(DatasetCatalogue catalogue) {
+        this(catalogue, catalogue.getOsmPath(), catalogue.getGraphHopperLocation());
+    }
+
+    /**
+     * @param catalogue never null, determines the location file layout, the output directory and the datasets
+     * @param osmPath null if no road distances are generated
+     * @param graphHopperLocation never null if osmPath is not null, the store directory of the
+     * {@link GraphHopperStoreManager}
+     */
+    public FromCsvLocationsToVrpGenerator(DatasetCatalogue catalogue, String osmPath, String graphHopperLocation) {
+        this(catalogue, osmPath, graphHopperLocation, catalogue.getPreparationProfile());
+    }
+
+    /**
+     * @param catalogue never null, determines the location file layout, the output directory and the datasets
+     * @param osmPath null if no road distances are generated
+     * @param graphHopperLocation never null if osmPath is not null, the store directory of the
+     * {@link GraphHopperStoreManager}
+     * @param preparationProfile never null, overrides the one of the catalogue
+     */
+    public FromCsvLocationsToVrpGenerator(DatasetCatalogue catalogue, String osmPath, String graphHopperLocation,
+            PreparationProfile preparationProfile) {
         vehicleRoutingFileIO = new VehicleRoutingFileIO();
-        this.dataSource = dataSource;
+        this.catalogue = catalogue;
+        this.osmPath = osmPath;
+        this.preparationProfile = preparationProfile;
+        tileSize = catalogue.getTileSize();
 
-        String osmPath = dataSource.getOsmPath();
         if (osmPath == null) {
             graphHopper = null;
             return;
         }
-        if (!new File(osmPath).exists()) {
-            throw new IllegalStateException("The osmPath (" + osmPath + ") does not exist.\n" +
-                    "Download the osm file from http://download.geofabrik.de/ first.");
-        }
-        graphHopper = (GraphHopperOSM) new GraphHopperOSM().forServer();
-        graphHopper.setOSMFile(osmPath);
-        graphHopper.setGraphHopperLocation("local/graphHopper/" + dataSource.name());
-        graphHopper.setEncodingManager(new EncodingManager("car"));
-        logger.info("graphHopper loading...");
-        graphHopper.importOrLoad();
-        logger.info("graphHopper loaded.");
+        graphHopper = GraphHopperStoreManager.getInstance().load(osmPath, graphHopperLocation, "car",
+                preparationProfile);
+    }
+
+    public File getOutputDir() {
+        return outputDir;
+    }
+
+    public void setOutputDir(File outputDir) {
+        this.outputDir = outputDir;
+    }
+
+    public File getTspOutputDir() {
+        return tspOutputDir;
+    }
+
+    public void setTspOutputDir(File tspOutputDir) {
+        this.tspOutputDir = tspOutputDir;
+    }
+
+    public int getBatchThreadCount() {
+        return batchThreadCount;
+    }
+
+    public void setBatchThreadCount(int batchThreadCount) {
+        this.batchThreadCount = batchThreadCount;
+    }
+
+    public long getBatchMemoryBudget() {
+        return batchMemoryBudget;
+    }
+
+    public void setBatchMemoryBudget(long batchMemoryBudget) {
+        this.batchMemoryBudget = batchMemoryBudget;
+    }
+
+    public int getMatrixThreadCount() {
+        return matrixThreadCount;
+    }
+
+    public void setMatrixThreadCount(int matrixThreadCount) {
+        this.matrixThreadCount = matrixThreadCount;
+    }
+
+    public boolean isOneToManyEnabled() {
+        return oneToManyEnabled;
+    }
+
+    public void setOneToManyEnabled(boolean oneToManyEnabled) {
+        this.oneToManyEnabled = oneToManyEnabled;
+    }
+
+    public Double getSymmetricRoadTolerance() {
+        return symmetricRoadTolerance;
+    }
+
+    public void setSymmetricRoadTolerance(Double symmetricRoadTolerance) {
+        this.symmetricRoadTolerance = symmetricRoadTolerance;
+    }
+
+    public Integer getTileSize() {
+        return tileSize;
+    }
+
+    public void setTileSize(Integer tileSize) {
+        this.tileSize = tileSize;
+    }
+
+    public File getRouteCacheDir() {
+        return routeCacheDir;
+    }
+
+    public void setRouteCacheDir(File routeCacheDir) {
+        this.routeCacheDir = routeCacheDir;
+    }
+
+    public double getHubSnappingTolerance() {
+        return hubSnappingTolerance;
+    }
+
+    public void setHubSnappingTolerance(double hubSnappingTolerance) {
+        this.hubSnappingTolerance = hubSnappingTolerance;
+    }
+
+    public boolean isMultiMetricEnabled() {
+        return multiMetricEnabled;
+    }
+
+    public void setMultiMetricEnabled(boolean multiMetricEnabled) {
+        this.multiMetricEnabled = multiMetricEnabled;
+    }
+
+    public BinaryMatrixValueType getBinaryMatrixValueType() {
+        return binaryMatrixValueType;
+    }
+
+    public void setBinaryMatrixValueType(BinaryMatrixValueType binaryMatrixValueType) {
+        this.binaryMatrixValueType = binaryMatrixValueType;
+    }
+
+    public File getOffHeapMatrixDir() {
+        return offHeapMatrixDir;
+    }
+
+    public void setOffHeapMatrixDir(File offHeapMatrixDir) {
+        this.offHeapMatrixDir = offHeapMatrixDir;
+    }
+
+    public File getOffHeapLocationDir() {
+        return offHeapLocationDir;
+    }
+
+    public void setOffHeapLocationDir(File offHeapLocationDir) {
+        this.offHeapLocationDir = offHeapLocationDir;
+    }
+
+    public File getCheckpointDir() {
+        return checkpointDir;
+    }
+
+    public void setCheckpointDir(File checkpointDir) {
+        this.checkpointDir = checkpointDir;
     }
 
     public void generate() {
-        switch (dataSource) {
-            case BELGIUM:
-                File belgiumLocationFile = new File("data/raw/belgium-2750.csv");
-                File belgiumHubFile = new File("data/raw/belgium-hubs.txt");
-                generateVrp(belgiumLocationFile, belgiumHubFile, 50, 1, 10, 125);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 50, 2, 10, 125);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 100, 1, 10, 250);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 100, 3, 10, 250);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 500, 1, 20, 250);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 500, 5, 20, 250);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 1000, 1, 20, 500);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 1000, 8, 20, 500);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 2750, 1, 55, 500);
-                generateVrp(belgiumLocationFile, belgiumHubFile, 2750, 10, 55, 500);
-                break;
-            case USA:
-                File usaLocationFile = new File("data/raw/usa-115475.csv");
-                generateVrp(usaLocationFile, null, 1000, 1, 10, 1000);
-                generateVrp(usaLocationFile, null, 5000, 1, 50, 1000);
-                generateVrp(usaLocationFile, null, 10000, 1, 100, 1000);
-                generateVrp(usaLocationFile, null, 50000, 1, 500, 1000);
-                generateVrp(usaLocationFile, null, 100000, 1, 1000, 1000);
-                break;
-            case UK_TEAMS:
-                generateVrp(new File("local/data/raw/uk-teams-41.csv"), null, 41, 1, 10, 125);
-                generateVrp(new File("local/data/raw/uk-teams-92.csv"), null, 92, 1, 10, 250);
-                generateVrp(new File("local/data/raw/uk-teams-160.csv"), null, 160, 1, 12, 250);
-                generateVrp(new File("local/data/raw/uk-teams-201.csv"), null, 201, 1, 14, 250);
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported dataSource (" + dataSource + ").");
+        try {
+            generateCatalogue();
+        } finally {
+            closeRouteCaches();
+        }
+        // Only delete the checkpoints when every vrp file has been written
+        deleteCheckpoints();
+    }
+
+    public DatasetCatalogue getCatalogue() {
+        return catalogue;
+    }
+
+    private void generateCatalogue() {
+        if (graphHopper == null) {
+            for (VrpVariant vrpVariant : catalogue.getVariantList()) {
+                if (vrpVariant.getDistanceType().isRoad()) {
+                    throw new IllegalStateException("The catalogue (" + catalogue + ")'s vrpVariant (" + vrpVariant
+                            + ") has road distances, but there is no osmPath (" + osmPath + ").");
+                }
+            }
+        }
+        List<VrpDataset> datasetList = catalogue.getDatasetList();
+        if (batchThreadCount == 1) {
+            for (VrpDataset dataset : datasetList) {
+                generateVrp(dataset);
+            }
+        } else {
+            generateConcurrently(datasetList);
+        }
+    }
+
+    /**
+     * Expands the catalogue into a graph of read, select, matrix and write tasks and runs it
+     * on a {@link GenerationScheduler} with the batchThreadCount and batchMemoryBudget.
+     * Every location file and hub file is read once,
+     * every road matrix is calculated once per weighting and shared by all variants written from it.
+     * @param datasetList never null
+     */
+    public void generateConcurrently(List<VrpDataset> datasetList) {
+        List<GenerationTask<?>> taskList = new ArrayList<>();
+        Map<File, GenerationTask<LocationColumns>> readTaskMap = new HashMap<>();
+        Map<File, GenerationTask<List<HubSegmentLocation>>> hubReadTaskMap = new HashMap<>();
+        for (VrpDataset dataset : datasetList) {
+            File locationFile = dataset.getLocationFile();
+            int locationListSize = dataset.getLocationListSize();
+            GenerationTask<LocationColumns> readTask = readTaskMap.computeIfAbsent(locationFile, file
+                    -> addTask(taskList, new GenerationTask<>("read " + file.getName(),
+                    offHeapLocationDir != null ? 0L : file.length() * LOCATION_COLUMNS_MEMORY_FACTOR,
+                    locationListSize,
+                    () -> readLocationColumns(file))));
+
+            List<VrpVariant> airVariantList = filterAirVariants(dataset);
+            if (!airVariantList.isEmpty()) {
+                GenerationTask<LocationSelection> airSelectTask = addSelectTask(taskList, dataset, readTask, null);
+                for (VrpVariant vrpVariant : airVariantList) {
+                    addWriteTask(taskList, dataset, vrpVariant, locationListSize, null, airSelectTask, null);
+                }
+            }
+            for (List<VrpVariant> weightingVariantList : groupRoadVariantsByWeighting(filterRoadVariants(dataset))) {
+                GenerationDistanceType distanceType = weightingVariantList.get(0).getDistanceType();
+                GenerationTask<LocationSelection> roadSelectTask = addSelectTask(taskList, dataset, readTask, null);
+                long matrixMemoryUsage = offHeapMatrixDir != null ? 0L
+                        : (long) locationListSize * locationListSize * ROUTE_MATRIX_ENTRY_MEMORY_USAGE;
+                GenerationTask<RouteMatrix> matrixTask = addTask(taskList, new GenerationTask<>(
+                        "matrix " + dataset + " " + distanceType.getWeightingName(),
+                        matrixMemoryUsage, (long) locationListSize * locationListSize,
+                        () -> calculateRouteMatrix(toLocationList(roadSelectTask.getResult(), distanceType),
+                                distanceType),
+                        RouteMatrix::close, roadSelectTask));
+                for (VrpVariant vrpVariant : weightingVariantList) {
+                    addWriteTask(taskList, dataset, vrpVariant, (long) locationListSize * locationListSize,
+                            null, roadSelectTask, matrixTask);
+                }
+            }
+            File hubFile = dataset.getHubFile();
+            List<VrpVariant> segmentedVariantList = filterSegmentedVariants(dataset);
+            if (!segmentedVariantList.isEmpty()) {
+                GenerationTask<List<HubSegmentLocation>> hubReadTask = hubReadTaskMap.computeIfAbsent(hubFile, file
+                        -> addTask(taskList, new GenerationTask<>("read " + file.getName(),
+                        file.length() * LOCATION_FILE_MEMORY_FACTOR, 1L,
+                        () -> readHubList(file, GenerationDistanceType.SEGMENTED_ROAD_DISTANCE_KM))));
+                // The location ids start after the hub ids
+                GenerationTask<LocationSelection> segmentedSelectTask = addSelectTask(taskList, dataset,
+                        readTask, hubReadTask);
+                for (VrpVariant vrpVariant : segmentedVariantList) {
+                    // Upper bound: the segmented matrix is usually far smaller than a full matrix
+                    addWriteTask(taskList, dataset, vrpVariant,
+                            (long) locationListSize * locationListSize,
+                            hubReadTask, segmentedSelectTask, null);
+                }
+            }
         }
+        new GenerationScheduler(batchThreadCount, batchMemoryBudget).run(taskList);
+    }
+
+    private static <Result_> GenerationTask<Result_> addTask(List<GenerationTask<?>> taskList,
+            GenerationTask<Result_> task) {
+        taskList.add(task);
+        return task;
+    }
+
+    /**
+     * @param hubReadTask null if the location ids don't start after the hub ids
+     */
+    private GenerationTask<LocationSelection> addSelectTask(List<GenerationTask<?>> taskList, VrpDataset dataset,
+            GenerationTask<LocationColumns> readTask, GenerationTask<List<HubSegmentLocation>> hubReadTask) {
+        int locationListSize = dataset.getLocationListSize();
+        String name = "select " + dataset + (hubReadTask == null ? "" : " after hubs");
+        long memoryUsage = locationListSize * SELECTED_LOCATION_MEMORY_USAGE;
+        if (hubReadTask == null) {
+            return addTask(taskList, new GenerationTask<>(name, memoryUsage, locationListSize,
+                    () -> selectLocations(dataset, readTask.getResult(), 0L),
+                    readTask));
+        }
+        return addTask(taskList, new GenerationTask<>(name, memoryUsage, locationListSize,
+                () -> selectLocations(dataset, readTask.getResult(), hubReadTask.getResult().size()),
+                readTask, hubReadTask));
+    }
+
+    /**
+     * @param hubReadTask null if the variant is not segmented
+     * @param matrixTask null if the variant doesn't have a full road matrix
+     */
+    private void addWriteTask(List<GenerationTask<?>> taskList, VrpDataset dataset, VrpVariant vrpVariant,
+            long workload, GenerationTask<List<HubSegmentLocation>> hubReadTask,
+            GenerationTask<LocationSelection> selectTask, GenerationTask<RouteMatrix> matrixTask) {
+        GenerationDistanceType distanceType = vrpVariant.getDistanceType();
+        long memoryUsage = distanceType.isSegmented()
+                ? (long) dataset.getLocationListSize() * dataset.getLocationListSize() * SEGMENTED_MATRIX_ENTRY_MEMORY_USAGE
+                : 0L;
+        List<GenerationTask<?>> dependencyList = new ArrayList<>(3);
+        dependencyList.add(selectTask);
+        if (hubReadTask != null) {
+            dependencyList.add(hubReadTask);
+        }
+        if (matrixTask != null) {
+            dependencyList.add(matrixTask);
+        }
+        addTask(taskList, new GenerationTask<Void>("write " + dataset + " " + vrpVariant, memoryUsage, workload,
+                () -> {
+                    writeVrp(dataset.getLocationFile(), dataset.getLocationListSize(), dataset.getDepotListSize(),
+                            dataset.getVehicleListSize(), dataset.getCapacity(),
+                            distanceType, vrpVariant.getVrpType(),
+                            hubReadTask == null ? Collections.emptyList() : hubReadTask.getResult(),
+                            selectTask.getResult(), matrixTask == null ? null : matrixTask.getResult());
+                    return null;
+                }, dependencyList.toArray(new GenerationTask<?>[0])));
     }
 
     public void generateVrp(File locationFile, File hubFile, int locationListSize, int depotListSize, int vehicleListSize, int capacity) {
-        generateVrp(locationFile, null, locationListSize, depotListSize, vehicleListSize, capacity, GenerationDistanceType.AIR_DISTANCE, VrpType.BASIC);
-        generateVrp(locationFile, null, locationListSize, depotListSize, vehicleListSize, capacity, GenerationDistanceType.AIR_DISTANCE, VrpType.TIMEWINDOWED);
-        if (dataSource != DataSource.USA) {
-            generateVrp(locationFile, null, locationListSize, depotListSize, vehicleListSize, capacity, GenerationDistanceType.ROAD_DISTANCE_KM, VrpType.BASIC);
-            // Road distance with timewindowed is pointless
-            generateVrp(locationFile, null, locationListSize, depotListSize, vehicleListSize, capacity, GenerationDistanceType.ROAD_DISTANCE_TIME, VrpType.BASIC);
-            generateVrp(locationFile, null, locationListSize, depotListSize, vehicleListSize, capacity, GenerationDistanceType.ROAD_DISTANCE_TIME, VrpType.TIMEWINDOWED);
+        generateVrp(new VrpDataset(locationFile, hubFile, locationListSize, depotListSize, vehicleListSize, capacity));
+    }
+
+    /**
+     * Writes the dataset in every variant of the catalogue.
+     * @param dataset never null
+     */
+    public void generateVrp(VrpDataset dataset) {
+        for (VrpVariant vrpVariant : filterAirVariants(dataset)) {
+            generateVrp(dataset, vrpVariant.getDistanceType(), vrpVariant.getVrpType());
+        }
+        List<VrpVariant> roadVariantList = filterRoadVariants(dataset);
+        if (multiMetricEnabled) {
+            generateVrpPerWeighting(dataset, roadVariantList);
+        } else {
+            for (VrpVariant vrpVariant : roadVariantList) {
+                generateVrp(dataset, vrpVariant.getDistanceType(), vrpVariant.getVrpType());
+            }
+        }
+        // The depots are the first locations of the segmented matrix, so multidepot is supported too
+        for (VrpVariant vrpVariant : filterSegmentedVariants(dataset)) {
+            generateVrp(dataset, vrpVariant.getDistanceType(), vrpVariant.getVrpType());
+        }
+    }
+
+    private List<VrpVariant> filterAirVariants(VrpDataset dataset) {
+        return catalogue.getVariantList().stream()
+                .filter(vrpVariant -> !vrpVariant.getDistanceType().isRoad() && vrpVariant.isApplicable(dataset))
+                .collect(Collectors.toList());
+    }
+
+    private List<VrpVariant> filterRoadVariants(VrpDataset dataset) {
+        return catalogue.getVariantList().stream()
+                .filter(vrpVariant -> vrpVariant.getDistanceType().isRoad()
+                        && !vrpVariant.getDistanceType().isSegmented() && vrpVariant.isApplicable(dataset))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return empty if the dataset has no hub file
+     */
+    private List<VrpVariant> filterSegmentedVariants(VrpDataset dataset) {
+        if (dataset.getHubFile() == null) {
+            return Collections.emptyList();
+        }
+        return catalogue.getVariantList().stream()
+                .filter(vrpVariant -> vrpVariant.getDistanceType().isSegmented() && vrpVariant.isApplicable(dataset))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @param vrpVariantList never null, only non segmented road distance types
+     * @return never null, in the order of the first variant of every weighting
+     */
+    private Collection<List<VrpVariant>> groupRoadVariantsByWeighting(List<VrpVariant> vrpVariantList) {
+        Map<String, List<VrpVariant>> weightingToVariantListMap = new LinkedHashMap<>(2);
+        for (VrpVariant vrpVariant : vrpVariantList) {
+            GenerationDistanceType distanceType = vrpVariant.getDistanceType();
+            if (!distanceType.isRoad() || distanceType.isSegmented()) {
+                throw new IllegalArgumentException("The vrpVariant (" + vrpVariant
+                        + ") does not have a full road matrix.");
+            }
+            weightingToVariantListMap.computeIfAbsent(distanceType.getWeightingName(), k -> new ArrayList<>())
+                    .add(vrpVariant);
         }
-        if (hubFile != null && depotListSize == 1) {
-            generateVrp(locationFile, hubFile, locationListSize, depotListSize, vehicleListSize, capacity, GenerationDistanceType.SEGMENTED_ROAD_DISTANCE_KM, VrpType.BASIC);
-            generateVrp(locationFile, hubFile, locationListSize, depotListSize, vehicleListSize, capacity, GenerationDistanceType.SEGMENTED_ROAD_DISTANCE_TIME, VrpType.BASIC);
+        return weightingToVariantListMap.values();
+    }
+
+    /**
+     * Routes once per weighting and writes every variant with that weighting from the same {@link RouteMatrix}.
+     * @param vrpVariantList never null, only non segmented road distance types
+     */
+    public void generateVrpPerWeighting(File locationFile, int locationListSize, int depotListSize, int vehicleListSize, int capacity,
+            List<VrpVariant> vrpVariantList) {
+        generateVrpPerWeighting(new VrpDataset(locationFile, null, locationListSize, depotListSize, vehicleListSize,
+                capacity), vrpVariantList);
+    }
+
+    /**
+     * Routes once per weighting and writes every variant with that weighting from the same {@link RouteMatrix}.
+     * @param vrpVariantList never null, only non segmented road distance types
+     */
+    public void generateVrpPerWeighting(VrpDataset dataset, List<VrpVariant> vrpVariantList) {
+        for (List<VrpVariant> weightingVariantList : groupRoadVariantsByWeighting(vrpVariantList)) {
+            GenerationDistanceType firstDistanceType = weightingVariantList.get(0).getDistanceType();
+            LocationSelection selection = selectLocations(dataset, readLocationColumns(dataset.getLocationFile()), 0L);
+            RouteMatrix routeMatrix = calculateRouteMatrix(toLocationList(selection, firstDistanceType),
+                    firstDistanceType);
+            try {
+                for (VrpVariant vrpVariant : weightingVariantList) {
+                    writeVrp(dataset.getLocationFile(), dataset.getLocationListSize(), dataset.getDepotListSize(),
+                            dataset.getVehicleListSize(), dataset.getCapacity(),
+                            vrpVariant.getDistanceType(), vrpVariant.getVrpType(),
+                            Collections.emptyList(), selection, routeMatrix);
+                }
+            } finally {
+                IOUtils.closeQuietly(routeMatrix);
+            }
         }
     }
 
     public void generateVrp(File locationFile, File hubFile, int locationListSize, int depotListSize, int vehicleListSize, int capacity,
             GenerationDistanceType distanceType, VrpType vrpType) {
+        generateVrp(new VrpDataset(locationFile, hubFile, locationListSize, depotListSize, vehicleListSize, capacity),
+                distanceType, vrpType);
+    }
+
+    public void generateVrp(VrpDataset dataset, GenerationDistanceType distanceType, VrpType vrpType) {
+        List<HubSegmentLocation> hubList = readHubList(dataset.getHubFile(), distanceType);
+        // The location ids start after the hub ids
+        LocationSelection selection = selectLocations(dataset, readLocationColumns(dataset.getLocationFile()),
+                hubList.size());
+        writeVrp(dataset.getLocationFile(), dataset.getLocationListSize(), dataset.getDepotListSize(),
+                dataset.getVehicleListSize(), dataset.getCapacity(), distanceType, vrpType,
+                hubList, selection, null);
+    }
+
+    /**
+     * Only creates a {@link Location} instance per location for road distances, which need them to route.
+     * @param routeMatrix null if the road distances still need to be calculated
+     */
+    private void writeVrp(File locationFile, int locationListSize, int depotListSize, int vehicleListSize, int capacity,
+            GenerationDistanceType distanceType, VrpType vrpType,
+            List<HubSegmentLocation> hubList, LocationSelection selection, RouteMatrix routeMatrix) {
         // WARNING: this code is DIRTY.
         // It's JUST good enough to generate the Belgium an UK datasets.
         String name = locationFile.getName().replaceAll("\\-\\d+\\.csv", "")
@@ -145,29 +718,71 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
                 + (depotListSize != 1 ? "-d" + depotListSize : "")
                 + "-n" + locationListSize + "-k" + vehicleListSize;
         File vrpOutputFile = createVrpOutputFile(name, distanceType, vrpType, depotListSize != 1);
-        List<HubSegmentLocation> hubList = readHubList(hubFile, distanceType);
-        List<Location> locationList = selectLocationSubList(locationFile, locationListSize, depotListSize, hubList.size(), distanceType);
-        BufferedWriter vrpWriter = null;
+        // The TSP name drops the vehicle count, like the FromVrpToTspConverter does
+        String tspName = name.substring(0, name.length() - ("-k" + vehicleListSize).length());
+        FixedPrecisionWriter vrpWriter = null;
+        FixedPrecisionWriter tspWriter = null;
+        BinaryMatrixWriter binaryMatrixWriter = null;
         try {
-            vrpWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(vrpOutputFile), "UTF-8"));
-            vrpWriter = writeHeaders(vrpWriter, locationListSize, capacity, distanceType, vrpType, name);
+            vrpWriter = FixedPrecisionWriter.open(vrpOutputFile, 3);
+            if (binaryMatrixValueType != null && distanceType.isRoad() && !distanceType.isSegmented()) {
+                binaryMatrixWriter = createBinaryMatrixWriter(vrpOutputFile, distanceType, selection);
+            }
+            vrpWriter = writeHeaders(vrpWriter, locationListSize, capacity, distanceType, vrpType, name, false);
             writeHubCoordSection(vrpWriter, distanceType, hubList);
-            writeNodeCoordSection(vrpWriter, locationList);
-            writeEdgeWeightSection(vrpWriter, distanceType, hubList, locationList);
-            writeDemandSection(vrpWriter, locationListSize, depotListSize, vehicleListSize, capacity, locationList, vrpType);
-            writeDepotSection(vrpWriter, locationList, depotListSize);
+            File tspOutputFile = null;
+            if (isTspWritten(distanceType, vrpType, depotListSize)) {
+                tspOutputFile = createTspOutputFile(tspName, distanceType);
+                tspWriter = FixedPrecisionWriter.open(tspOutputFile, 3);
+                writeHeaders(tspWriter, locationListSize, capacity, distanceType, vrpType, tspName, true);
+                vrpWriter.startMirror(tspWriter);
+            }
+            writeNodeCoordSection(vrpWriter, selection);
+            if (distanceType.isRoad()) {
+                writeEdgeWeightSection(vrpWriter, binaryMatrixWriter, distanceType, hubList,
+                        toLocationList(selection, distanceType), routeMatrix);
+            } else {
+                checkAirDistances(selection);
+            }
+            if (tspWriter != null) {
+                vrpWriter.stopMirror();
+                tspWriter.write("EOF\n");
+                tspWriter.close();
+                logger.info("Generated: {}", tspOutputFile);
+            }
+            writeDemandSection(vrpWriter, locationListSize, depotListSize, vehicleListSize, capacity, selection, vrpType);
+            writeDepotSection(vrpWriter, selection, depotListSize);
+            if (binaryMatrixWriter != null) {
+                // Close it explicitly, because that verifies that the matrix is complete
+                binaryMatrixWriter.close();
+                logger.info("Generated: {}", binaryMatrixWriter.getFile());
+            }
         } catch (IOException e) {
             throw new IllegalArgumentException("Could not read the locationFile (" + locationFile.getName()
                     + ") or write the vrpOutputFile (" + vrpOutputFile.getName() + ").", e);
         } finally {
             IOUtils.closeQuietly(vrpWriter);
+            IOUtils.closeQuietly(tspWriter);
+            IOUtils.closeQuietly(binaryMatrixWriter);
         }
+        flushRouteCaches();
         logger.info("Generated: {}", vrpOutputFile);
     }
 
+    private BinaryMatrixWriter createBinaryMatrixWriter(File vrpOutputFile, GenerationDistanceType distanceType,
+            LocationSelection selection) throws IOException {
+        File binaryMatrixFile = new File(vrpOutputFile.getParentFile(),
+                vrpOutputFile.getName().replaceAll("\\.vrp$", "." + BinaryMatrixWriter.FILE_EXTENSION));
+        long[] ids = new long[selection.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = selection.getId(i);
+        }
+        return new BinaryMatrixWriter(binaryMatrixFile, ids, binaryMatrixValueType, 3,
+                distanceType.getUnitOfMeasurement());
+    }
+
     private File createVrpOutputFile(String name, GenerationDistanceType distanceType, VrpType vrpType, boolean multidepot) {
-        String dataSourceDir = dataSource.getDirName();
-        File vrpOutputFile = new File("data/vehiclerouting/import/" + dataSourceDir
+        File vrpOutputFile = new File(outputDir, catalogue.getName()
                 + "/" + vrpType.getDirName(multidepot)
                 + "/" + distanceType.getDirName()
                 + "/" + name + ".vrp");
@@ -178,20 +793,35 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
         return vrpOutputFile;
     }
 
-    private BufferedWriter writeHeaders(BufferedWriter vrpWriter, int locationListSize, int capacity,
-            GenerationDistanceType distanceType, VrpType vrpType, String name) throws IOException {
+    /**
+     * The TSP file is a basic vrp file without the vehicles: same as the FromVrpToTspConverter output.
+     */
+    private boolean isTspWritten(GenerationDistanceType distanceType, VrpType vrpType, int depotListSize) {
+        return tspOutputDir != null && vrpType == VrpType.BASIC && depotListSize == 1 && !distanceType.isSegmented();
+    }
+
+    private File createTspOutputFile(String tspName, GenerationDistanceType distanceType) throws IOException {
+        File tspOutputFile = new File(tspOutputDir, catalogue.getName()
+                + "/" + distanceType.getDirName()
+                + "/" + tspName + ".tsp");
+        FileUtils.forceMkdir(tspOutputFile.getParentFile());
+        return tspOutputFile;
+    }
+
+    /**
+     * @param tsp true for the header of a TSP file, which has no capacity
+     */
+    private FixedPrecisionWriter writeHeaders(FixedPrecisionWriter vrpWriter, int locationListSize, int capacity,
+            GenerationDistanceType distanceType, VrpType vrpType, String name, boolean tsp) throws IOException {
         vrpWriter.write("NAME: " + name + "\n");
-        if (dataSource == DataSource.UK_TEAMS) {
-            vrpWriter.write("COMMENT: Generated"
-                    + (distanceType == GenerationDistanceType.AIR_DISTANCE ? "" : " with GraphHopper")
-                    + " by Graham Kendall, Geoffrey De Smet, Nasser Sabar and Angelina Yee.\n");
-        } else {
-            vrpWriter.write("COMMENT: Generated for OptaPlanner Examples"
-                    + (distanceType == GenerationDistanceType.AIR_DISTANCE ? "" : " with GraphHopper")
-                    + " by Geoffrey De Smet.\n");
-            vrpWriter.write("COMMENT: https://www.optaplanner.org/community/research.html\n");
+        vrpWriter.write("COMMENT: Generated"
+                + (catalogue.getGeneratedFor() == null ? "" : " for " + catalogue.getGeneratedFor())
+                + (distanceType == GenerationDistanceType.AIR_DISTANCE ? "" : " with GraphHopper")
+                + (catalogue.getAuthor() == null ? "" : " by " + catalogue.getAuthor()) + ".\n");
+        for (String comment : catalogue.getCommentList()) {
+            vrpWriter.write("COMMENT: " + comment + "\n");
         }
-        vrpWriter.write("TYPE: " + vrpType.getHeaderType() +"\n");
+        vrpWriter.write("TYPE: " + (tsp ? "TSP" : vrpType.getHeaderType()) +"\n");
         vrpWriter.write("DIMENSION: " + locationListSize + "\n");
         if (distanceType.isRoad()) {
             if (distanceType.isSegmented()) {
@@ -205,11 +835,13 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
         } else {
             vrpWriter.write("EDGE_WEIGHT_TYPE: EUC_2D\n");
         }
-        vrpWriter.write("CAPACITY: " + capacity + "\n");
+        if (!tsp) {
+            vrpWriter.write("CAPACITY: " + capacity + "\n");
+        }
         return vrpWriter;
     }
 
-    private void writeHubCoordSection(BufferedWriter vrpWriter, GenerationDistanceType distanceType, List<HubSegmentLocation> hubList) throws IOException {
+    private void writeHubCoordSection(FixedPrecisionWriter vrpWriter, GenerationDistanceType distanceType, List<HubSegmentLocation> hubList) throws IOException {
         if (!distanceType.isSegmented()) {
             return;
         }
@@ -221,247 +853,779 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
         }
     }
 
-    private List<Location> selectLocationSubList(File locationFile, int locationListSize, int depotListSize, long startId, GenerationDistanceType distanceType) {
-        List<AirLocation> airLocationList = readAirLocationFile(locationFile, startId);
-        if (locationListSize > airLocationList.size()) {
+    /**
+     * @param dataset never null, its depot names (if any) are selected as depots, like when generating it
+     */
+    List<Location> selectLocationSubList(VrpDataset dataset, long startId, GenerationDistanceType distanceType) {
+        return toLocationList(selectLocations(dataset, readLocationColumns(dataset.getLocationFile()), startId),
+                distanceType);
+    }
+
+    List<Location> selectLocationSubList(File locationFile, int locationListSize, int depotListSize, long startId, GenerationDistanceType distanceType) {
+        return toLocationList(selectLocations(readLocationColumns(locationFile), startId,
+                locationListSize, depotListSize, null), distanceType);
+    }
+
+    /**
+     * @param columns never null, not modified, so it can be shared by concurrent selections
+     * @param startId the id of the first location, unless the location file layout has an id column
+     */
+    private LocationSelection selectLocations(VrpDataset dataset, LocationColumns columns, long startId) {
+        return selectLocations(columns, startId, dataset.getLocationListSize(), dataset.getDepotListSize(),
+                dataset.getDepotNameList());
+    }
+
+    /**
+     * Selects by index, so no location is copied.
+     * @param columns never null, not modified
+     * @param startId the id of the first location, unless the location file layout has an id column
+     * @param depotNameList null to use the first locations as depots
+     */
+    private LocationSelection selectLocations(LocationColumns columns, long startId,
+            int locationListSize, int depotListSize, List<String> depotNameList) {
+        if (locationListSize > columns.size()) {
             throw new IllegalArgumentException("The locationListSize (" + locationListSize
-                    + ") is larger than the airLocationList size (" + airLocationList.size() + ").");
-        }
-        List<Location> newLocationList = new ArrayList<Location>(locationListSize);
-        if (locationFile.getName().contains("belgium")) {
-            // Extract the depot's to the beginning of the list first
-            switch (depotListSize) {
-                case 1:
-                    extractLocation(airLocationList, newLocationList, "BRUSSEL", distanceType);
-                    break;
-                case 10:
-                    extractLocation(airLocationList, newLocationList, "WAVRE", distanceType);
-                case 9:
-                    extractLocation(airLocationList, newLocationList, "LEUVEN", distanceType);
-                case 8:
-                    extractLocation(airLocationList, newLocationList, "MONS", distanceType);
-                case 7:
-                    extractLocation(airLocationList, newLocationList, "ANTWERPEN", distanceType);
-                case 6:
-                    extractLocation(airLocationList, newLocationList, "LIEGE", distanceType);
-                case 5:
-                    extractLocation(airLocationList, newLocationList, "BRUGGE", distanceType);
-                case 4:
-                    extractLocation(airLocationList, newLocationList, "ARLON", distanceType);
-                case 3:
-                    extractLocation(airLocationList, newLocationList, "HASSELT", distanceType);
-                case 2:
-                    extractLocation(airLocationList, newLocationList, "GENT", distanceType);
-                    extractLocation(airLocationList, newLocationList, "NAMUR", distanceType);
-                    break;
-                default:
-                    throw new IllegalArgumentException("The depotListSize (" + depotListSize + ") is not supported");
+                    + ") is larger than the location file size (" + columns.size() + ").");
+        }
+        int[] indexes = new int[locationListSize];
+        int selectedCount = 0;
+        boolean[] depots = new boolean[columns.size()];
+        // Extract the depot's to the beginning of the list first
+        if (depotNameList != null) {
+            for (String depotName : depotNameList) {
+                int index = indexOfName(columns, depots, depotName);
+                depots[index] = true;
+                indexes[selectedCount] = index;
+                selectedCount++;
             }
         } else {
-            newLocationList.add(copyLocation(airLocationList.remove(0), distanceType));
+            for (int index = 0; index < depotListSize; index++) {
+                depots[index] = true;
+                indexes[selectedCount] = index;
+                selectedCount++;
+            }
         }
+        int remainingListSize = columns.size() - selectedCount;
 
         int customerListSize = locationListSize - depotListSize;
         double selection = customerListSize;
-        double selectionDecrement = (double) customerListSize / airLocationList.size();
+        double selectionDecrement = (double) customerListSize / remainingListSize;
         if (depotListSize == 1) {
             // HACK to avoid changing to single depot datasets generated 3 years ago
-            selectionDecrement = (double) locationListSize / (airLocationList.size() + depotListSize);
+            selectionDecrement = (double) locationListSize / (remainingListSize + depotListSize);
             selection = locationListSize - selectionDecrement;
         }
-        for (AirLocation airLocation : airLocationList) {
+        for (int index = 0; index < columns.size(); index++) {
+            if (depots[index]) {
+                continue;
+            }
             double newSelection = selection - selectionDecrement;
             // Only if the sum of the selectionDecrements flow over 1.0, select it
             if ((int) newSelection < (int) selection) {
-                newLocationList.add(copyLocation(airLocation, distanceType));
+                if (selectedCount == locationListSize) {
+                    throw new IllegalStateException("The selection exceeds the locationListSize ("
+                            + locationListSize + ").");
+                }
+                indexes[selectedCount] = index;
+                selectedCount++;
             }
             selection = newSelection;
         }
-        if (newLocationList.size() != locationListSize) {
-            throw new IllegalStateException("The newLocationList size (" + newLocationList.size()
+        if (selectedCount != locationListSize) {
+            throw new IllegalStateException("The selectedCount (" + selectedCount
                     + ") is not locationListSize (" + locationListSize + ").");
         }
-        return newLocationList;
+        return new LocationSelection(columns, indexes, startId);
     }
 
-    private void extractLocation(List<AirLocation> airLocationList, List<Location> newLocationList, String name, GenerationDistanceType distanceType) {
-        AirLocation airLocation = airLocationList.stream().filter(location -> location.getName().equals(name)).findFirst().get();
-        airLocationList.remove(airLocation);
-        newLocationList.add(copyLocation(airLocation, distanceType));
+    /**
+     * @return the lowest index with that name that is not a depot yet
+     */
+    private int indexOfName(LocationColumns columns, boolean[] depots, String name) {
+        int index = columns.indexOfName(name);
+        if (index >= 0 && depots[index]) {
+            // Rare: 2 depots with the same name
+            index = -1;
+            for (int i = 0; i < columns.size(); i++) {
+                if (!depots[i] && name.equals(columns.getName(i))) {
+                    index = i;
+                    break;
+                }
+            }
+        }
+        if (index < 0) {
+            throw new IllegalArgumentException("The depot name (" + name + ") does not exist.");
+        }
+        return index;
     }
 
-    private Location copyLocation(AirLocation location, GenerationDistanceType distanceType) {
-        Location newLocation = distanceType.isRoad() ? (distanceType.isSegmented() ?
-                new RoadSegmentLocation(location.getId(), location.getLatitude(), location.getLongitude())
-                : new RoadLocation(location.getId(), location.getLatitude(), location.getLongitude()))
-                : new AirLocation(location.getId(), location.getLatitude(), location.getLongitude());
-        newLocation.setName(location.getName());
-        return newLocation;
+    /**
+     * @return never null, a new list with a new location per selected location,
+     * in degrees for road distances
+     */
+    private List<Location> toLocationList(LocationSelection selection, GenerationDistanceType distanceType) {
+        LocationFileLayout locationFileLayout = catalogue.getLocationFileLayout();
+        List<Location> locationList = new ArrayList<>(selection.size());
+        for (int i = 0; i < selection.size(); i++) {
+            long id = selection.getId(i);
+            double latitude = distanceType.isRoad() ? locationFileLayout.toDegrees(selection.getLatitude(i))
+                    : selection.getLatitude(i);
+            double longitude = distanceType.isRoad() ? locationFileLayout.toDegrees(selection.getLongitude(i))
+                    : selection.getLongitude(i);
+            Location location = distanceType.isRoad() ? (distanceType.isSegmented() ?
+                    new RoadSegmentLocation(id, latitude, longitude)
+                    : new RoadLocation(id, latitude, longitude))
+                    : new AirLocation(id, latitude, longitude);
+            location.setName(selection.getName(i));
+            locationList.add(location);
+        }
+        return locationList;
     }
 
-    private void writeNodeCoordSection(BufferedWriter vrpWriter, List<Location> locationList) throws IOException {
+    private void writeNodeCoordSection(FixedPrecisionWriter vrpWriter, LocationSelection selection) throws IOException {
         vrpWriter.write("NODE_COORD_SECTION\n");
-        for (Location location : locationList) {
-            vrpWriter.write(location.getId() + " " + location.getLatitude() + " " + location.getLongitude()
-                    + (location.getName() != null ? " " + location.getName().replaceAll(" ", "_") : "") + "\n");
+        for (int i = 0; i < selection.size(); i++) {
+            vrpWriter.writeLong(selection.getId(i));
+            vrpWriter.write(' ');
+            vrpWriter.write(Double.toString(selection.getLatitude(i)));
+            vrpWriter.write(' ');
+            vrpWriter.write(Double.toString(selection.getLongitude(i)));
+            String name = selection.getName(i);
+            if (name != null) {
+                vrpWriter.write(' ');
+                vrpWriter.write(name.replace(' ', '_'));
+            }
+            vrpWriter.write('\n');
         }
     }
 
-    private void writeEdgeWeightSection(BufferedWriter vrpWriter, GenerationDistanceType distanceType, List<HubSegmentLocation> hubList, List<Location> locationList) throws IOException {
-        if (distanceType.isRoad()) {
-            DecimalFormat distanceFormat = new DecimalFormat("0.000");
-            if (!distanceType.isSegmented()) {
-                vrpWriter.write("EDGE_WEIGHT_SECTION\n");
-                for (Location fromLocation : locationList) {
-                    for (Location toLocation : locationList) {
-                        double distance;
-                        if (fromLocation == toLocation) {
-                            distance = 0.0;
-                        } else {
-                            GHResponse response = fetchGhResponse(fromLocation, toLocation, distanceType);
-                            distance = distanceType.extractDistance(response.getBest());
-                            if (distance == 0.0) {
-                                throw new IllegalArgumentException("The fromLocation (" + fromLocation
-                                        + ") and toLocation (" + toLocation + ") have a zero distance.");
-                            }
-                        }
-                        vrpWriter.write(distanceFormat.format(distance) + " ");
+    /**
+     * Only creates {@link AirLocation} instances for the few pairs that are close enough to be a duplicate.
+     */
+    private void checkAirDistances(LocationSelection selection) {
+        // AirLocation.getDistanceTo() rounds to 0 below 0.0005 coordinate units
+        new DuplicateLocationDetector(0.001).detectCandidates(selection.getLatitudes(), selection.getLongitudes(),
+                (i, j) -> {
+            AirLocation fromAirLocation = new AirLocation(selection.getId(i),
+                    selection.getLatitude(i), selection.getLongitude(i));
+            fromAirLocation.setName(selection.getName(i));
+            AirLocation toAirLocation = new AirLocation(selection.getId(j),
+                    selection.getLatitude(j), selection.getLongitude(j));
+            toAirLocation.setName(selection.getName(j));
+            if (fromAirLocation.getDistanceTo(toAirLocation) == 0L) {
+//                throw new IllegalArgumentException("The fromAirLocation (" + fromAirLocation
+//                        + ") and toAirLocation (" + toAirLocation + ") are the same.");
+                logger.warn("The fromAirLocation (" + fromAirLocation
+                        + ") and toAirLocation (" + toAirLocation + ") are the same.");
+            }
+        });
+    }
+
+    /**
+     * Air distances have no edge weight section, see {@link #checkAirDistances(LocationSelection)} instead.
+     * @param distanceType must be a road distance type
+     * @param binaryMatrixWriter null if no binary matrix is written
+     */
+    void writeEdgeWeightSection(FixedPrecisionWriter vrpWriter, BinaryMatrixWriter binaryMatrixWriter,
+            GenerationDistanceType distanceType, List<HubSegmentLocation> hubList, List<Location> locationList,
+            RouteMatrix routeMatrix) throws IOException {
+        if (!distanceType.isRoad()) {
+            throw new IllegalArgumentException("The distanceType (" + distanceType
+                    + ") has no edge weight section.");
+        }
+        if (distanceType.isSegmented()) {
+            writeSegmentedEdgeWeightSection(vrpWriter, distanceType, hubList, locationList);
+            return;
+        }
+        vrpWriter.write("EDGE_WEIGHT_SECTION\n");
+        if (routeMatrix != null) {
+            writeRouteMatrix(vrpWriter, binaryMatrixWriter, distanceType, locationList, routeMatrix);
+        } else if (isTiled(locationList)) {
+            try (RouteMatrix tiledMatrix = calculateTiledRouteMatrix(locationList, distanceType)) {
+                writeRouteMatrix(vrpWriter, binaryMatrixWriter, distanceType, locationList, tiledMatrix);
+            }
+        } else if (isSymmetricRoad(locationList, distanceType)) {
+            // The lower triangle of a row is only known when all rows above it are calculated
+            try (RouteMatrix symmetricMatrix = calculateRouteMatrix(locationList, distanceType, true)) {
+                writeRouteMatrix(vrpWriter, binaryMatrixWriter, distanceType, locationList, symmetricMatrix);
+            }
+        } else {
+            streamRouteRows(locationList, distanceType, false, (fromIndex, row) -> {
+                for (int toIndex = 0; toIndex < locationList.size(); toIndex++) {
+                    double distance = extractRoadDistance(distanceType, locationList, fromIndex, toIndex,
+                            row.getDistances()[toIndex], row.getTimes()[toIndex]);
+                    vrpWriter.writeFixed(distance);
+                    vrpWriter.write(' ');
+                    if (binaryMatrixWriter != null) {
+                        binaryMatrixWriter.writeValue(distance);
                     }
-                    vrpWriter.write("\n");
-                    logger.info("All distances calculated for location ({}).", fromLocation);
                 }
-            } else {
-                for (HubSegmentLocation fromHubLocation : hubList) {
-                    Map<HubSegmentLocation, Double> fromHubTravelDistanceMap = new LinkedHashMap<HubSegmentLocation, Double>(hubList.size());
-                    fromHubLocation.setHubTravelDistanceMap(fromHubTravelDistanceMap);
-                    for (HubSegmentLocation toHubLocation : hubList) {
-                        if (fromHubLocation == toHubLocation) {
-                            continue;
-                        }
-                        GHResponse response = fetchGhResponse(fromHubLocation, toHubLocation, distanceType);
-                        double distance = distanceType.extractDistance(response.getBest());
-                        if (distance == 0.0) {
-                            throw new IllegalArgumentException("The fromHubLocation (" + fromHubLocation
-                                    + ") and toHubLocation (" + toHubLocation + ") are the same.");
-                        }
-                        fromHubTravelDistanceMap.put(toHubLocation, distance);
-                    }
-                    logger.info("All hub distances calculated for hub ({}).", fromHubLocation);
+                vrpWriter.write("\n");
+            });
+        }
+    }
+
+    private void writeRouteMatrix(FixedPrecisionWriter vrpWriter, BinaryMatrixWriter binaryMatrixWriter,
+            GenerationDistanceType distanceType, List<Location> locationList, RouteMatrix routeMatrix) throws IOException {
+        for (int fromIndex = 0; fromIndex < locationList.size(); fromIndex++) {
+            for (int toIndex = 0; toIndex < locationList.size(); toIndex++) {
+                double distance = extractRoadDistance(distanceType, locationList, fromIndex, toIndex,
+                        routeMatrix.getDistance(fromIndex, toIndex), routeMatrix.getTime(fromIndex, toIndex));
+                vrpWriter.writeFixed(distance);
+                vrpWriter.write(' ');
+                if (binaryMatrixWriter != null) {
+                    binaryMatrixWriter.writeValue(distance);
                 }
-                Map<Point, HubSegmentLocation> pointToHubMap = new HashMap<Point, HubSegmentLocation>(hubList.size());
-                for (HubSegmentLocation hub : hubList) {
-                    hub.setNearbyTravelDistanceMap(new LinkedHashMap<RoadSegmentLocation, Double>(100));
-                    pointToHubMap.put(new Point(hub.getLatitude(), hub.getLongitude()), hub);
+            }
+            vrpWriter.write("\n");
+        }
+    }
+
+    private void writeSegmentedEdgeWeightSection(FixedPrecisionWriter vrpWriter, GenerationDistanceType distanceType, List<HubSegmentLocation> hubList, List<Location> locationList) throws IOException {
+        SegmentedDistanceMatrix segmentedMatrix = calculateSegmentedMatrix(distanceType, hubList, locationList, null);
+        DenseDistanceMatrix hubToHubMatrix = segmentedMatrix.getHubToHubMatrix();
+        SparseDistanceMatrix hubToNearbyMatrix = segmentedMatrix.getHubToNearbyMatrix();
+        SparseDistanceMatrix locationToHubMatrix = segmentedMatrix.getLocationToHubMatrix();
+        SparseDistanceMatrix locationToNearbyMatrix = segmentedMatrix.getLocationToNearbyMatrix();
+        logger.info("The segmented matrix has {} entries and uses {} bytes.",
+                segmentedMatrix.getEntryCount(), segmentedMatrix.getMemoryUsage());
+        vrpWriter.write("SEGMENTED_EDGE_WEIGHT_SECTION\n");
+        for (int hubIndex = 0; hubIndex < hubList.size(); hubIndex++) {
+            vrpWriter.writeLong(hubList.get(hubIndex).getId());
+            vrpWriter.write(' ');
+            writeSegmentedEntries(vrpWriter, hubToHubMatrix, hubIndex, hubList);
+            writeSegmentedEntries(vrpWriter, hubToNearbyMatrix, hubIndex, locationList);
+            vrpWriter.write("\n");
+        }
+        for (int locationIndex = 0; locationIndex < locationList.size(); locationIndex++) {
+            vrpWriter.writeLong(locationList.get(locationIndex).getId());
+            vrpWriter.write(' ');
+            writeSegmentedEntries(vrpWriter, locationToHubMatrix, locationIndex, hubList);
+            writeSegmentedEntries(vrpWriter, locationToNearbyMatrix, locationIndex, locationList);
+            vrpWriter.write("\n");
+        }
+    }
+
+    /**
+     * @param fullDistanceMatrix null if the full road distances don't need to be kept,
+     * otherwise a locationList size square matrix that receives the full road distance of every pair
+     */
+    SegmentedDistanceMatrix calculateSegmentedMatrix(GenerationDistanceType distanceType,
+            List<HubSegmentLocation> hubList, List<Location> locationList, DistanceMatrix fullDistanceMatrix) {
+        if (oneToManyEnabled) {
+            try {
+                return calculateSegmentedMatrixWithTrees(distanceType, hubList, locationList, fullDistanceMatrix);
+            } catch (IOException e) {
+                throw new IllegalStateException("Impossible state: an in-memory matrix does not do IO.", e);
+            }
+        }
+        return calculateSegmentedMatrixPerPair(distanceType, hubList, locationList, fullDistanceMatrix);
+    }
+
+    /**
+     * Routes every pair of locations separately, plus the legs to and from the hubs found on those routes.
+     */
+    private SegmentedDistanceMatrix calculateSegmentedMatrixPerPair(GenerationDistanceType distanceType,
+            List<HubSegmentLocation> hubList, List<Location> locationList, DistanceMatrix fullDistanceMatrix) {
+        SegmentedDistanceMatrix segmentedMatrix = new SegmentedDistanceMatrix(hubList.size(), locationList.size());
+        DenseDistanceMatrix hubToHubMatrix = segmentedMatrix.getHubToHubMatrix();
+        for (int fromHubIndex = 0; fromHubIndex < hubList.size(); fromHubIndex++) {
+            HubSegmentLocation fromHubLocation = hubList.get(fromHubIndex);
+            for (int toHubIndex = 0; toHubIndex < hubList.size(); toHubIndex++) {
+                HubSegmentLocation toHubLocation = hubList.get(toHubIndex);
+                if (fromHubLocation == toHubLocation) {
+                    continue;
                 }
-                for (Location fromLocationG : locationList) {
-                    RoadSegmentLocation fromLocation = (RoadSegmentLocation) fromLocationG;
-                    Map<RoadSegmentLocation, Double> fromNearbyTravelDistanceMap = new LinkedHashMap<RoadSegmentLocation, Double>();
-                    fromLocation.setNearbyTravelDistanceMap(fromNearbyTravelDistanceMap);
-                    Map<HubSegmentLocation, Double> fromHubTravelDistanceMap = new LinkedHashMap<HubSegmentLocation, Double>();
-                    fromLocation.setHubTravelDistanceMap(fromHubTravelDistanceMap);
-                    for (Location toLocationG : locationList) {
-                        RoadSegmentLocation toLocation = (RoadSegmentLocation) toLocationG;
-                        if (fromLocation == toLocation) {
-                            continue;
-                        }
-                        GHResponse response = fetchGhResponse(fromLocation, toLocation, distanceType);
-                        PathWrapper path = response.getBest();
-                        double distance = distanceType.extractDistance(path);
-                        if (distance == 0.0) {
-                            throw new IllegalArgumentException("The fromLocation (" + fromLocation
-                                    + ") and toLocation (" + toLocation + ") are the same.");
-                        }
-                        PointList ghPointList = path.getPoints();
-                        HubSegmentLocation firstHub = null;
-                        for (int i = 0; i < ghPointList.size(); i++) {
-                            double latitude = ghPointList.getLatitude(i);
-                            double longitude = ghPointList.getLongitude(i);
-                            HubSegmentLocation hub = pointToHubMap.get(new Point(latitude, longitude));
-                            if (hub != null) {
-                                firstHub = hub;
-                                break;
-                            }
-                        }
-                        HubSegmentLocation lastHub = null;
-                        for (int i = ghPointList.size() - 1; i >= 0; i--) {
-                            double latitude = ghPointList.getLatitude(i);
-                            double longitude = ghPointList.getLongitude(i);
-                            HubSegmentLocation hub = pointToHubMap.get(new Point(latitude, longitude));
-                            if (hub != null) {
-                                lastHub = hub;
-                                break;
-                            }
-                        }
-                        if (firstHub == null && lastHub == null) {
-                            fromNearbyTravelDistanceMap.put(toLocation, distance);
-                        } else {
-                            if (!fromHubTravelDistanceMap.containsKey(firstHub)) {
-                                GHResponse firstResponse = fetchGhResponse(fromLocation, firstHub, distanceType);
-                                double firstHubDistance = distanceType.extractDistance(firstResponse.getBest());
-                                fromHubTravelDistanceMap.put(firstHub, firstHubDistance);
-                            }
-                            if (!lastHub.getNearbyTravelDistanceMap().containsKey(toLocation)) {
-                                GHResponse lastResponse = fetchGhResponse(lastHub, toLocation, distanceType);
-                                double lastHubDistance = distanceType.extractDistance(lastResponse.getBest());
-                                lastHub.getNearbyTravelDistanceMap().put(toLocation, lastHubDistance);
-                            }
-                            double segmentedDistance = fromLocation.getDistanceDouble(toLocation);
-                            double distanceDiff = distance - segmentedDistance;
-                            if (distanceDiff > 0.01) {
-                                logger.warn("The distance ({}) is bigger than the segmentedDistance ({}). "
-                                        + "It found a shortcut from {} to {}.",
-                                        distance, segmentedDistance, fromLocation, toLocation);
-                            } else if (distanceDiff < -0.001) {
-                                throw new IllegalArgumentException("The distance (" + distance
-                                        + ") is much smaller than the segmentedDistance (" + segmentedDistance + ").");
-                            }
-                        }
-                    }
-                    logger.info("All distances calculated for location ({}).", fromLocation);
+                GHResponse response = fetchGhResponse(fromHubLocation, toHubLocation, distanceType);
+                double distance = distanceType.extractDistance(response.getBest());
+                if (distance == 0.0) {
+                    throw new IllegalArgumentException("The fromHubLocation (" + fromHubLocation
+                            + ") and toHubLocation (" + toHubLocation + ") are the same.");
                 }
-                vrpWriter.write("SEGMENTED_EDGE_WEIGHT_SECTION\n");
-                for (HubSegmentLocation fromHub : hubList) {
-                    vrpWriter.write(fromHub.getId() + " ");
-                    for (Map.Entry<HubSegmentLocation, Double> entry : fromHub.getHubTravelDistanceMap().entrySet()) {
-                        vrpWriter.write(entry.getKey().getId() + " " + distanceFormat.format(entry.getValue()) + " ");
-                    }
-                    for (Map.Entry<RoadSegmentLocation, Double> entry : fromHub.getNearbyTravelDistanceMap().entrySet()) {
-                        vrpWriter.write(entry.getKey().getId() + " " + distanceFormat.format(entry.getValue()) + " ");
-                    }
-                    vrpWriter.write("\n");
+                hubToHubMatrix.setDistance(fromHubIndex, toHubIndex, distance);
+            }
+            logger.info("All hub distances calculated for hub ({}).", fromHubLocation);
+        }
+        HubSpatialIndex hubSpatialIndex = new HubSpatialIndex(hubList, hubSnappingTolerance);
+        for (int fromIndex = 0; fromIndex < locationList.size(); fromIndex++) {
+            Location fromLocation = locationList.get(fromIndex);
+            for (int toIndex = 0; toIndex < locationList.size(); toIndex++) {
+                Location toLocation = locationList.get(toIndex);
+                if (fromLocation == toLocation) {
+                    continue;
                 }
-                for (Location fromLocationG : locationList) {
-                    RoadSegmentLocation fromLocation = (RoadSegmentLocation) fromLocationG;
-                    vrpWriter.write(fromLocation.getId() + " ");
-                    for (Map.Entry<HubSegmentLocation, Double> entry : fromLocation.getHubTravelDistanceMap().entrySet()) {
-                        vrpWriter.write(entry.getKey().getId() + " " + distanceFormat.format(entry.getValue()) + " ");
-                    }
-                    for (Map.Entry<RoadSegmentLocation, Double> entry : fromLocation.getNearbyTravelDistanceMap().entrySet()) {
-                        vrpWriter.write(entry.getKey().getId() + " " + distanceFormat.format(entry.getValue()) + " ");
-                    }
-                    vrpWriter.write("\n");
+                GHResponse response = fetchGhResponseWithPoints(fromLocation, toLocation, distanceType);
+                PathWrapper path = response.getBest();
+                double distance = distanceType.extractDistance(path);
+                PointList ghPointList = path.getPoints();
+                int firstHubIndex = hubSpatialIndex.findFirstHubIndex(ghPointList);
+                int lastHubIndex = firstHubIndex < 0 ? -1 : hubSpatialIndex.findLastHubIndex(ghPointList);
+                addSegmentedRoute(segmentedMatrix, fullDistanceMatrix, locationList, fromIndex, toIndex, distance,
+                        firstHubIndex, lastHubIndex,
+                        () -> distanceType.extractDistance(fetchGhResponse(
+                                fromLocation, hubList.get(firstHubIndex), distanceType).getBest()),
+                        () -> distanceType.extractDistance(fetchGhResponse(
+                                hubList.get(lastHubIndex), toLocation, distanceType).getBest()));
+            }
+            logger.info("All distances calculated for location ({}).", fromLocation);
+        }
+        return segmentedMatrix;
+    }
+
+    /**
+     * Grows 1 shortest path tree per hub and per location, instead of routing every pair and leg separately,
+     * so it costs hubs + n searches instead of n * n searches plus the legs.
+     * The first and last hub of every route are found on the route geometry extracted from those trees.
+     */
+    private SegmentedDistanceMatrix calculateSegmentedMatrixWithTrees(GenerationDistanceType distanceType,
+            List<HubSegmentLocation> hubList, List<Location> locationList, DistanceMatrix fullDistanceMatrix)
+            throws IOException {
+        int hubCount = hubList.size();
+        int locationCount = locationList.size();
+        SegmentedDistanceMatrix segmentedMatrix = new SegmentedDistanceMatrix(hubCount, locationCount);
+        DenseDistanceMatrix hubToHubMatrix = segmentedMatrix.getHubToHubMatrix();
+        // The router's indexes are the hub indexes followed by the location indexes shifted by hubCount
+        List<Location> routerLocationList = new ArrayList<>(hubCount + locationCount);
+        routerLocationList.addAll(hubList);
+        routerLocationList.addAll(locationList);
+        OneToManyRouter router = createOneToManyRouter(routerLocationList, distanceType);
+        HubSpatialIndex hubSpatialIndex = new HubSpatialIndex(hubList, hubSnappingTolerance);
+        ParallelMatrixEngine matrixEngine = new ParallelMatrixEngine(matrixThreadCount);
+        DenseDistanceMatrix hubToLocationMatrix = new DenseDistanceMatrix(hubCount, locationCount);
+        matrixEngine.calculate(hubCount, hubIndex -> {
+            RouteRow row = new RouteRow(hubCount + locationCount);
+            router.calcRow(hubIndex, row.getDistances(), row.getTimes());
+            return row;
+        }, (fromHubIndex, row) -> {
+            for (int toHubIndex = 0; toHubIndex < hubCount; toHubIndex++) {
+                if (fromHubIndex == toHubIndex) {
+                    continue;
+                }
+                double distance = distanceType.extractDistance(row.getDistances()[toHubIndex], row.getTimes()[toHubIndex]);
+                if (distance == 0.0) {
+                    throw new IllegalArgumentException("The fromHubLocation (" + hubList.get(fromHubIndex)
+                            + ") and toHubLocation (" + hubList.get(toHubIndex) + ") are the same.");
                 }
+                hubToHubMatrix.setDistance(fromHubIndex, toHubIndex, distance);
             }
-        } else {
-            for (Location fromAirLocation : locationList) {
-                for (Location toAirLocation : locationList) {
-                    if (fromAirLocation != toAirLocation && fromAirLocation.getDistanceTo(toAirLocation) == 0) {
-//                        throw new IllegalArgumentException("The fromAirLocation (" + fromAirLocation
-//                                + ") and toAirLocation (" + toAirLocation + ") are the same.");
-                        logger.warn("The fromAirLocation (" + fromAirLocation
-                                + ") and toAirLocation (" + toAirLocation + ") are the same.");
+            for (int toIndex = 0; toIndex < locationCount; toIndex++) {
+                hubToLocationMatrix.setDistance(fromHubIndex, toIndex, distanceType.extractDistance(
+                        row.getDistances()[hubCount + toIndex], row.getTimes()[hubCount + toIndex]));
+            }
+            logger.info("All hub distances calculated for hub ({}).", hubList.get(fromHubIndex));
+        });
+        matrixEngine.calculate(locationCount,
+                fromIndex -> calculateSegmentedRouteRow(router, hubSpatialIndex, distanceType, hubCount, locationCount, fromIndex),
+                (fromIndex, row) -> {
+                    for (int toIndex = 0; toIndex < locationCount; toIndex++) {
+                        if (fromIndex == toIndex) {
+                            continue;
+                        }
+                        int firstHubIndex = row.firstHubIndexes[toIndex];
+                        int lastHubIndex = row.lastHubIndexes[toIndex];
+                        int legToIndex = toIndex;
+                        addSegmentedRoute(segmentedMatrix, fullDistanceMatrix, locationList,
+                                fromIndex, toIndex, row.distances[toIndex],
+                                firstHubIndex, lastHubIndex,
+                                () -> row.hubDistances[firstHubIndex],
+                                () -> hubToLocationMatrix.getDistance(lastHubIndex, legToIndex));
                     }
+                    logger.info("All distances calculated for location ({}).", locationList.get(fromIndex));
+                });
+        return segmentedMatrix;
+    }
+
+    /**
+     * Called concurrently, so it only reads the router and the hubSpatialIndex.
+     */
+    private SegmentedRouteRow calculateSegmentedRouteRow(OneToManyRouter router, HubSpatialIndex hubSpatialIndex,
+            GenerationDistanceType distanceType, int hubCount, int locationCount, int fromIndex) {
+        SegmentedRouteRow row = new SegmentedRouteRow(hubCount, locationCount);
+        int routerFromIndex = hubCount + fromIndex;
+        // A worker thread also calculates hub rows and other location rows, so start from a cleared tree:
+        // every calcPath call below with the same routerFromIndex continues that tree
+        router.startTree(routerFromIndex);
+        for (int toIndex = 0; toIndex < locationCount; toIndex++) {
+            if (fromIndex == toIndex) {
+                continue;
+            }
+            Path path = router.calcPath(routerFromIndex, hubCount + toIndex);
+            row.distances[toIndex] = distanceType.extractDistance(path.getDistance(), path.getTime());
+            PointList pointList = path.calcPoints();
+            int firstHubIndex = hubSpatialIndex.findFirstHubIndex(pointList);
+            row.firstHubIndexes[toIndex] = firstHubIndex;
+            row.lastHubIndexes[toIndex] = firstHubIndex < 0 ? -1 : hubSpatialIndex.findLastHubIndex(pointList);
+        }
+        for (int hubIndex = 0; hubIndex < hubCount; hubIndex++) {
+            Path path = router.calcPath(routerFromIndex, hubIndex);
+            row.hubDistances[hubIndex] = distanceType.extractDistance(path.getDistance(), path.getTime());
+        }
+        return row;
+    }
+
+    /**
+     * Adds the route from fromIndex to toIndex to the segmentedMatrix:
+     * as a nearby distance if it passes no hub, otherwise as the legs to its first hub and from its last hub.
+     * @param fullDistanceMatrix null if the full road distance isn't kept
+     * @param firstHubIndex -1 if the route passes no hub
+     * @param lastHubIndex -1 if the route passes no hub
+     * @param firstHubDistanceSupplier only called if that leg isn't in the segmentedMatrix yet
+     * @param lastHubDistanceSupplier only called if that leg isn't in the segmentedMatrix yet
+     */
+    private void addSegmentedRoute(SegmentedDistanceMatrix segmentedMatrix, DistanceMatrix fullDistanceMatrix,
+            List<Location> locationList, int fromIndex, int toIndex, double distance,
+            int firstHubIndex, int lastHubIndex,
+            DoubleSupplier firstHubDistanceSupplier, DoubleSupplier lastHubDistanceSupplier) {
+        Location fromLocation = locationList.get(fromIndex);
+        Location toLocation = locationList.get(toIndex);
+        if (distance == 0.0) {
+            throw new IllegalArgumentException("The fromLocation (" + fromLocation
+                    + ") and toLocation (" + toLocation + ") are the same.");
+        }
+        if (fullDistanceMatrix != null) {
+            fullDistanceMatrix.setDistance(fromIndex, toIndex, distance);
+        }
+        if (firstHubIndex < 0) {
+            segmentedMatrix.getLocationToNearbyMatrix().setDistance(fromIndex, toIndex, distance);
+            return;
+        }
+        SparseDistanceMatrix locationToHubMatrix = segmentedMatrix.getLocationToHubMatrix();
+        if (!locationToHubMatrix.contains(fromIndex, firstHubIndex)) {
+            locationToHubMatrix.setDistance(fromIndex, firstHubIndex, firstHubDistanceSupplier.getAsDouble());
+        }
+        SparseDistanceMatrix hubToNearbyMatrix = segmentedMatrix.getHubToNearbyMatrix();
+        if (!hubToNearbyMatrix.contains(lastHubIndex, toIndex)) {
+            hubToNearbyMatrix.setDistance(lastHubIndex, toIndex, lastHubDistanceSupplier.getAsDouble());
+        }
+        double segmentedDistance = segmentedMatrix.getLocationDistance(fromIndex, toIndex);
+        double distanceDiff = distance - segmentedDistance;
+        if (distanceDiff > 0.01) {
+            logger.warn("The distance ({}) is bigger than the segmentedDistance ({}). "
+                    + "It found a shortcut from {} to {}.",
+                    distance, segmentedDistance, fromLocation, toLocation);
+        } else if (distanceDiff < -0.001) {
+            throw new IllegalArgumentException("The distance (" + distance
+                    + ") is much smaller than the segmentedDistance (" + segmentedDistance + ").");
+        }
+    }
+
+    private void writeSegmentedEntries(FixedPrecisionWriter vrpWriter, DistanceMatrix matrix, int row,
+            List<? extends Location> columnLocationList) throws IOException {
+        matrix.forEachInRow(row, (column, distance) -> {
+            vrpWriter.writeLong(columnLocationList.get(column).getId());
+            vrpWriter.write(' ');
+            vrpWriter.writeFixed(distance);
+            vrpWriter.write(' ');
+        });
+    }
+
+    private OneToManyRouter createOneToManyRouter(List<? extends Location> locationList, GenerationDistanceType distanceType) {
+        double[] latitudes = new double[locationList.size()];
+        double[] longitudes = new double[locationList.size()];
+        for (int i = 0; i < locationList.size(); i++) {
+            latitudes[i] = locationList.get(i).getLatitude();
+            longitudes[i] = locationList.get(i).getLongitude();
+        }
+        return new OneToManyRouter(graphHopper, "car", distanceType.getWeightingName(), latitudes, longitudes);
+    }
+
+    RouteMatrix calculateRouteMatrix(List<Location> locationList, GenerationDistanceType distanceType) {
+        if (isTiled(locationList)) {
+            return calculateTiledRouteMatrix(locationList, distanceType);
+        }
+        return calculateRouteMatrix(locationList, distanceType, isSymmetricRoad(locationList, distanceType));
+    }
+
+    private boolean isTiled(List<Location> locationList) {
+        return tileSize != null && locationList.size() > tileSize;
+    }
+
+    /**
+     * Splits the locations into tiles of at most tileSize locations with a {@link LocationTiler}.
+     * Only the pairs within the same tile and the pairs of border locations of all tiles are routed.
+     * Every other pair is routed through the best pair of border locations of both tiles
+     * (for the distance of a shortest weighting, for the time of a fastest weighting),
+     * so it's an upper bound of the real road distance: a detour if the real route doesn't pass those borders.
+     * <p>
+     * For n locations in t tiles, that routes about {@code n * n / t} pairs instead of {@code n * n}.
+     * Every tile matrix and the border matrix have their own checkpoint.
+     */
+    RouteMatrix calculateTiledRouteMatrix(List<Location> locationList, GenerationDistanceType distanceType) {
+        int size = locationList.size();
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = locationList.get(i).getLatitude();
+            longitudes[i] = locationList.get(i).getLongitude();
+        }
+        LocationTiler tiler = new LocationTiler(tileSize);
+        List<int[]> tileList = tiler.tile(latitudes, longitudes);
+        int tileCount = tileList.size();
+        int[] tileIndexes = new int[size];
+        int[] indexesInTile = new int[size];
+        int[][] borderIndexes = new int[tileCount][];
+        // The index in the border matrix of every border location of every tile
+        int[][] borderMatrixIndexes = new int[tileCount][];
+        List<Location> borderLocationList = new ArrayList<>(tileCount * 5);
+        for (int tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+            int[] tile = tileList.get(tileIndex);
+            for (int i = 0; i < tile.length; i++) {
+                tileIndexes[tile[i]] = tileIndex;
+                indexesInTile[tile[i]] = i;
+            }
+            borderIndexes[tileIndex] = tiler.selectBorderIndexes(tile, latitudes, longitudes);
+            borderMatrixIndexes[tileIndex] = new int[borderIndexes[tileIndex].length];
+            for (int i = 0; i < borderIndexes[tileIndex].length; i++) {
+                borderMatrixIndexes[tileIndex][i] = borderLocationList.size();
+                borderLocationList.add(locationList.get(borderIndexes[tileIndex][i]));
+            }
+        }
+        logger.info("Tiled {} locations into {} tiles with {} border locations.",
+                size, tileCount, borderLocationList.size());
+        RouteMatrix[] tileMatrices = new RouteMatrix[tileCount];
+        RouteMatrix borderMatrix = null;
+        try {
+            for (int tileIndex = 0; tileIndex < tileCount; tileIndex++) {
+                int[] tile = tileList.get(tileIndex);
+                List<Location> tileLocationList = new ArrayList<>(tile.length);
+                for (int index : tile) {
+                    tileLocationList.add(locationList.get(index));
                 }
+                tileMatrices[tileIndex] = calculateRouteMatrix(tileLocationList, distanceType, false);
+            }
+            borderMatrix = calculateRouteMatrix(borderLocationList, distanceType, false);
+            RouteMatrix routeMatrix = offHeapMatrixDir == null ? RouteMatrix.createOnHeap(size, false)
+                    : RouteMatrix.createOffHeap(offHeapMatrixDir, size, false);
+            TiledRouteAssembler assembler = new TiledRouteAssembler(distanceType.isShortest(),
+                    tileIndexes, indexesInTile, borderIndexes, borderMatrixIndexes, tileMatrices, borderMatrix);
+            try {
+                new ParallelMatrixEngine(matrixThreadCount).calculate(size, assembler::assembleRow, routeMatrix::setRow);
+            } catch (IOException | RuntimeException e) {
+                IOUtils.closeQuietly(routeMatrix);
+                throw new IllegalStateException("Could not assemble the tiled matrix for the locationList size ("
+                        + size + ").", e);
             }
+            return routeMatrix;
+        } finally {
+            for (RouteMatrix tileMatrix : tileMatrices) {
+                IOUtils.closeQuietly(tileMatrix);
+            }
+            IOUtils.closeQuietly(borderMatrix);
+        }
+    }
+
+    /**
+     * @param symmetric true to only route the upper triangle
+     */
+    private RouteMatrix calculateRouteMatrix(List<Location> locationList, GenerationDistanceType distanceType,
+            boolean symmetric) {
+        RouteMatrix routeMatrix = offHeapMatrixDir == null ? RouteMatrix.createOnHeap(locationList.size(), symmetric)
+                : RouteMatrix.createOffHeap(offHeapMatrixDir, locationList.size(), symmetric);
+        try {
+            streamRouteRows(locationList, distanceType, symmetric, routeMatrix::setRow);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(routeMatrix);
+            throw new IllegalStateException("Could not read or write the checkpoint for the locationList size ("
+                    + locationList.size() + ").", e);
+        }
+        return routeMatrix;
+    }
+
+    /**
+     * Calculates the route rows that are not in the checkpoint yet, appending each one to the checkpoint,
+     * and then streams all rows from the checkpoint to the rowConsumer, in row order.
+     * A restarted run with the same location list and weighting only calculates the missing rows.
+     * @param symmetric true to only calculate the columns at or after the row in every row
+     */
+    private void streamRouteRows(List<Location> locationList, GenerationDistanceType distanceType, boolean symmetric,
+            ParallelMatrixEngine.RowConsumer<RouteRow> rowConsumer) throws IOException {
+        // Open it before the routing threads need it
+        getRouteCache(distanceType);
+        ParallelMatrixEngine matrixEngine = new ParallelMatrixEngine(matrixThreadCount);
+        if (checkpointDir == null) {
+            OneToManyRouter router = oneToManyEnabled ? createOneToManyRouter(locationList, distanceType) : null;
+            matrixEngine.calculate(locationList.size(),
+                    fromIndex -> calculateRouteRow(router, fromIndex, locationList, distanceType, symmetric),
+                    (fromIndex, row) -> {
+                        rowConsumer.acceptRow(fromIndex, row);
+                        logger.info("All routes calculated for location ({}).", locationList.get(fromIndex));
+                    });
+            return;
+        }
+        long fingerprint = calculateCheckpointFingerprint(locationList, distanceType, symmetric);
+        String checkpointName = catalogue.getName() + "-" + distanceType.getWeightingName()
+                + (symmetric ? "-upper" : "") + "-n" + locationList.size() + "-" + Long.toHexString(fingerprint);
+        try (RouteCheckpoint checkpoint = RouteCheckpoint.open(checkpointDir, checkpointName, fingerprint, locationList.size())) {
+            checkpointFileSet.add(checkpoint.getCheckpointFile());
+            int[] missingRowIndexes = checkpoint.getMissingRowIndexes();
+            if (missingRowIndexes.length > 0) {
+                OneToManyRouter router = oneToManyEnabled ? createOneToManyRouter(locationList, distanceType) : null;
+                matrixEngine.calculate(missingRowIndexes.length,
+                        i -> calculateRouteRow(router, missingRowIndexes[i], locationList, distanceType, symmetric),
+                        (i, row) -> {
+                            checkpoint.writeRow(missingRowIndexes[i], row);
+                            logger.info("All routes calculated for location ({}).",
+                                    locationList.get(missingRowIndexes[i]));
+                        });
+            }
+            RouteRow row = new RouteRow(locationList.size());
+            for (int fromIndex = 0; fromIndex < locationList.size(); fromIndex++) {
+                rowConsumer.acceptRow(fromIndex, checkpoint.readRow(fromIndex, row));
+            }
+        }
+    }
+
+    private long calculateCheckpointFingerprint(List<Location> locationList, GenerationDistanceType distanceType,
+            boolean symmetric) {
+        // An upper triangle checkpoint can't resume a full matrix or vice versa
+        long fingerprint = distanceType.getWeightingName().hashCode() * 2L + (symmetric ? 1L : 0L);
+        // Nor can a checkpoint of another OSM file or another routing algorithm, like in RouteCache.open()
+        File osmFile = new File(osmPath);
+        fingerprint = fingerprint * 31L + osmFile.getName().hashCode();
+        fingerprint = fingerprint * 31L + osmFile.length();
+        fingerprint = fingerprint * 31L + osmFile.lastModified();
+        fingerprint = fingerprint * 31L + preparationProfile.getMode(distanceType.getWeightingName()).getCode().hashCode();
+        fingerprint = fingerprint * 31L + (oneToManyEnabled ? 1L : 0L);
+        for (Location location : locationList) {
+            fingerprint = fingerprint * 31L + location.getId();
+            fingerprint = fingerprint * 31L + Double.doubleToLongBits(location.getLatitude());
+            fingerprint = fingerprint * 31L + Double.doubleToLongBits(location.getLongitude());
+        }
+        return fingerprint;
+    }
+
+    private void deleteCheckpoints() {
+        for (File checkpointFile : checkpointFileSet) {
+            if (!checkpointFile.delete()) {
+                logger.warn("Could not delete the checkpointFile ({}).", checkpointFile);
+            }
+        }
+        checkpointFileSet.clear();
+    }
+
+    /**
+     * Routes a random sample of pairs in both directions to decide if the road-km matrix can be mirrored.
+     * @return true if only the upper triangle of the road matrix needs to be routed
+     */
+    private boolean isSymmetricRoad(List<Location> locationList, GenerationDistanceType distanceType) {
+        if (symmetricRoadTolerance == null || distanceType != GenerationDistanceType.ROAD_DISTANCE_KM
+                || locationList.size() < 2) {
+            return false;
+        }
+        Random random = new Random(37);
+        int sampleSize = Math.min(SYMMETRY_SAMPLE_SIZE, locationList.size() * (locationList.size() - 1) / 2);
+        double maxDeviation = 0.0;
+        for (int i = 0; i < sampleSize; i++) {
+            int fromIndex = random.nextInt(locationList.size());
+            int toIndex = random.nextInt(locationList.size() - 1);
+            if (toIndex >= fromIndex) {
+                toIndex++;
+            }
+            Location fromLocation = locationList.get(fromIndex);
+            Location toLocation = locationList.get(toIndex);
+            double distance = fetchGhResponse(fromLocation, toLocation, distanceType).getBest().getDistance();
+            double mirrorDistance = fetchGhResponse(toLocation, fromLocation, distanceType).getBest().getDistance();
+            double maxDistance = Math.max(distance, mirrorDistance);
+            if (maxDistance > 0.0) {
+                maxDeviation = Math.max(maxDeviation, Math.abs(distance - mirrorDistance) / maxDistance);
+            }
+        }
+        if (maxDeviation > symmetricRoadTolerance) {
+            logger.warn("The sampled road distances deviate up to {} from their mirror, more than the"
+                    + " symmetricRoadTolerance ({}), so the full matrix is routed.",
+                    maxDeviation, symmetricRoadTolerance);
+            return false;
+        }
+        logger.info("The sampled road distances deviate up to {} from their mirror, so only the upper triangle"
+                + " is routed.", maxDeviation);
+        return true;
+    }
+
+    /**
+     * @param router null if every pair needs to be routed separately
+     * @param symmetric true to only calculate the columns at or after fromIndex
+     */
+    private RouteRow calculateRouteRow(OneToManyRouter router, int fromIndex, List<Location> locationList,
+            GenerationDistanceType distanceType, boolean symmetric) {
+        RouteRow row = new RouteRow(locationList.size());
+        int firstToIndex = symmetric ? fromIndex : 0;
+        if (router != null) {
+            router.calcRow(fromIndex, firstToIndex, row.getDistances(), row.getTimes());
+            return row;
+        }
+        Location fromLocation = locationList.get(fromIndex);
+        RouteCache routeCache = getRouteCache(distanceType);
+        for (int toIndex = firstToIndex; toIndex < locationList.size(); toIndex++) {
+            Location toLocation = locationList.get(toIndex);
+            if (fromLocation != toLocation) {
+                PathWrapper path = fetchGhResponse(fromLocation, toLocation, distanceType, routeCache).getBest();
+                row.getDistances()[toIndex] = path.getDistance();
+                row.getTimes()[toIndex] = path.getTime();
+            }
+        }
+        return row;
+    }
+
+    private double extractRoadDistance(GenerationDistanceType distanceType, List<Location> locationList,
+            int fromIndex, int toIndex, double distanceInMeters, long timeInMillis) {
+        if (fromIndex == toIndex) {
+            return 0.0;
+        }
+        double distance = distanceType.extractDistance(distanceInMeters, timeInMillis);
+        if (distance == 0.0) {
+            throw new IllegalArgumentException("The fromLocation (" + locationList.get(fromIndex)
+                    + ") and toLocation (" + locationList.get(toIndex) + ") have a zero distance.");
+        }
+        return distance;
+    }
+
+    /**
+     * @return never null, but its best {@link PathWrapper} only has a distance and a time if it came from the routeCache
+     */
+    GHResponse fetchGhResponse(Location fromLocation, Location toLocation, GenerationDistanceType distanceType) {
+        return fetchGhResponse(fromLocation, toLocation, distanceType, getRouteCache(distanceType));
+    }
 
+    /**
+     * @param routeCache null if routes aren't cached
+     */
+    private GHResponse fetchGhResponse(Location fromLocation, Location toLocation, GenerationDistanceType distanceType,
+            RouteCache routeCache) {
+        if (routeCache != null) {
+            PathWrapper cachedPath = routeCache.get(fromLocation.getLatitude(), fromLocation.getLongitude(),
+                    toLocation.getLatitude(), toLocation.getLongitude());
+            if (cachedPath != null) {
+                GHResponse response = new GHResponse();
+                response.add(cachedPath);
+                return response;
+            }
         }
+        return fetchGhResponseWithPoints(fromLocation, toLocation, distanceType, routeCache, false);
+    }
+
+    /**
+     * The points are the full route geometry: every pillar node of every edge,
+     * like {@link Path#calcPoints()} of the one-to-many trees and the {@link BelgiumHubSuggester},
+     * so a hub suggested on a pillar node is found on the route too.
+     */
+    private GHResponse fetchGhResponseWithPoints(Location fromLocation, Location toLocation, GenerationDistanceType distanceType) {
+        return fetchGhResponseWithPoints(fromLocation, toLocation, distanceType, getRouteCache(distanceType), true);
     }
 
-    private GHResponse fetchGhResponse(Location fromLocation, Location toLocation, GenerationDistanceType distanceType) {
+    /**
+     * @param routeCache null if routes aren't cached
+     * @param fullGeometry true to disable the Douglas-Peucker simplification of the points
+     */
+    private GHResponse fetchGhResponseWithPoints(Location fromLocation, Location toLocation,
+            GenerationDistanceType distanceType, RouteCache routeCache, boolean fullGeometry) {
         GHRequest request = new GHRequest(fromLocation.getLatitude(), fromLocation.getLongitude(),
                 toLocation.getLatitude(), toLocation.getLongitude())
-                .setWeighting(distanceType.isShortest() ? "shortest" : "fastest")
+                .setWeighting(distanceType.getWeightingName())
                 .setVehicle("car");
+        preparationProfile.applyTo(request, distanceType.getWeightingName());
+        if (fullGeometry) {
+            request.getHints().put(Parameters.Routing.WAY_POINT_MAX_DISTANCE, 0);
+        }
         GHResponse response = graphHopper.route(request);
         if (response.hasErrors()) {
             throw new IllegalStateException("GraphHopper gave " + response.getErrors().size()
@@ -469,11 +1633,43 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
                     response.getErrors().get(0)
             );
         }
+        if (routeCache != null) {
+            PathWrapper path = response.getBest();
+            routeCache.put(fromLocation.getLatitude(), fromLocation.getLongitude(),
+                    toLocation.getLatitude(), toLocation.getLongitude(), path.getDistance(), path.getTime());
+        }
         return response;
     }
 
-    private void writeDemandSection(BufferedWriter vrpWriter, int locationListSize, int depotListSize, int vehicleListSize, int capacity,
-            List<Location> locationList, VrpType vrpType) throws IOException {
+    private RouteCache getRouteCache(GenerationDistanceType distanceType) {
+        if (routeCacheDir == null) {
+            return null;
+        }
+        RouteCache routeCache = routeCacheMap.get(distanceType.getWeightingName());
+        if (routeCache != null) {
+            return routeCache;
+        }
+        return routeCacheMap.computeIfAbsent(distanceType.getWeightingName(), weightingName
+                -> RouteCache.open(routeCacheDir, new File(osmPath), "car", weightingName));
+    }
+
+    private void flushRouteCaches() {
+        for (RouteCache routeCache : routeCacheMap.values()) {
+            routeCache.flush();
+            routeCache.logStatistics();
+        }
+    }
+
+    private void closeRouteCaches() {
+        for (RouteCache routeCache : routeCacheMap.values()) {
+            routeCache.logStatistics();
+            IOUtils.closeQuietly(routeCache);
+        }
+        routeCacheMap.clear();
+    }
+
+    private void writeDemandSection(FixedPrecisionWriter vrpWriter, int locationListSize, int depotListSize, int vehicleListSize, int capacity,
+            LocationSelection selection, VrpType vrpType) throws IOException {
         vrpWriter.append("DEMAND_SECTION\n");
         // maximumDemand is 2 times the averageDemand. And the averageDemand is 2/3th of available capacity
         int maximumDemand = (4 * vehicleListSize * capacity) / (locationListSize * 3);
@@ -481,18 +1677,17 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
         int maxWindowTimeInHalfHours = 12 * 2; // 12 hours
         int maxDueTime = minReadyTime  + maxWindowTimeInHalfHours * 30 * 60; // 19:00
         int customerServiceDuration = 5 * 60; // 5 minutes
-        int i = 0;
         Random random = new Random(37);
-        for (Location location : locationList) {
+        for (int i = 0; i < selection.size(); i++) {
             String line;
             if (i < depotListSize) {
-                line = location.getId() + " 0";
+                line = selection.getId(i) + " 0";
                 if (vrpType == VrpType.TIMEWINDOWED) {
                     // Depot open from 7:00 until 19:00
                     line += " " + minReadyTime + " " + maxDueTime + " 0";
                 }
             } else {
-                line = location.getId() + " " + (random.nextInt(maximumDemand) + 1);
+                line = selection.getId(i) + " " + (random.nextInt(maximumDemand) + 1);
                 if (vrpType == VrpType.TIMEWINDOWED) {
                     int windowTimeInHalfHours = (4 * 2) + random.nextInt((4 * 2) + 1); // 4 to 8 hours
                     int readyTime = minReadyTime + random.nextInt(maxWindowTimeInHalfHours - windowTimeInHalfHours + 1) * 30 * 60;
@@ -501,21 +1696,23 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
                 }
             }
             vrpWriter.append(line).append("\n");
-            i++;
         }
     }
 
-    private void writeDepotSection(BufferedWriter vrpWriter, List<Location> locationList, int depotListSize) throws IOException {
+    private void writeDepotSection(FixedPrecisionWriter vrpWriter, LocationSelection selection, int depotListSize) throws IOException {
         vrpWriter.append("DEPOT_SECTION\n");
         for (int i = 0; i < depotListSize; i++) {
-            Location location = locationList.get(i);
-            vrpWriter.append(Long.toString(location.getId())).append("\n");
+            vrpWriter.append(Long.toString(selection.getId(i))).append("\n");
         }
         vrpWriter.append("-1\n");
         vrpWriter.append("EOF\n");
     }
 
-    private List<HubSegmentLocation> readHubList(File hubFile, GenerationDistanceType distanceType) {
+    /**
+     * Also reads the output of {@link BelgiumHubSuggester}:
+     * its {@code HUB_COORD_SECTION} header is skipped and it stops at the first empty line.
+     */
+    List<HubSegmentLocation> readHubList(File hubFile, GenerationDistanceType distanceType) {
         if (!distanceType.isSegmented()) {
             return Collections.emptyList();
         }
@@ -525,6 +1722,12 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
         try {
             bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(hubFile), "UTF-8"));
             for (String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine()) {
+                if (line.equals("HUB_COORD_SECTION")) {
+                    continue;
+                }
+                if (line.isEmpty()) {
+                    break;
+                }
                 String[] tokens = line.split(" ");
                 if (tokens.length != 4) {
                     throw new IllegalArgumentException("The line (" + line + ") does not have 4 tokens ("
@@ -547,70 +1750,59 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
         return locationList;
     }
 
-    private List<AirLocation> readAirLocationFile(File locationFile, long startId) {
-        List<AirLocation> locationList = new ArrayList<AirLocation>(3000);
-        BufferedReader bufferedReader = null;
-        long id = startId;
-        try {
-            bufferedReader = new BufferedReader(new InputStreamReader(new FileInputStream(locationFile), "UTF-8"));
-            for (String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine()) {
-                String[] tokens = line.split(";");
-                AirLocation location = new AirLocation();
-                switch (dataSource) {
-                    case BELGIUM:
-                        if (tokens.length != 5) {
-                            throw new IllegalArgumentException("The line (" + line + ") does not have 5 tokens ("
-                                    + tokens.length + ").");
-                        }
-                        location.setId(id);
-                        id++;
-                        location.setLatitude(Double.parseDouble(tokens[2]));
-                        location.setLongitude(Double.parseDouble(tokens[3]));
-                        location.setName(tokens[4]);
-                        break;
-                    case USA:
-                        if (tokens.length != 3) {
-                            throw new IllegalArgumentException("The line (" + line + ") does not have 3 tokens ("
-                                    + tokens.length + ").");
-                        }
-                        location.setId(id);
-                        id++;
-                        location.setLatitude(Double.parseDouble(tokens[1]));
-                        location.setLongitude(Double.parseDouble(tokens[2]));
-                        location.setName(tokens[0]);
-                        break;
-                    case UK_TEAMS:
-                        if (tokens.length != 6) {
-                            throw new IllegalArgumentException("The line (" + line + ") does not have 6 tokens ("
-                                    + tokens.length + ").");
-                        }
-                        location.setId(Long.parseLong(tokens[5]));
-                        location.setLatitude(Double.parseDouble(tokens[3]));
-                        location.setLongitude(Double.parseDouble(tokens[4]));
-                        location.setName(tokens[1] +  " (" + tokens[0] + ")");
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unsupported dataSource (" + dataSource + ").");
+    /**
+     * @param locationFile never null
+     * @param startId the id of the first location, unless the location file layout has an id column
+     * @return never null, a new list that the caller can modify
+     */
+    List<AirLocation> readAirLocationFile(File locationFile, long startId) {
+        List<AirLocation> locationList = readLocationColumns(locationFile).toAirLocationList(startId);
+        logger.info("Read {} cities.", locationList.size());
+        return locationList;
+    }
+
+    /**
+     * Parses every location file only once, even if it is used by many datasets and variants,
+     * unless it changed since it was parsed.
+     * @param locationFile never null
+     * @return never null
+     */
+    synchronized LocationColumns readLocationColumns(File locationFile) {
+        LocationFileKey key = new LocationFileKey(locationFile);
+        LocationColumns locationColumns = locationColumnsCache.get(key);
+        if (locationColumns == null) {
+            File mappedFile = offHeapLocationDir == null ? null : new File(offHeapLocationDir,
+                    "locations-" + locationFile.getName() + "-" + System.nanoTime() + ".bin");
+            try {
+                if (mappedFile != null) {
+                    FileUtils.forceMkdir(offHeapLocationDir);
                 }
-                locationList.add(location);
+                locationColumns = catalogue.getLocationFileLayout().parseLocationColumns(locationFile, mappedFile);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not read the locationFile (" + locationFile + ").", e);
             }
-        } catch (IOException e) {
-            throw new IllegalArgumentException("Could not read the locationFile (" + locationFile + ").", e);
-        } finally {
-            IOUtils.closeQuietly(bufferedReader);
+            logger.info("Read {} cities in {} bytes {}.", locationColumns.size(), locationColumns.getMemoryUsage(),
+                    locationColumns.isMapped() ? "off heap" : "on heap");
+            // Forget older versions of the same file
+            locationColumnsCache.keySet().removeIf(otherKey -> otherKey.path.equals(key.path));
+            locationColumnsCache.put(key, locationColumns);
         }
-        logger.info("Read {} cities.", locationList.size());
-        return locationList;
+        return locationColumns;
     }
 
-    private static class Point {
+    /**
+     * Identifies a version of a location file.
+     */
+    private static final class LocationFileKey {
 
-        public final double latitude;
-        public final double longitude;
+        private final String path;
+        private final long lastModified;
+        private final long length;
 
-        public Point(double latitude, double longitude) {
-            this.latitude = latitude;
-            this.longitude = longitude;
+        public LocationFileKey(File file) {
+            path = file.getAbsolutePath();
+            lastModified = file.lastModified();
+            length = file.length();
         }
 
         @Override
@@ -618,33 +1810,35 @@ public class FromCsvLocationsToVrpGenerator extends LoggingMain {
             if (this == o) {
                 return true;
             }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-            Point point = (Point) o;
-            if (Double.compare(point.latitude, latitude) != 0) {
-                return false;
-            }
-            if (Double.compare(point.longitude, longitude) != 0) {
+            if (!(o instanceof LocationFileKey)) {
                 return false;
             }
-            return true;
+            LocationFileKey other = (LocationFileKey) o;
+            return path.equals(other.path) && lastModified == other.lastModified && length == other.length;
         }
 
         @Override
         public int hashCode() {
-            int result;
-            long temp;
-            temp = Double.doubleToLongBits(latitude);
-            result = (int) (temp ^ (temp >>> 32));
-            temp = Double.doubleToLongBits(longitude);
-            result = 31 * result + (int) (temp ^ (temp >>> 32));
-            return result;
+            return Objects.hash(path, lastModified, length);
         }
 
-        @Override
-        public String toString() {
-            return "" + latitude + "," + longitude;
+    }
+
+    /**
+     * The routes from 1 location to every location and hub, as found by 1 shortest path tree.
+     */
+    private static class SegmentedRouteRow {
+
+        private final double[] distances;
+        private final int[] firstHubIndexes;
+        private final int[] lastHubIndexes;
+        private final double[] hubDistances;
+
+        private SegmentedRouteRow(int hubCount, int locationCount) {
+            distances = new double[locationCount];
+            firstHubIndexes = new int[locationCount];
+            lastHubIndexes = new int[locationCount];
+            hubDistances = new double[hubCount];
         }
 
     }
@@ -57,18 +57,35 @@ public enum GenerationDistanceType {
         return this == AIR_DISTANCE || this == ROAD_DISTANCE_KM || this == SEGMENTED_ROAD_DISTANCE_KM;
     }
 
+    public String getWeightingName() {
+        return isShortest() ? "shortest" : "fastest";
+    }
+
     public double extractDistance(PathWrapper path) {
+        if (this == AIR_DISTANCE) {
+            throw new IllegalStateException("The generationDistanceType (" + this
+                    + ") does not support GHResponse.");
+        }
+        return extractDistance(path.getDistance(), path.getTime());
+    }
+
+    /**
+     * @param distanceInMeters {@code >= 0}
+     * @param timeInMillis {@code >= 0}
+     * @return in the {@link #getUnitOfMeasurement() unit of measurement}
+     */
+    public double extractDistance(double distanceInMeters, long timeInMillis) {
         switch (this) {
             case AIR_DISTANCE:
                 throw new IllegalStateException("The generationDistanceType (" + this
-                        + ") does not support GHResponse.");
+                        + ") does not support road distances.");
             case ROAD_DISTANCE_KM:
             case SEGMENTED_ROAD_DISTANCE_KM:
                 // Distance should be in km, not meter
-                return path.getDistance() / 1000.0;
+                return distanceInMeters / 1000.0;
             case ROAD_DISTANCE_TIME:
             case SEGMENTED_ROAD_DISTANCE_TIME:
-                return path.getTime() / 1000.0;
+                return timeInMillis / 1000.0;
             default:
                 throw new IllegalStateException("The generationDistanceType (" + this
                         + ") is not implemented.");
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.util.List;
+
+import org.optaplanner.examples.common.app.LoggingMain;
+import org.optaplanner.examples.vehiclerouting.domain.location.Location;
+import org.optaplanner.examples.vehiclerouting.domain.location.segmented.HubSegmentLocation;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.DenseDistanceMatrix;
+import org.optaplanner.extension.vrpdatasetgenerator.matrix.SegmentedDistanceMatrix;
+
+/**
+ * Evaluates hub files, such as those of {@link BelgiumHubSuggester}, to tune the hub count:
+ * for every hub file, it reports the size, memory and generation time of the segmented matrix
+ * and how far its location distances deviate from the full road matrix.
+ * <p>
+ * The deviation is the extra distance of going through the hubs, compared to the shortest route.
+ * A negative deviation fails the generation, just like when writing the {@code SEGMENTED_EDGE_WEIGHT_SECTION}.
+ */
+public class HubSuggestionEvaluator extends LoggingMain {
+
+    public static void main(String[] args) {
+        if (args.length < 6) {
+            throw new IllegalArgumentException("Expected at least 6 arguments:"
+                    + " dataSource distanceType locationFile locationListSize depotListSize hubFile...");
+        }
+        FromCsvLocationsToVrpGenerator generator = new FromCsvLocationsToVrpGenerator(DataSource.valueOf(args[0]));
+        HubSuggestionEvaluator evaluator = new HubSuggestionEvaluator(generator,
+                GenerationDistanceType.valueOf(args[1]));
+        VrpDataset dataset = findDataset(generator.getCatalogue(), new File(args[2]),
+                Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+        for (int i = 5; i < args.length; i++) {
+            evaluator.evaluate(dataset, new File(args[i]));
+        }
+    }
+
+    /**
+     * @return never null, the dataset of the catalogue, so the same depots are selected as when generating it
+     */
+    private static VrpDataset findDataset(DatasetCatalogue catalogue, File locationFile,
+            int locationListSize, int depotListSize) {
+        for (VrpDataset dataset : catalogue.getDatasetList()) {
+            if (dataset.getLocationFile().getAbsoluteFile().equals(locationFile.getAbsoluteFile())
+                    && dataset.getLocationListSize() == locationListSize
+                    && dataset.getDepotListSize() == depotListSize) {
+                return dataset;
+            }
+        }
+        throw new IllegalArgumentException("The catalogue (" + catalogue + ") has no dataset with locationFile ("
+                + locationFile + "), locationListSize (" + locationListSize
+                + ") and depotListSize (" + depotListSize + ").");
+    }
+
+    private final FromCsvLocationsToVrpGenerator generator;
+    private final GenerationDistanceType distanceType;
+
+    /**
+     * @param generator never null, with an osmPath
+     * @param distanceType never null, must be {@link GenerationDistanceType#isSegmented() segmented}
+     */
+    public HubSuggestionEvaluator(FromCsvLocationsToVrpGenerator generator, GenerationDistanceType distanceType) {
+        if (!distanceType.isSegmented()) {
+            throw new IllegalArgumentException("The distanceType (" + distanceType + ") must be segmented.");
+        }
+        this.generator = generator;
+        this.distanceType = distanceType;
+    }
+
+    /**
+     * @param dataset never null, its depot count and names determine the selected locations
+     * @param hubFile never null, replaces the hubFile of the dataset
+     */
+    public HubEvaluation evaluate(VrpDataset dataset, File hubFile) {
+        List<HubSegmentLocation> hubList = generator.readHubList(hubFile, distanceType);
+        List<Location> locationList = generator.selectLocationSubList(dataset, hubList.size(), distanceType);
+        int locationCount = locationList.size();
+        DenseDistanceMatrix fullDistanceMatrix = new DenseDistanceMatrix(locationCount, locationCount);
+        long startTimeMillis = System.currentTimeMillis();
+        SegmentedDistanceMatrix segmentedMatrix = generator.calculateSegmentedMatrix(distanceType,
+                hubList, locationList, fullDistanceMatrix);
+        long timeMillis = System.currentTimeMillis() - startTimeMillis;
+
+        HubEvaluation evaluation = new HubEvaluation(hubFile, hubList.size(), locationCount,
+                segmentedMatrix.getEntryCount(), segmentedMatrix.getMemoryUsage(), timeMillis);
+        for (int fromIndex = 0; fromIndex < locationCount; fromIndex++) {
+            for (int toIndex = 0; toIndex < locationCount; toIndex++) {
+                if (fromIndex != toIndex) {
+                    evaluation.addDeviation(fullDistanceMatrix.getDistance(fromIndex, toIndex),
+                            segmentedMatrix.getLocationDistance(fromIndex, toIndex));
+                }
+            }
+        }
+        logger.info("{}", evaluation);
+        return evaluation;
+    }
+
+    public static class HubEvaluation {
+
+        private final File hubFile;
+        private final int hubCount;
+        private final int locationCount;
+        private final long entryCount;
+        private final long memoryUsage;
+        private final long timeMillis;
+
+        private long pairCount = 0L;
+        private double maxDeviation = 0.0;
+        private double deviationSum = 0.0;
+        private double maxRelativeDeviation = 0.0;
+        private double relativeDeviationSum = 0.0;
+
+        public HubEvaluation(File hubFile, int hubCount, int locationCount,
+                long entryCount, long memoryUsage, long timeMillis) {
+            this.hubFile = hubFile;
+            this.hubCount = hubCount;
+            this.locationCount = locationCount;
+            this.entryCount = entryCount;
+            this.memoryUsage = memoryUsage;
+            this.timeMillis = timeMillis;
+        }
+
+        private void addDeviation(double fullDistance, double segmentedDistance) {
+            double deviation = segmentedDistance - fullDistance;
+            double relativeDeviation = deviation / fullDistance;
+            pairCount++;
+            maxDeviation = Math.max(maxDeviation, deviation);
+            deviationSum += deviation;
+            maxRelativeDeviation = Math.max(maxRelativeDeviation, relativeDeviation);
+            relativeDeviationSum += relativeDeviation;
+        }
+
+        public File getHubFile() {
+            return hubFile;
+        }
+
+        public int getHubCount() {
+            return hubCount;
+        }
+
+        public int getLocationCount() {
+            return locationCount;
+        }
+
+        /**
+         * @return the number of distances in the {@code SEGMENTED_EDGE_WEIGHT_SECTION}
+         */
+        public long getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * @return the number of distances in a full {@code EDGE_WEIGHT_SECTION}
+         */
+        public long getFullEntryCount() {
+            return (long) locationCount * (locationCount - 1);
+        }
+
+        public long getMemoryUsage() {
+            return memoryUsage;
+        }
+
+        /**
+         * @return the memory usage of a {@link DenseDistanceMatrix} of all locations
+         */
+        public long getFullMemoryUsage() {
+            return (long) locationCount * locationCount * 8L;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public double getMaxDeviation() {
+            return maxDeviation;
+        }
+
+        public double getMeanDeviation() {
+            return pairCount == 0L ? 0.0 : deviationSum / pairCount;
+        }
+
+        public double getMaxRelativeDeviation() {
+            return maxRelativeDeviation;
+        }
+
+        public double getMeanRelativeDeviation() {
+            return pairCount == 0L ? 0.0 : relativeDeviationSum / pairCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d hubs, %d/%d entries, %d/%d bytes, %d ms,"
+                            + " deviation max %.3f mean %.3f, relative deviation max %.2f%% mean %.2f%%",
+                    hubFile.getName(), hubCount, entryCount, getFullEntryCount(),
+                    memoryUsage, getFullMemoryUsage(), timeMillis,
+                    maxDeviation, getMeanDeviation(),
+                    maxRelativeDeviation * 100.0, getMeanRelativeDeviation() * 100.0);
+        }
+
+    }
+
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
+import org.optaplanner.extension.vrpdatasetgenerator.location.LocationColumns;
+
+/**
+ * The column mapping of a location CSV file, without a header line.
+ * Columns are 0-based.
+ */
+@XStreamAlias("locationFileLayout")
+public class LocationFileLayout {
+
+    /**
+     * Null for {@code ;}.
+     */
+    private String separator = null;
+    /**
+     * Null to not check the number of columns.
+     */
+    private Integer columnCount = null;
+    /**
+     * Null to number the locations sequentially, in file order.
+     */
+    private Integer idColumn = null;
+    private Integer latitudeColumn = null;
+    private Integer longitudeColumn = null;
+    /**
+     * Null if there is no name column or if the namePattern is used.
+     */
+    private Integer nameColumn = null;
+    /**
+     * Null to use the nameColumn, otherwise a {@link MessageFormat} pattern with the columns as arguments,
+     * for example {@code {1} ({0})}.
+     */
+    private String namePattern = null;
+    /**
+     * Null if the coordinates are in degrees, otherwise the factor that they are multiplied with in the file,
+     * for example {@code 1000} for the USA file. Only routing needs degrees:
+     * air distances and the {@code NODE_COORD_SECTION} use the coordinates of the file as they are.
+     */
+    private Double coordinateScale = null;
+
+    private transient Pattern separatorRegex = null;
+
+    public LocationFileLayout() {
+    }
+
+    public LocationFileLayout(Integer columnCount, Integer idColumn, Integer latitudeColumn, Integer longitudeColumn,
+            Integer nameColumn) {
+        this.columnCount = columnCount;
+        this.idColumn = idColumn;
+        this.latitudeColumn = latitudeColumn;
+        this.longitudeColumn = longitudeColumn;
+        this.nameColumn = nameColumn;
+    }
+
+    public String getSeparator() {
+        return separator == null ? ";" : separator;
+    }
+
+    public void setSeparator(String separator) {
+        this.separator = separator;
+        separatorRegex = null;
+    }
+
+    public Integer getColumnCount() {
+        return columnCount;
+    }
+
+    public void setColumnCount(Integer columnCount) {
+        this.columnCount = columnCount;
+    }
+
+    public Integer getIdColumn() {
+        return idColumn;
+    }
+
+    public void setIdColumn(Integer idColumn) {
+        this.idColumn = idColumn;
+    }
+
+    public Integer getLatitudeColumn() {
+        return latitudeColumn;
+    }
+
+    public void setLatitudeColumn(Integer latitudeColumn) {
+        this.latitudeColumn = latitudeColumn;
+    }
+
+    public Integer getLongitudeColumn() {
+        return longitudeColumn;
+    }
+
+    public void setLongitudeColumn(Integer longitudeColumn) {
+        this.longitudeColumn = longitudeColumn;
+    }
+
+    public Integer getNameColumn() {
+        return nameColumn;
+    }
+
+    public void setNameColumn(Integer nameColumn) {
+        this.nameColumn = nameColumn;
+    }
+
+    public String getNamePattern() {
+        return namePattern;
+    }
+
+    public void setNamePattern(String namePattern) {
+        this.namePattern = namePattern;
+    }
+
+    public Double getCoordinateScale() {
+        return coordinateScale;
+    }
+
+    public void setCoordinateScale(Double coordinateScale) {
+        this.coordinateScale = coordinateScale;
+    }
+
+    /**
+     * @param coordinate a latitude or longitude in the file
+     * @return in degrees
+     */
+    public double toDegrees(double coordinate) {
+        return coordinateScale == null ? coordinate : coordinate / coordinateScale;
+    }
+
+    public void validate() {
+        if (latitudeColumn == null || longitudeColumn == null) {
+            throw new IllegalArgumentException("The locationFileLayout must have a latitudeColumn ("
+                    + latitudeColumn + ") and a longitudeColumn (" + longitudeColumn + ").");
+        }
+        if (coordinateScale != null && !(coordinateScale > 0.0)) {
+            throw new IllegalArgumentException("The coordinateScale (" + coordinateScale + ") must be positive.");
+        }
+        if (getSeparator().isEmpty()) {
+            throw new IllegalArgumentException("The separator (" + separator + ") must not be empty.");
+        }
+        if (columnCount != null) {
+            for (Integer column : new Integer[] {idColumn, latitudeColumn, longitudeColumn, nameColumn}) {
+                if (column != null && (column < 0 || column >= columnCount)) {
+                    throw new IllegalArgumentException("The column (" + column
+                            + ") must be between 0 and the columnCount (" + columnCount + ").");
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the whole file with {@link LineParser}.
+     * @param locationFile never null
+     * @return never null, on the heap
+     */
+    public LocationColumns parseLocationColumns(File locationFile) throws IOException {
+        return parseLocationColumns(locationFile, null);
+    }
+
+    /**
+     * Parses the whole file with {@link LineParser}.
+     * @param locationFile never null
+     * @param mappedFile null to keep the columns on the heap,
+     * otherwise the file to memory-map them in, see {@link LocationColumns.Builder#buildMapped(File)}
+     * @return never null
+     */
+    public LocationColumns parseLocationColumns(File locationFile, File mappedFile) throws IOException {
+        LineParser lineParser = new LineParser();
+        LocationColumns.Builder builder = new LocationColumns.Builder(idColumn == null);
+        try (BufferedReader bufferedReader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(locationFile), StandardCharsets.UTF_8), 64 * 1024)) {
+            for (String line = bufferedReader.readLine(); line != null; line = bufferedReader.readLine()) {
+                lineParser.parse(line);
+                builder.add(lineParser.parseId(0L), lineParser.parseLatitude(), lineParser.parseLongitude(),
+                        lineParser.parseName());
+            }
+        }
+        return mappedFile == null ? builder.build() : builder.buildMapped(mappedFile);
+    }
+
+    /**
+     * @param line never null
+     * @param sequentialId the id if there is no idColumn
+     * @return never null
+     */
+    public AirLocation parseLocation(String line, long sequentialId) {
+        LineParser lineParser = new LineParser();
+        lineParser.parse(line);
+        AirLocation location = new AirLocation();
+        location.setId(lineParser.parseId(sequentialId));
+        location.setLatitude(lineParser.parseLatitude());
+        location.setLongitude(lineParser.parseLongitude());
+        location.setName(lineParser.parseName());
+        return location;
+    }
+
+    private Pattern getSeparatorRegex() {
+        if (separatorRegex == null) {
+            separatorRegex = Pattern.compile(Pattern.quote(getSeparator()));
+        }
+        return separatorRegex;
+    }
+
+    /**
+     * Finds the column boundaries of 1 line with {@link String#indexOf(String, int)},
+     * instead of splitting it into a token array with a regular expression,
+     * and then only extracts the columns that the layout uses.
+     * Like {@link String#split(String)}, trailing empty columns don't count for the columnCount.
+     * <p>
+     * This class is not thread-safe, but it is reused for every line of a file.
+     */
+    private class LineParser {
+
+        private final String separator = getSeparator();
+        private final int[] columnStarts;
+        private final int[] columnEnds;
+        private String line;
+
+        public LineParser() {
+            int maxColumn = 0;
+            for (Integer column : new Integer[] {idColumn, latitudeColumn, longitudeColumn, nameColumn}) {
+                if (column != null) {
+                    maxColumn = Math.max(maxColumn, column);
+                }
+            }
+            columnStarts = new int[maxColumn + 1];
+            columnEnds = new int[maxColumn + 1];
+        }
+
+        public void parse(String line) {
+            this.line = line;
+            Arrays.fill(columnStarts, -1);
+            int lineLength = line.length();
+            int columnCount = 0;
+            int nonEmptyColumnCount = 0;
+            int start = 0;
+            while (true) {
+                int end = line.indexOf(separator, start);
+                if (end < 0) {
+                    end = lineLength;
+                }
+                if (columnCount < columnStarts.length) {
+                    columnStarts[columnCount] = start;
+                    columnEnds[columnCount] = end;
+                }
+                columnCount++;
+                if (end > start) {
+                    nonEmptyColumnCount = columnCount;
+                }
+                if (end == lineLength) {
+                    break;
+                }
+                start = end + separator.length();
+            }
+            if (lineLength == 0) {
+                nonEmptyColumnCount = 1;
+            }
+            if (LocationFileLayout.this.columnCount != null
+                    && nonEmptyColumnCount != LocationFileLayout.this.columnCount) {
+                throw new IllegalArgumentException("The line (" + line + ") does not have "
+                        + LocationFileLayout.this.columnCount + " tokens (" + nonEmptyColumnCount + ").");
+            }
+        }
+
+        public long parseId(long sequentialId) {
+            return idColumn == null ? sequentialId : Long.parseLong(column(idColumn));
+        }
+
+        public double parseLatitude() {
+            return Double.parseDouble(column(latitudeColumn));
+        }
+
+        public double parseLongitude() {
+            return Double.parseDouble(column(longitudeColumn));
+        }
+
+        /**
+         * @return null if the layout has no name
+         */
+        public String parseName() {
+            if (namePattern != null) {
+                // Rare, so not worth a split-free implementation
+                return MessageFormat.format(namePattern, (Object[]) getSeparatorRegex().split(line));
+            }
+            return nameColumn == null ? null : column(nameColumn);
+        }
+
+        private String column(int column) {
+            if (columnStarts[column] < 0) {
+                throw new IllegalArgumentException("The line (" + line + ") does not have a column (" + column + ").");
+            }
+            return line.substring(columnStarts[column], columnEnds[column]);
+        }
+
+    }
+
+}
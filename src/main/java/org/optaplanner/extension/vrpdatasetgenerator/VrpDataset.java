@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+import com.thoughtworks.xstream.annotations.XStreamImplicit;
+
+/**
+ * 1 dataset instance of the {@link DatasetCatalogue}, which is written in multiple {@link VrpVariant}s.
+ */
+@XStreamAlias("dataset")
+public class VrpDataset {
+
+    private final File locationFile;
+    private final File hubFile;
+    private final int locationListSize;
+    private final int depotListSize;
+    private final int vehicleListSize;
+    private final int capacity;
+    /**
+     * Null to use the first locations of the location file as depots,
+     * otherwise the names of the depot locations.
+     */
+    @XStreamImplicit(itemFieldName = "depotName")
+    private final List<String> depotNameList;
+
+    /**
+     * @param hubFile null if no segmented road distances are generated
+     */
+    public VrpDataset(File locationFile, File hubFile, int locationListSize, int depotListSize, int vehicleListSize,
+            int capacity) {
+        this(locationFile, hubFile, locationListSize, depotListSize, vehicleListSize, capacity, null);
+    }
+
+    /**
+     * @param depotNameList null to use the first locations as depots, otherwise of size depotListSize
+     */
+    public VrpDataset(File locationFile, File hubFile, int locationListSize, int depotListSize, int vehicleListSize,
+            int capacity, List<String> depotNameList) {
+        this.locationFile = locationFile;
+        this.hubFile = hubFile;
+        this.locationListSize = locationListSize;
+        this.depotListSize = depotListSize;
+        this.vehicleListSize = vehicleListSize;
+        this.capacity = capacity;
+        this.depotNameList = depotNameList;
+    }
+
+    public File getLocationFile() {
+        return locationFile;
+    }
+
+    public File getHubFile() {
+        return hubFile;
+    }
+
+    public int getLocationListSize() {
+        return locationListSize;
+    }
+
+    public int getDepotListSize() {
+        return depotListSize;
+    }
+
+    public int getVehicleListSize() {
+        return vehicleListSize;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return null if the first locations are the depots
+     */
+    public List<String> getDepotNameList() {
+        return depotNameList == null || depotNameList.isEmpty() ? null : Collections.unmodifiableList(depotNameList);
+    }
+
+    public void validate() {
+        if (locationFile == null) {
+            throw new IllegalArgumentException("The dataset (" + this + ") must have a locationFile.");
+        }
+        if (depotListSize < 1 || locationListSize <= depotListSize) {
+            throw new IllegalArgumentException("The dataset (" + this + ")'s depotListSize (" + depotListSize
+                    + ") must be at least 1 and less than the locationListSize (" + locationListSize + ").");
+        }
+        if (vehicleListSize < 1 || capacity < 1) {
+            throw new IllegalArgumentException("The dataset (" + this + ")'s vehicleListSize (" + vehicleListSize
+                    + ") and capacity (" + capacity + ") must be at least 1.");
+        }
+        List<String> depotNameList = getDepotNameList();
+        if (depotNameList != null && depotNameList.size() != depotListSize) {
+            throw new IllegalArgumentException("The dataset (" + this + ")'s depotNameList (" + depotNameList
+                    + ") must have depotListSize (" + depotListSize + ") names.");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (locationFile == null ? "null" : locationFile.getName()).replaceAll("\\-\\d+\\.csv", "")
+                + (depotListSize != 1 ? "-d" + depotListSize : "")
+                + "-n" + locationListSize + "-k" + vehicleListSize;
+    }
+
+}
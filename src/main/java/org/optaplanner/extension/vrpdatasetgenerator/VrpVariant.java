@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import com.thoughtworks.xstream.annotations.XStreamAlias;
+
+/**
+ * 1 output file flavor of a dataset instance.
+ */
+@XStreamAlias("variant")
+public class VrpVariant {
+
+    private final GenerationDistanceType distanceType;
+    private final VrpType vrpType;
+    /**
+     * Null to write this variant for every dataset,
+     * otherwise only for the datasets with at most this many locations.
+     */
+    private final Integer maxLocationListSize;
+
+    public VrpVariant(GenerationDistanceType distanceType, VrpType vrpType) {
+        this(distanceType, vrpType, null);
+    }
+
+    public VrpVariant(GenerationDistanceType distanceType, VrpType vrpType, Integer maxLocationListSize) {
+        this.distanceType = distanceType;
+        this.vrpType = vrpType;
+        this.maxLocationListSize = maxLocationListSize;
+    }
+
+    public GenerationDistanceType getDistanceType() {
+        return distanceType;
+    }
+
+    public VrpType getVrpType() {
+        return vrpType;
+    }
+
+    public Integer getMaxLocationListSize() {
+        return maxLocationListSize;
+    }
+
+    /**
+     * @param dataset never null
+     * @return true if this variant is written for that dataset
+     */
+    public boolean isApplicable(VrpDataset dataset) {
+        return maxLocationListSize == null || dataset.getLocationListSize() <= maxLocationListSize;
+    }
+
+    @Override
+    public String toString() {
+        return distanceType + "-" + vrpType;
+    }
+
+}
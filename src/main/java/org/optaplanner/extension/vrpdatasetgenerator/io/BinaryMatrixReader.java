@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a {@code .vrpm} file written by {@link BinaryMatrixWriter} without copying it onto the heap:
+ * the matrix is memory-mapped read-only and every value is decoded on access.
+ * <p>
+ * This class is thread-safe.
+ */
+public class BinaryMatrixReader implements Closeable {
+
+    /**
+     * Keeps every mapped chunk below 2 GB and aligned on a row.
+     */
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+    private final File file;
+    private final FileChannel channel;
+    private final int dimension;
+    private final BinaryMatrixValueType valueType;
+    private final int scale;
+    private final double inverseScaleFactor;
+    private final String unitOfMeasurement;
+    private final long[] ids;
+    private final int rowsPerChunk;
+    private final MappedByteBuffer[] chunks;
+
+    public static BinaryMatrixReader open(File file) {
+        try {
+            return new BinaryMatrixReader(file);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read the file (" + file + ").", e);
+        }
+    }
+
+    private BinaryMatrixReader(File file) throws IOException {
+        this.file = file;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long fileSize = channel.size();
+            if (fileSize < BinaryMatrixWriter.HEADER_SIZE) {
+                throw new IllegalArgumentException("The file (" + file + ") is too small to be a vrpm file.");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0L, BinaryMatrixWriter.HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != BinaryMatrixWriter.MAGIC) {
+                throw new IllegalArgumentException("The file (" + file + ") is not a vrpm file.");
+            }
+            int version = header.getInt(4);
+            if (version != BinaryMatrixWriter.VERSION) {
+                throw new IllegalArgumentException("The file (" + file + ") has an unsupported version ("
+                        + version + ").");
+            }
+            dimension = header.getInt(8);
+            valueType = BinaryMatrixValueType.valueOfCode(header.getInt(12));
+            scale = header.getInt(16);
+            inverseScaleFactor = 1.0 / Math.pow(10.0, scale);
+            byte[] unitBytes = new byte[BinaryMatrixWriter.UNIT_SIZE];
+            header.position(24);
+            header.get(unitBytes);
+            int unitLength = 0;
+            while (unitLength < unitBytes.length && unitBytes[unitLength] != 0) {
+                unitLength++;
+            }
+            unitOfMeasurement = new String(unitBytes, 0, unitLength, StandardCharsets.US_ASCII);
+            long idsOffset = BinaryMatrixWriter.HEADER_SIZE;
+            long matrixOffset = idsOffset + 8L * dimension;
+            long rowSize = 4L * dimension;
+            if (fileSize != matrixOffset + rowSize * dimension) {
+                throw new IllegalArgumentException("The file (" + file + ") has size (" + fileSize
+                        + ") instead of (" + (matrixOffset + rowSize * dimension) + ") for dimension ("
+                        + dimension + ").");
+            }
+            ids = new long[dimension];
+            if (dimension > 0) {
+                MappedByteBuffer idBuffer = channel.map(FileChannel.MapMode.READ_ONLY, idsOffset, 8L * dimension);
+                idBuffer.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = 0; i < dimension; i++) {
+                    ids[i] = idBuffer.getLong(i * 8);
+                }
+            }
+            rowsPerChunk = dimension == 0 ? 1 : (int) Math.min(dimension, MAX_CHUNK_SIZE / rowSize);
+            int chunkCount = (dimension + rowsPerChunk - 1) / rowsPerChunk;
+            chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                int chunkRowCount = Math.min(rowsPerChunk, dimension - i * rowsPerChunk);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        matrixOffset + (long) i * rowsPerChunk * rowSize, chunkRowCount * rowSize);
+                chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public BinaryMatrixValueType getValueType() {
+        return valueType;
+    }
+
+    public String getUnitOfMeasurement() {
+        return unitOfMeasurement;
+    }
+
+    /**
+     * @param index {@code 0 <= index < dimension}
+     * @return the location id of that row and column
+     */
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @param fromIndex {@code 0 <= fromIndex < dimension}
+     * @param toIndex {@code 0 <= toIndex < dimension}
+     * @return in the {@link #getUnitOfMeasurement() unit of measurement}
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        MappedByteBuffer chunk = chunks[fromIndex / rowsPerChunk];
+        int offset = ((fromIndex % rowsPerChunk) * dimension + toIndex) * 4;
+        switch (valueType) {
+            case FLOAT32:
+                return chunk.getFloat(offset);
+            case INT32:
+                return chunk.getInt(offset) * inverseScaleFactor;
+            default:
+                throw new IllegalStateException("The valueType (" + valueType + ") is not implemented.");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
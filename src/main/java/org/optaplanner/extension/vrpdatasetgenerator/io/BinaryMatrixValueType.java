@@ -0,0 +1,53 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.io;
+
+/**
+ * How each matrix value is stored in a {@code .vrpm} file.
+ */
+public enum BinaryMatrixValueType {
+    /**
+     * IEEE 754 single precision: about 7 significant digits, so 3 decimals for values up to 10000.
+     */
+    FLOAT32,
+    /**
+     * The value multiplied by 10^scale and rounded half even, as a signed 32 bit integer:
+     * exactly the digits of the text format.
+     */
+    INT32;
+
+    public int getCode() {
+        switch (this) {
+            case FLOAT32:
+                return 1;
+            case INT32:
+                return 2;
+            default:
+                throw new IllegalStateException("The valueType (" + this + ") is not implemented.");
+        }
+    }
+
+    public static BinaryMatrixValueType valueOfCode(int code) {
+        for (BinaryMatrixValueType valueType : values()) {
+            if (valueType.getCode() == code) {
+                return valueType;
+            }
+        }
+        throw new IllegalArgumentException("The code (" + code + ") is not a valid valueType.");
+    }
+
+}
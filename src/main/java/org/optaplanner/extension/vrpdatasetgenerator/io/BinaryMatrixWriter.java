@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a full distance matrix in the compact binary {@code .vrpm} format, 1 value at a time, in row major order.
+ * <p>
+ * All numbers are little endian:
+ * <ul>
+ * <li>Header of {@link #HEADER_SIZE} bytes: magic {@code "VRPM"}, version, dimension n, valueType code,
+ * scale (the number of decimals, only used by {@link BinaryMatrixValueType#INT32}), 4 reserved bytes
+ * and the unit of measurement in ASCII, zero padded to {@link #UNIT_SIZE} bytes.</li>
+ * <li>n location ids as int64.</li>
+ * <li>n * n values as float32 or int32, row by row.</li>
+ * </ul>
+ * The matrix starts at a multiple of 8 bytes, so {@link BinaryMatrixReader} can map it directly.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class BinaryMatrixWriter implements Closeable {
+
+    public static final String FILE_EXTENSION = "vrpm";
+    public static final int MAGIC = 0x4D505256; // "VRPM" in little endian
+    public static final int VERSION = 1;
+    public static final int UNIT_SIZE = 24;
+    public static final int HEADER_SIZE = 48;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final BinaryMatrixValueType valueType;
+    private final int scale;
+    private final double scaleFactor;
+    private final long expectedValueCount;
+    private long valueCount = 0L;
+
+    /**
+     * @param file never null
+     * @param ids never null, the location id of each row (and column)
+     * @param valueType never null
+     * @param scale {@code >= 0}, the number of decimals kept by {@link BinaryMatrixValueType#INT32}
+     * @param unitOfMeasurement never null, ASCII, at most {@link #UNIT_SIZE} characters
+     */
+    public BinaryMatrixWriter(File file, long[] ids, BinaryMatrixValueType valueType, int scale,
+            String unitOfMeasurement) throws IOException {
+        byte[] unitBytes = unitOfMeasurement.getBytes(StandardCharsets.US_ASCII);
+        if (unitBytes.length > UNIT_SIZE) {
+            throw new IllegalArgumentException("The unitOfMeasurement (" + unitOfMeasurement
+                    + ") is longer than " + UNIT_SIZE + " characters.");
+        }
+        if (scale < 0 || scale > 9) {
+            throw new IllegalArgumentException("The scale (" + scale + ") must be between 0 and 9.");
+        }
+        this.file = file;
+        this.valueType = valueType;
+        this.scale = scale;
+        scaleFactor = Math.pow(10.0, scale);
+        expectedValueCount = (long) ids.length * ids.length;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(ids.length);
+        buffer.putInt(valueType.getCode());
+        buffer.putInt(valueType == BinaryMatrixValueType.INT32 ? scale : 0);
+        buffer.putInt(0);
+        buffer.put(unitBytes);
+        for (int i = unitBytes.length; i < UNIT_SIZE; i++) {
+            buffer.put((byte) 0);
+        }
+        for (long id : ids) {
+            ensureRemaining(8);
+            buffer.putLong(id);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @param value the next value, in row major order
+     */
+    public void writeValue(double value) throws IOException {
+        if (valueCount >= expectedValueCount) {
+            throw new IllegalStateException("The file (" + file + ") already has all its "
+                    + expectedValueCount + " values.");
+        }
+        ensureRemaining(4);
+        switch (valueType) {
+            case FLOAT32:
+                buffer.putFloat((float) value);
+                break;
+            case INT32:
+                buffer.putInt(toInt(value));
+                break;
+            default:
+                throw new IllegalStateException("The valueType (" + valueType + ") is not implemented.");
+        }
+        valueCount++;
+    }
+
+    private int toInt(double value) {
+        double scaled = value * scaleFactor;
+        if (!(Math.abs(scaled) < Integer.MAX_VALUE)) {
+            throw new IllegalArgumentException("The value (" + value + ") does not fit in an int32 with scale ("
+                    + scale + ").");
+        }
+        double rounded = Math.rint(scaled);
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) < 1e-4) {
+            // Near a tie, round the exact binary value like the text format does
+            return new BigDecimal(value).setScale(scale, RoundingMode.HALF_EVEN).unscaledValue().intValue();
+        }
+        return (int) rounded;
+    }
+
+    private void ensureRemaining(int byteCount) throws IOException {
+        if (buffer.remaining() < byteCount) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @throws IllegalStateException if not all n * n values were written
+     */
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            flushBuffer();
+        } finally {
+            channel.close();
+        }
+        if (valueCount != expectedValueCount) {
+            throw new IllegalStateException("The file (" + file + ") only has " + valueCount
+                    + " values instead of " + expectedValueCount + ".");
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * UTF-8 {@link Writer} that formats doubles with a fixed number of decimals and longs
+ * directly into a reusable byte buffer, which is flushed through a {@link WritableByteChannel}.
+ * <p>
+ * {@link #writeFixed(double)} writes exactly what {@code new DecimalFormat("0.000").format(value)} returns
+ * (for a scale of 3) in an English locale: HALF_EVEN rounding of the exact binary value, no grouping.
+ * It doesn't allocate, except for the rare values that are a rounding tie (or too close to one to decide
+ * with double arithmetic), negative, huge or not finite, which fall back to {@link DecimalFormat}.
+ * <p>
+ * Between {@link #startMirror(FixedPrecisionWriter)} and {@link #stopMirror()},
+ * every byte is also appended to another writer's channel, so a section that 2 files share is formatted once.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class FixedPrecisionWriter extends Writer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /**
+     * Below this scaled value, the ulp of the scaled double is at most 2^-19,
+     * far smaller than {@link #TIE_MARGIN}.
+     */
+    private static final double MAX_FAST_SCALED_VALUE = 0x1p33;
+    private static final double TIE_MARGIN = 1e-4;
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final int scale;
+    private final long scaleFactor;
+    private final DecimalFormat fallbackFormat;
+    /**
+     * Enough for the digits of {@link Long#MIN_VALUE}.
+     */
+    private final byte[] digitBuffer = new byte[20];
+    private char pendingHighSurrogate = 0;
+    private FixedPrecisionWriter mirror = null;
+
+    public static FixedPrecisionWriter open(File file, int scale) throws IOException {
+        return new FixedPrecisionWriter(FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), scale);
+    }
+
+    /**
+     * @param channel never null, closed when this writer is closed
+     * @param scale {@code 0 <= scale < 10}, the number of decimals
+     */
+    public FixedPrecisionWriter(WritableByteChannel channel, int scale) {
+        this(channel, scale, DEFAULT_BUFFER_SIZE);
+    }
+
+    public FixedPrecisionWriter(WritableByteChannel channel, int scale, int bufferSize) {
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("The scale (" + scale + ") must be between 0 and "
+                    + (POWERS_OF_TEN.length - 1) + ".");
+        }
+        if (bufferSize < 64) {
+            throw new IllegalArgumentException("The bufferSize (" + bufferSize + ") must be at least 64.");
+        }
+        this.channel = channel;
+        this.scale = scale;
+        scaleFactor = POWERS_OF_TEN[scale];
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        StringBuilder pattern = new StringBuilder("0");
+        if (scale > 0) {
+            pattern.append('.');
+            for (int i = 0; i < scale; i++) {
+                pattern.append('0');
+            }
+        }
+        fallbackFormat = new DecimalFormat(pattern.toString(), DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * @param value any double
+     */
+    public void writeFixed(double value) throws IOException {
+        double scaled = value * scaleFactor;
+        if (!(value >= 0.0) || scaled >= MAX_FAST_SCALED_VALUE
+                || (value == 0.0 && Double.doubleToRawLongBits(value) != 0L)) {
+            // Negative (including -0.0), NaN or huge
+            write(fallbackFormat.format(value));
+            return;
+        }
+        long floor = (long) scaled;
+        double fraction = scaled - floor;
+        if (Math.abs(fraction - 0.5) < TIE_MARGIN) {
+            // The exact binary value might be on the other side of the tie, or it is a tie for HALF_EVEN
+            write(fallbackFormat.format(value));
+            return;
+        }
+        long rounded = fraction < 0.5 ? floor : floor + 1L;
+        writeLong(rounded / scaleFactor);
+        if (scale > 0) {
+            ensureRemaining(scale + 1);
+            buffer.put((byte) '.');
+            long decimals = rounded % scaleFactor;
+            for (int i = scale - 1; i >= 0; i--) {
+                long power = POWERS_OF_TEN[i];
+                buffer.put((byte) ('0' + (decimals / power)));
+                decimals %= power;
+            }
+        }
+    }
+
+    public void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            write(Long.toString(value));
+            return;
+        }
+        ensureRemaining(digitBuffer.length);
+        if (value < 0L) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int position = digitBuffer.length;
+        do {
+            position--;
+            digitBuffer[position] = (byte) ('0' + (value % 10L));
+            value /= 10L;
+        } while (value != 0L);
+        buffer.put(digitBuffer, position, digitBuffer.length - position);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            writeChar(chars[i]);
+        }
+    }
+
+    @Override
+    public void write(String string, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            writeChar(string.charAt(i));
+        }
+    }
+
+    private void writeChar(char c) throws IOException {
+        ensureRemaining(4);
+        if (pendingHighSurrogate != 0) {
+            char highSurrogate = pendingHighSurrogate;
+            pendingHighSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(highSurrogate, c);
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                return;
+            }
+            // Unpaired surrogate: same replacement as the JDK's UTF-8 encoder
+            buffer.put((byte) '?');
+            ensureRemaining(4);
+        }
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | (c >> 6)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            pendingHighSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | (c >> 12)));
+            buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            buffer.put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    /**
+     * Also appends everything written from now on to the channel of the mirror, after what the mirror wrote so far.
+     * @param mirror never null, not this writer, must not be written to until {@link #stopMirror()}
+     */
+    public void startMirror(FixedPrecisionWriter mirror) throws IOException {
+        if (mirror == this) {
+            throw new IllegalArgumentException("The mirror (" + mirror + ") must not be this writer.");
+        }
+        if (this.mirror != null) {
+            throw new IllegalStateException("The writer already mirrors to another writer (" + this.mirror + ").");
+        }
+        flushBuffer();
+        mirror.flushBuffer();
+        this.mirror = mirror;
+    }
+
+    /**
+     * Writes the buffer to both channels and stops mirroring.
+     * Does nothing if it's not mirroring.
+     */
+    public void stopMirror() throws IOException {
+        if (mirror == null) {
+            return;
+        }
+        if (pendingHighSurrogate != 0) {
+            throw new IllegalStateException("The mirrored section ends with an unpaired high surrogate.");
+        }
+        flushBuffer();
+        mirror = null;
+    }
+
+    private void ensureRemaining(int byteCount) throws IOException {
+        if (buffer.remaining() < byteCount) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        if (mirror != null) {
+            ByteBuffer mirrorBuffer = buffer.duplicate();
+            while (mirrorBuffer.hasRemaining()) {
+                mirror.channel.write(mirrorBuffer);
+            }
+        }
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffer to the channel, but doesn't force the channel to disk.
+     */
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            if (pendingHighSurrogate != 0) {
+                pendingHighSurrogate = 0;
+                ensureRemaining(1);
+                buffer.put((byte) '?');
+            }
+            flushBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.extension.vrpdatasetgenerator.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Scans the lines of a UTF-8 file through a reusable byte buffer and tracks the byte position of every line,
+ * so a big block of lines can be skipped without decoding it and then copied as a raw byte range
+ * with {@link #transferTo(long, long, FileChannel)}.
+ * <p>
+ * Lines end with {@code \n}, a trailing {@code \r} is stripped from a read line.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class LineScanner implements Closeable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer byteBuffer;
+    /**
+     * The file position of {@code buffer[0]}.
+     */
+    private long bufferStartPosition = 0L;
+    private int bufferIndex = 0;
+    private int bufferLimit = 0;
+    private byte[] lineBuffer = new byte[256];
+
+    public static LineScanner open(File file) throws IOException {
+        return new LineScanner(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * @param channel never null, read from its current position and closed when this scanner is closed
+     */
+    public LineScanner(FileChannel channel) throws IOException {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public LineScanner(FileChannel channel, int bufferSize) throws IOException {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("The bufferSize (" + bufferSize + ") must be at least 1.");
+        }
+        this.channel = channel;
+        buffer = new byte[bufferSize];
+        byteBuffer = ByteBuffer.wrap(buffer);
+        bufferStartPosition = channel.position();
+    }
+
+    /**
+     * @return {@code >= 0}, the file position of the start of the next line
+     */
+    public long getPosition() {
+        return bufferStartPosition + bufferIndex;
+    }
+
+    /**
+     * @return null at the end of the file, otherwise the next line without its line ending
+     */
+    public String readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            if (bufferIndex == bufferLimit && !fillBuffer()) {
+                if (length == 0) {
+                    return null;
+                }
+                break;
+            }
+            byte b = buffer[bufferIndex++];
+            if (b == '\n') {
+                break;
+            }
+            if (length == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, length * 2);
+            }
+            lineBuffer[length++] = b;
+        }
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        return new String(lineBuffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skips lines without decoding them.
+     * @param lineCount {@code >= 0}
+     * @throws IllegalStateException if the file ends before that many lines
+     */
+    public void skipLines(int lineCount) throws IOException {
+        int remaining = lineCount;
+        while (remaining > 0) {
+            if (bufferIndex == bufferLimit && !fillBuffer()) {
+                throw new IllegalStateException("The file ended after " + (lineCount - remaining)
+                        + " of the lineCount (" + lineCount + ") lines to skip.");
+            }
+            for (int i = bufferIndex; i < bufferLimit; i++) {
+                if (buffer[i] == '\n') {
+                    remaining--;
+                    if (remaining == 0) {
+                        bufferIndex = i + 1;
+                        return;
+                    }
+                }
+            }
+            bufferIndex = bufferLimit;
+        }
+    }
+
+    /**
+     * Copies a byte range of the scanned file to the current position of the target,
+     * zero-copy if the operating system supports it. It does not move the position of this scanner.
+     * @param startPosition {@code >= 0}
+     * @param endPosition {@code >= startPosition}, exclusive
+     * @param target never null
+     */
+    public void transferTo(long startPosition, long endPosition, FileChannel target) throws IOException {
+        long position = startPosition;
+        while (position < endPosition) {
+            long transferred = channel.transferTo(position, endPosition - position, target);
+            if (transferred <= 0L) {
+                throw new IllegalStateException("The file ended at position (" + position
+                        + ") before the endPosition (" + endPosition + ").");
+            }
+            position += transferred;
+        }
+    }
+
+    private boolean fillBuffer() throws IOException {
+        bufferStartPosition += bufferLimit;
+        bufferIndex = 0;
+        bufferLimit = 0;
+        byteBuffer.clear();
+        int readCount;
+        do {
+            readCount = channel.read(byteBuffer);
+        } while (readCount == 0);
+        if (readCount < 0) {
+            return false;
+        }
+        bufferLimit = readCount;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
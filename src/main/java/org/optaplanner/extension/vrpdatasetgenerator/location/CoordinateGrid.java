@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.location;
+
+import java.util.Arrays;
+
+/**
+ * Hashes coordinates into square grid cells, to find the coordinates near a point
+ * by only looking at the cell of that point and its neighbouring cells.
+ * <p>
+ * It uses an open addressing table of primitive cell keys
+ * with a chain of coordinate indexes per cell, so neither building nor querying it allocates per coordinate.
+ * <p>
+ * This class is immutable after construction, so it is thread-safe for querying.
+ */
+public class CoordinateGrid {
+
+    private final double cellSize;
+    private final int mask;
+    private final long[] tableKeys;
+    /**
+     * The first coordinate index of the cell in that slot, -1 for an empty slot.
+     */
+    private final int[] tableHeads;
+    private final int[] nextIndexes;
+
+    /**
+     * @param latitudes never null
+     * @param longitudes never null, same length as latitudes
+     * @param cellSize {@code > 0}, in the unit of the coordinates
+     */
+    public CoordinateGrid(double[] latitudes, double[] longitudes, double cellSize) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("The latitudes length (" + latitudes.length
+                    + ") differs from the longitudes length (" + longitudes.length + ").");
+        }
+        if (!(cellSize > 0.0)) {
+            throw new IllegalArgumentException("The cellSize (" + cellSize + ") must be positive.");
+        }
+        this.cellSize = cellSize;
+        int size = latitudes.length;
+        // At most half full, so the linear probing stays short
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        mask = capacity - 1;
+        tableKeys = new long[capacity];
+        tableHeads = new int[capacity];
+        Arrays.fill(tableHeads, -1);
+        nextIndexes = new int[size];
+        // Insert in reverse, so every chain is in ascending index order
+        for (int i = size - 1; i >= 0; i--) {
+            long cellKey = cellKey(getLatitudeCell(latitudes[i]), getLongitudeCell(longitudes[i]));
+            int slot = findSlot(cellKey);
+            tableKeys[slot] = cellKey;
+            nextIndexes[i] = tableHeads[slot];
+            tableHeads[slot] = i;
+        }
+    }
+
+    public double getCellSize() {
+        return cellSize;
+    }
+
+    public int getLatitudeCell(double latitude) {
+        return (int) Math.floor(latitude / cellSize);
+    }
+
+    public int getLongitudeCell(double longitude) {
+        return (int) Math.floor(longitude / cellSize);
+    }
+
+    /**
+     * @param latitudeCell any int
+     * @param longitudeCell any int
+     * @return the lowest coordinate index in that cell, -1 if the cell is empty
+     */
+    public int getFirstIndex(int latitudeCell, int longitudeCell) {
+        return tableHeads[findSlot(cellKey(latitudeCell, longitudeCell))];
+    }
+
+    /**
+     * @param index a coordinate index
+     * @return the next higher coordinate index in the same cell, -1 if there is none
+     */
+    public int getNextIndex(int index) {
+        return nextIndexes[index];
+    }
+
+    private static long cellKey(int latitudeCell, int longitudeCell) {
+        return ((long) latitudeCell << 32) | (longitudeCell & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the slot of the cellKey, or the empty slot where it would be inserted
+     */
+    private int findSlot(long cellKey) {
+        int slot = (int) mix(cellKey) & mask;
+        while (tableHeads[slot] >= 0 && tableKeys[slot] != cellKey) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return key;
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.location;
+
+import java.util.List;
+
+import org.optaplanner.examples.vehiclerouting.domain.location.Location;
+
+/**
+ * Finds every pair of locations with a zero {@link Location#getDistanceTo(Location) distance}
+ * without comparing all n * n pairs.
+ * <p>
+ * Every location is hashed into a {@link CoordinateGrid} cell,
+ * so only the locations in the same or a neighbouring cell need to be compared.
+ * For locations that are spread out, that takes linear time.
+ */
+public class DuplicateLocationDetector {
+
+    private final double cellSize;
+
+    /**
+     * @param cellSize {@code > 0}, in the unit of the coordinates,
+     * at least the biggest coordinate difference that {@link Location#getDistanceTo(Location)} still rounds to 0
+     */
+    public DuplicateLocationDetector(double cellSize) {
+        if (!(cellSize > 0.0)) {
+            throw new IllegalArgumentException("The cellSize (" + cellSize + ") must be positive.");
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * @param locationList never null
+     * @param visitor never null, called once per pair, with the lowest index first
+     */
+    public void detect(List<? extends Location> locationList, DuplicateVisitor visitor) {
+        int size = locationList.size();
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = locationList.get(i).getLatitude();
+            longitudes[i] = locationList.get(i).getLongitude();
+        }
+        detectCandidates(latitudes, longitudes, (i, j) -> {
+            Location location = locationList.get(i);
+            Location otherLocation = locationList.get(j);
+            if (location.getDistanceTo(otherLocation) == 0L) {
+                visitor.visit(location, otherLocation);
+            }
+        });
+    }
+
+    /**
+     * Works on the coordinates only, so the caller doesn't need a {@link Location} instance per location:
+     * it only needs to check the distance of the few candidate pairs.
+     * @param latitudes never null
+     * @param longitudes never null, same length as latitudes
+     * @param visitor never null, called once per pair in the same or a neighbouring cell, with the lowest index first
+     */
+    public void detectCandidates(double[] latitudes, double[] longitudes, CandidateVisitor visitor) {
+        CoordinateGrid grid = new CoordinateGrid(latitudes, longitudes, cellSize);
+        for (int i = 0; i < latitudes.length; i++) {
+            int latitudeCell = grid.getLatitudeCell(latitudes[i]);
+            int longitudeCell = grid.getLongitudeCell(longitudes[i]);
+            for (int latitudeOffset = -1; latitudeOffset <= 1; latitudeOffset++) {
+                for (int longitudeOffset = -1; longitudeOffset <= 1; longitudeOffset++) {
+                    int j = grid.getFirstIndex(latitudeCell + latitudeOffset, longitudeCell + longitudeOffset);
+                    for (; j >= 0; j = grid.getNextIndex(j)) {
+                        // The other order of this pair is found when visiting j
+                        if (j > i) {
+                            visitor.visit(i, j);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface DuplicateVisitor {
+
+        void visit(Location location, Location otherLocation);
+
+    }
+
+    @FunctionalInterface
+    public interface CandidateVisitor {
+
+        void visit(int index, int otherIndex);
+
+    }
+
+}
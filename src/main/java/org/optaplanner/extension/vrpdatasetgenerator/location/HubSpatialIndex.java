@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.location;
+
+import java.util.List;
+
+import com.graphhopper.util.PointList;
+import org.optaplanner.examples.vehiclerouting.domain.location.Location;
+
+/**
+ * Finds the hub at a route point, within a snapping tolerance,
+ * so a hub is still found if GraphHopper's coordinates differ from the hub file by float noise.
+ * <p>
+ * Lookups don't allocate: the hub coordinates are kept in primitive arrays, hashed in a {@link CoordinateGrid}.
+ * <p>
+ * This class is immutable after construction, so it is thread-safe for querying.
+ */
+public class HubSpatialIndex {
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double tolerance;
+    private final CoordinateGrid grid;
+
+    /**
+     * @param hubList never null
+     * @param tolerance {@code > 0}, in degrees, the maximum latitude and longitude difference to snap a point to a hub
+     */
+    public HubSpatialIndex(List<? extends Location> hubList, double tolerance) {
+        latitudes = new double[hubList.size()];
+        longitudes = new double[hubList.size()];
+        for (int i = 0; i < hubList.size(); i++) {
+            latitudes[i] = hubList.get(i).getLatitude();
+            longitudes[i] = hubList.get(i).getLongitude();
+        }
+        this.tolerance = tolerance;
+        // A cell as big as the tolerance guarantees that every match is in a neighbouring cell
+        grid = new CoordinateGrid(latitudes, longitudes, tolerance);
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param latitude any double
+     * @param longitude any double
+     * @return the index of the nearest hub within the tolerance, -1 if there is none
+     */
+    public int findHubIndex(double latitude, double longitude) {
+        int latitudeCell = grid.getLatitudeCell(latitude);
+        int longitudeCell = grid.getLongitudeCell(longitude);
+        int nearestHubIndex = -1;
+        double nearestDeviation = Double.POSITIVE_INFINITY;
+        for (int latitudeOffset = -1; latitudeOffset <= 1; latitudeOffset++) {
+            for (int longitudeOffset = -1; longitudeOffset <= 1; longitudeOffset++) {
+                int hubIndex = grid.getFirstIndex(latitudeCell + latitudeOffset, longitudeCell + longitudeOffset);
+                for (; hubIndex >= 0; hubIndex = grid.getNextIndex(hubIndex)) {
+                    double deviation = Math.max(Math.abs(latitudes[hubIndex] - latitude),
+                            Math.abs(longitudes[hubIndex] - longitude));
+                    if (deviation <= tolerance && deviation < nearestDeviation) {
+                        nearestHubIndex = hubIndex;
+                        nearestDeviation = deviation;
+                    }
+                }
+            }
+        }
+        return nearestHubIndex;
+    }
+
+    /**
+     * @param pointList never null
+     * @return the index of the hub at the first point that has one, -1 if no point has a hub
+     */
+    public int findFirstHubIndex(PointList pointList) {
+        for (int i = 0; i < pointList.size(); i++) {
+            int hubIndex = findHubIndex(pointList.getLatitude(i), pointList.getLongitude(i));
+            if (hubIndex >= 0) {
+                return hubIndex;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param pointList never null
+     * @return the index of the hub at the last point that has one, -1 if no point has a hub
+     */
+    public int findLastHubIndex(PointList pointList) {
+        for (int i = pointList.size() - 1; i >= 0; i--) {
+            int hubIndex = findHubIndex(pointList.getLatitude(i), pointList.getLongitude(i));
+            if (hubIndex >= 0) {
+                return hubIndex;
+            }
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.location;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
+
+/**
+ * The parsed locations of a location file, stored per column in 1 {@link ByteBuffer},
+ * so a big file (such as the USA file) stays compact while it is cached across dataset variants.
+ * <p>
+ * The buffer holds the ids (unless they are sequential), the latitudes and the longitudes as 8 byte values,
+ * followed by the name offsets (unless there are no names) and 1 UTF-8 blob with all names.
+ * It is either a heap buffer, which costs only a few objects instead of 3 objects per location,
+ * or a read-only memory-mapped file, which costs no heap at all.
+ * <p>
+ * This class is immutable after {@link Builder#build()}, so it is thread-safe.
+ */
+public class LocationColumns {
+
+    private final int size;
+    private final boolean sequentialIds;
+    private final boolean named;
+    private final ByteBuffer data;
+    private final int latitudeOffset;
+    private final int longitudeOffset;
+    private final int nameOffsetOffset;
+    private final int nameBlobOffset;
+
+    private LocationColumns(int size, boolean sequentialIds, boolean named, ByteBuffer data) {
+        this.size = size;
+        this.sequentialIds = sequentialIds;
+        this.named = named;
+        this.data = data;
+        latitudeOffset = sequentialIds ? 0 : size * Long.BYTES;
+        longitudeOffset = latitudeOffset + size * Double.BYTES;
+        nameOffsetOffset = longitudeOffset + size * Double.BYTES;
+        nameBlobOffset = nameOffsetOffset + (named ? (size + 1) * Integer.BYTES : 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if the buffer is a memory-mapped file instead of a heap buffer
+     */
+    public boolean isMapped() {
+        return data.isDirect();
+    }
+
+    /**
+     * @return the number of bytes of the buffer, on the heap unless {@link #isMapped()}
+     */
+    public long getMemoryUsage() {
+        return data.capacity();
+    }
+
+    /**
+     * @param index {@code 0 <= index < size()}
+     * @param startId the id of the first location, if the ids are sequential
+     */
+    public long getId(int index, long startId) {
+        return sequentialIds ? startId + index : data.getLong(index * Long.BYTES);
+    }
+
+    public double getLatitude(int index) {
+        return data.getDouble(latitudeOffset + index * Double.BYTES);
+    }
+
+    public double getLongitude(int index) {
+        return data.getDouble(longitudeOffset + index * Double.BYTES);
+    }
+
+    /**
+     * Decodes the name from the blob, so it creates a new String on every call.
+     * @return null if the location has no name
+     */
+    public String getName(int index) {
+        if (!named) {
+            return null;
+        }
+        int start = data.getInt(nameOffsetOffset + index * Integer.BYTES);
+        int end = data.getInt(nameOffsetOffset + (index + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        // Absolute gets, because the position of a shared buffer is not thread-safe
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(nameBlobOffset + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param name never null
+     * @return -1 if no location has that name, otherwise the lowest index with that name
+     */
+    public int indexOfName(String name) {
+        if (!named) {
+            return -1;
+        }
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        for (int index = 0; index < size; index++) {
+            int start = data.getInt(nameOffsetOffset + index * Integer.BYTES);
+            int end = data.getInt(nameOffsetOffset + (index + 1) * Integer.BYTES);
+            if (end - start == nameBytes.length && blobEquals(start, nameBytes)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private boolean blobEquals(int start, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (data.get(nameBlobOffset + start + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param startId the id of the first location, if the ids are sequential
+     * @return never null, a new list of new locations, so the caller can modify it
+     */
+    public List<AirLocation> toAirLocationList(long startId) {
+        List<AirLocation> locationList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            AirLocation location = new AirLocation();
+            location.setId(getId(i, startId));
+            location.setLatitude(getLatitude(i));
+            location.setLongitude(getLongitude(i));
+            location.setName(getName(i));
+            locationList.add(location);
+        }
+        return locationList;
+    }
+
+    /**
+     * Appends locations to growing arrays, with every name encoded into 1 growing UTF-8 blob.
+     * The names must be null for every location or for none of them.
+     * This class is not thread-safe.
+     */
+    public static class Builder {
+
+        private final boolean sequentialIds;
+        private Boolean named = null;
+        private long[] ids;
+        private double[] latitudes;
+        private double[] longitudes;
+        private int[] nameOffsets;
+        private byte[] nameBlob;
+        private int nameBlobSize = 0;
+        private int size = 0;
+
+        /**
+         * @param sequentialIds true if {@link #add(long, double, double, String)} ignores the id
+         */
+        public Builder(boolean sequentialIds) {
+            this.sequentialIds = sequentialIds;
+            int capacity = 1024;
+            ids = sequentialIds ? null : new long[capacity];
+            latitudes = new double[capacity];
+            longitudes = new double[capacity];
+            nameOffsets = new int[capacity + 1];
+            nameBlob = new byte[capacity * 16];
+        }
+
+        public void add(long id, double latitude, double longitude, String name) {
+            if (named == null) {
+                named = name != null;
+            } else if (named != (name != null)) {
+                throw new IllegalArgumentException("The name (" + name
+                        + ") must be null for every location or for none of them.");
+            }
+            if (size == latitudes.length) {
+                int capacity = size * 2;
+                if (!sequentialIds) {
+                    ids = Arrays.copyOf(ids, capacity);
+                }
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+                nameOffsets = Arrays.copyOf(nameOffsets, capacity + 1);
+            }
+            if (!sequentialIds) {
+                ids[size] = id;
+            }
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            if (name != null) {
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                if (nameBlobSize + nameBytes.length > nameBlob.length) {
+                    nameBlob = Arrays.copyOf(nameBlob, Math.max(nameBlob.length * 2, nameBlobSize + nameBytes.length));
+                }
+                System.arraycopy(nameBytes, 0, nameBlob, nameBlobSize, nameBytes.length);
+                nameBlobSize += nameBytes.length;
+            }
+            size++;
+            nameOffsets[size] = nameBlobSize;
+        }
+
+        /**
+         * @return never null, backed by a heap buffer
+         */
+        public LocationColumns build() {
+            ByteBuffer data = ByteBuffer.allocate(calculateDataSize());
+            writeData(data);
+            return new LocationColumns(size, sequentialIds, isNamed(), data);
+        }
+
+        /**
+         * Writes the columns into the file and maps it read-only.
+         * The file is deleted as soon as it is mapped (or on exit, if the OS doesn't allow that),
+         * but the mapping stays valid until it is garbage collected.
+         * @param file never null, overwritten if it exists, its directory must exist
+         * @return never null, backed by a memory-mapped buffer
+         */
+        public LocationColumns buildMapped(File file) {
+            int dataSize = calculateDataSize();
+            ByteBuffer data;
+            try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                FileChannel channel = randomAccessFile.getChannel();
+                channel.truncate(0L);
+                ByteBuffer writeBuffer = ByteBuffer.allocate(dataSize);
+                writeData(writeBuffer);
+                writeBuffer.flip();
+                while (writeBuffer.hasRemaining()) {
+                    channel.write(writeBuffer);
+                }
+                data = channel.map(FileChannel.MapMode.READ_ONLY, 0L, dataSize);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Could not map the file (" + file + ").", e);
+            }
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+            return new LocationColumns(size, sequentialIds, isNamed(), data);
+        }
+
+        private boolean isNamed() {
+            return named != null && named;
+        }
+
+        private int calculateDataSize() {
+            long dataSize = (sequentialIds ? 0L : (long) size * Long.BYTES)
+                    + (long) size * Double.BYTES * 2L
+                    + (isNamed() ? (long) (size + 1) * Integer.BYTES + nameBlobSize : 0L);
+            if (dataSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("The size (" + size + ") and the nameBlobSize (" + nameBlobSize
+                        + ") need more than 2 GB.");
+            }
+            return (int) dataSize;
+        }
+
+        private void writeData(ByteBuffer data) {
+            if (!sequentialIds) {
+                for (int i = 0; i < size; i++) {
+                    data.putLong(ids[i]);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                data.putDouble(latitudes[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                data.putDouble(longitudes[i]);
+            }
+            if (isNamed()) {
+                for (int i = 0; i <= size; i++) {
+                    data.putInt(nameOffsets[i]);
+                }
+                data.put(nameBlob, 0, nameBlobSize);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.location;
+
+/**
+ * The locations of 1 dataset: a sublist of {@link LocationColumns}, by index, in the order of the vrp file.
+ * It reads through to the columns, so it doesn't copy the coordinates or names of the selected locations.
+ * <p>
+ * This class is immutable, so it is thread-safe.
+ */
+public class LocationSelection {
+
+    private final LocationColumns columns;
+    private final int[] indexes;
+    private final long startId;
+
+    /**
+     * @param columns never null
+     * @param indexes never null, not modified afterwards, the index in the columns of each selected location
+     * @param startId the id of the first location of the columns, if the ids are sequential
+     */
+    public LocationSelection(LocationColumns columns, int[] indexes, long startId) {
+        this.columns = columns;
+        this.indexes = indexes;
+        this.startId = startId;
+    }
+
+    public int size() {
+        return indexes.length;
+    }
+
+    /**
+     * @param i {@code 0 <= i < size()}
+     */
+    public long getId(int i) {
+        return columns.getId(indexes[i], startId);
+    }
+
+    public double getLatitude(int i) {
+        return columns.getLatitude(indexes[i]);
+    }
+
+    public double getLongitude(int i) {
+        return columns.getLongitude(indexes[i]);
+    }
+
+    /**
+     * @return null if the location has no name
+     */
+    public String getName(int i) {
+        return columns.getName(indexes[i]);
+    }
+
+    /**
+     * @return never null, a new array
+     */
+    public double[] getLatitudes() {
+        double[] latitudes = new double[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            latitudes[i] = columns.getLatitude(indexes[i]);
+        }
+        return latitudes;
+    }
+
+    /**
+     * @return never null, a new array
+     */
+    public double[] getLongitudes() {
+        double[] longitudes = new double[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            longitudes[i] = columns.getLongitude(indexes[i]);
+        }
+        return longitudes;
+    }
+
+}
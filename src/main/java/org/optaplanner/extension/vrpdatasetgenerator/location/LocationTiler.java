@@ -0,0 +1,146 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits coordinates into geographic tiles of at most maxTileSize coordinates,
+ * by recursively halving them at the median of their widest dimension (like a k-d tree),
+ * so a dense region gets small tiles and a sparse region gets big tiles.
+ * <p>
+ * This class is immutable, so it is thread-safe.
+ */
+public class LocationTiler {
+
+    private final int maxTileSize;
+
+    /**
+     * @param maxTileSize {@code >= 1}
+     */
+    public LocationTiler(int maxTileSize) {
+        if (maxTileSize < 1) {
+            throw new IllegalArgumentException("The maxTileSize (" + maxTileSize + ") must be at least 1.");
+        }
+        this.maxTileSize = maxTileSize;
+    }
+
+    public int getMaxTileSize() {
+        return maxTileSize;
+    }
+
+    /**
+     * @param latitudes never null
+     * @param longitudes never null, same length as latitudes
+     * @return never null, the coordinate indexes of every tile, in ascending order,
+     * every index is in exactly 1 tile, the result is deterministic
+     */
+    public List<int[]> tile(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("The latitudes length (" + latitudes.length
+                    + ") differs from the longitudes length (" + longitudes.length + ").");
+        }
+        Integer[] indexes = new Integer[latitudes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        List<int[]> tileList = new ArrayList<>(latitudes.length / maxTileSize + 1);
+        split(latitudes, longitudes, indexes, 0, indexes.length, tileList);
+        return tileList;
+    }
+
+    private void split(double[] latitudes, double[] longitudes, Integer[] indexes, int from, int to,
+            List<int[]> tileList) {
+        if (to - from <= maxTileSize) {
+            int[] tile = new int[to - from];
+            for (int i = from; i < to; i++) {
+                tile[i - from] = indexes[i];
+            }
+            Arrays.sort(tile);
+            tileList.add(tile);
+            return;
+        }
+        double minLatitude = Double.POSITIVE_INFINITY;
+        double maxLatitude = Double.NEGATIVE_INFINITY;
+        double minLongitude = Double.POSITIVE_INFINITY;
+        double maxLongitude = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            minLatitude = Math.min(minLatitude, latitudes[indexes[i]]);
+            maxLatitude = Math.max(maxLatitude, latitudes[indexes[i]]);
+            minLongitude = Math.min(minLongitude, longitudes[indexes[i]]);
+            maxLongitude = Math.max(maxLongitude, longitudes[indexes[i]]);
+        }
+        double[] coordinates = maxLatitude - minLatitude >= maxLongitude - minLongitude ? latitudes : longitudes;
+        // Ties are broken by index, so the split is deterministic
+        Arrays.sort(indexes, from, to, Comparator.<Integer>comparingDouble(index -> coordinates[index])
+                .thenComparingInt(index -> index));
+        int middle = (from + to) >>> 1;
+        split(latitudes, longitudes, indexes, from, middle, tileList);
+        split(latitudes, longitudes, indexes, middle, to, tileList);
+    }
+
+    /**
+     * The border locations of a tile connect it with the other tiles:
+     * its most northern, southern, eastern and western location and the location nearest to its centre.
+     * @param tile never null, not empty, coordinate indexes
+     * @param latitudes never null
+     * @param longitudes never null, same length as latitudes
+     * @return never null, 1 to 5 distinct coordinate indexes of the tile, in ascending order
+     */
+    public int[] selectBorderIndexes(int[] tile, double[] latitudes, double[] longitudes) {
+        int north = tile[0];
+        int south = tile[0];
+        int east = tile[0];
+        int west = tile[0];
+        double latitudeSum = 0.0;
+        double longitudeSum = 0.0;
+        for (int index : tile) {
+            if (latitudes[index] > latitudes[north]) {
+                north = index;
+            }
+            if (latitudes[index] < latitudes[south]) {
+                south = index;
+            }
+            if (longitudes[index] > longitudes[east]) {
+                east = index;
+            }
+            if (longitudes[index] < longitudes[west]) {
+                west = index;
+            }
+            latitudeSum += latitudes[index];
+            longitudeSum += longitudes[index];
+        }
+        double centreLatitude = latitudeSum / tile.length;
+        double centreLongitude = longitudeSum / tile.length;
+        int centre = tile[0];
+        double centreDistance = Double.POSITIVE_INFINITY;
+        for (int index : tile) {
+            double latitudeDifference = latitudes[index] - centreLatitude;
+            double longitudeDifference = longitudes[index] - centreLongitude;
+            double distance = latitudeDifference * latitudeDifference + longitudeDifference * longitudeDifference;
+            if (distance < centreDistance) {
+                centre = index;
+                centreDistance = distance;
+            }
+        }
+        return Arrays.stream(new int[] {north, south, east, west, centre}).distinct().sorted().toArray();
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Stores every distance in 1 flat {@code double[]} on the heap.
+ */
+public class DenseDistanceMatrix implements DistanceMatrix {
+
+    private final int rowCount;
+    private final int columnCount;
+    private final double[] distances;
+
+    public DenseDistanceMatrix(int rowCount, int columnCount) {
+        if ((long) rowCount * columnCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The rowCount (" + rowCount + ") times the columnCount (" + columnCount
+                    + ") is too big for an on-heap matrix. Use a " + MappedDistanceMatrix.class.getSimpleName()
+                    + " instead.");
+        }
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        distances = new double[rowCount * columnCount];
+        Arrays.fill(distances, Double.NaN);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public double getDistance(int row, int column) {
+        return distances[row * columnCount + column];
+    }
+
+    @Override
+    public void setDistance(int row, int column, double distance) {
+        distances[row * columnCount + column] = distance;
+    }
+
+    @Override
+    public void forEachInRow(int row, EntryVisitor visitor) throws IOException {
+        int offset = row * columnCount;
+        for (int column = 0; column < columnCount; column++) {
+            double distance = distances[offset + column];
+            if (!Double.isNaN(distance)) {
+                visitor.visit(column, distance);
+            }
+        }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return (long) distances.length * Double.BYTES;
+    }
+
+}
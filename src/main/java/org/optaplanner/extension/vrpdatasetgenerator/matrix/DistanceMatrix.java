@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.IOException;
+
+/**
+ * A matrix of primitive distances, to avoid boxing every distance in a {@code Map<Location, Double>}.
+ * <p>
+ * Implementations are not thread-safe for writing the same row concurrently,
+ * but different rows can be written by different threads.
+ */
+public interface DistanceMatrix {
+
+    int getRowCount();
+
+    int getColumnCount();
+
+    /**
+     * @param row {@code 0 <= row < rowCount}
+     * @param column {@code 0 <= column < columnCount}
+     * @return {@link Double#NaN} if the distance is not set
+     */
+    double getDistance(int row, int column);
+
+    /**
+     * @param row {@code 0 <= row < rowCount}
+     * @param column {@code 0 <= column < columnCount}
+     * @param distance never {@link Double#NaN}
+     */
+    void setDistance(int row, int column, double distance);
+
+    /**
+     * Visits the set distances of a row, in column order for full matrices
+     * and in insertion order for sparse matrices.
+     * @param row {@code 0 <= row < rowCount}
+     * @param visitor never null
+     */
+    void forEachInRow(int row, EntryVisitor visitor) throws IOException;
+
+    /**
+     * @return the number of bytes used to store the distances, on or off the heap
+     */
+    long getMemoryUsage();
+
+    @FunctionalInterface
+    interface EntryVisitor {
+
+        void visit(int column, double distance) throws IOException;
+
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stores every distance off the heap, in a memory-mapped file,
+ * so matrices of 100 000+ locations don't need a huge heap (or even fit in RAM).
+ * <p>
+ * A single {@link MappedByteBuffer} is limited to 2 GB, so the rows are spread over multiple chunks.
+ * <p>
+ * Every distance is stored XOR'ed with the bits of {@link Double#NaN},
+ * so the zeroes of a new sparse file read as NaN (not set) without writing them:
+ * the pages of entries that are never set are never touched.
+ */
+public class MappedDistanceMatrix implements DistanceMatrix, Closeable {
+
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+    private static final long UNSET_BITS = Double.doubleToRawLongBits(Double.NaN);
+
+    private final File file;
+    private final int rowCount;
+    private final int columnCount;
+    private final int rowsPerChunk;
+    private final RandomAccessFile randomAccessFile;
+    private final MappedByteBuffer[] chunks;
+
+    /**
+     * @param file never null, overwritten if it exists
+     * @param rowCount {@code >= 0}
+     * @param columnCount {@code >= 1}
+     */
+    public MappedDistanceMatrix(File file, int rowCount, int columnCount) {
+        this.file = file;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        long rowSize = (long) columnCount * Double.BYTES;
+        if (rowSize > MAX_CHUNK_SIZE) {
+            throw new IllegalArgumentException("The columnCount (" + columnCount + ") is too big.");
+        }
+        rowsPerChunk = (int) (MAX_CHUNK_SIZE / rowSize);
+        int chunkCount = (rowCount + rowsPerChunk - 1) / rowsPerChunk;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            randomAccessFile.setLength(0L);
+            randomAccessFile.setLength(rowCount * rowSize);
+            chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long chunkStart = i * rowsPerChunk * rowSize;
+                long chunkSize = Math.min(rowsPerChunk, rowCount - i * rowsPerChunk) * rowSize;
+                chunks[i] = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, chunkStart, chunkSize);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not map the file (" + file + ").", e);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public double getDistance(int row, int column) {
+        return Double.longBitsToDouble(chunks[row / rowsPerChunk].getLong(offset(row, column)) ^ UNSET_BITS);
+    }
+
+    @Override
+    public void setDistance(int row, int column, double distance) {
+        chunks[row / rowsPerChunk].putLong(offset(row, column), Double.doubleToRawLongBits(distance) ^ UNSET_BITS);
+    }
+
+    private int offset(int row, int column) {
+        return ((row % rowsPerChunk) * columnCount + column) * Double.BYTES;
+    }
+
+    @Override
+    public void forEachInRow(int row, EntryVisitor visitor) throws IOException {
+        for (int column = 0; column < columnCount; column++) {
+            double distance = getDistance(row, column);
+            if (!Double.isNaN(distance)) {
+                visitor.visit(column, distance);
+            }
+        }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return (long) rowCount * columnCount * Double.BYTES;
+    }
+
+    /**
+     * Does not delete the file.
+     */
+    @Override
+    public void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+}
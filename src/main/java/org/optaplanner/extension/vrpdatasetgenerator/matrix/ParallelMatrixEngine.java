@@ -0,0 +1,163 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Calculates the rows of a matrix on a pool of worker threads,
+ * but hands them to the {@link RowConsumer} in row order on the calling thread.
+ * <p>
+ * Only a bounded window of rows is calculated ahead of the consumer,
+ * so the memory usage doesn't depend on the number of rows.
+ */
+public class ParallelMatrixEngine {
+
+    private static final long PROGRESS_LOG_INTERVAL_MILLIS = 10_000L;
+
+    protected final transient Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final int threadCount;
+
+    public ParallelMatrixEngine(int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The threadCount (" + threadCount + ") must be at least 1.");
+        }
+        this.threadCount = threadCount;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public <Row_> void calculate(int rowCount, RowCalculator<Row_> rowCalculator, RowConsumer<Row_> rowConsumer)
+            throws IOException {
+        long startTimeMillis = System.currentTimeMillis();
+        if (threadCount == 1) {
+            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                rowConsumer.acceptRow(rowIndex, rowCalculator.calculateRow(rowIndex));
+            }
+        } else {
+            calculateInParallel(rowCount, rowCalculator, rowConsumer, startTimeMillis);
+        }
+        long timeMillis = System.currentTimeMillis() - startTimeMillis;
+        logger.info("Calculated {} rows in {} ms ({} rows/sec) with {} threads.",
+                rowCount, timeMillis, calculateRowsPerSecond(rowCount, timeMillis), threadCount);
+    }
+
+    private <Row_> void calculateInParallel(int rowCount, RowCalculator<Row_> rowCalculator,
+            RowConsumer<Row_> rowConsumer, long startTimeMillis) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, new MatrixThreadFactory());
+        try {
+            // Stay a few rows ahead of the consumer so no worker idles while a slow row is being waited upon
+            int windowSize = threadCount * 4;
+            @SuppressWarnings("unchecked")
+            Future<Row_>[] futureWindow = new Future[windowSize];
+            for (int rowIndex = 0; rowIndex < Math.min(windowSize, rowCount); rowIndex++) {
+                futureWindow[rowIndex] = submitRow(executor, rowCalculator, rowIndex);
+            }
+            long nextProgressLogTimeMillis = startTimeMillis + PROGRESS_LOG_INTERVAL_MILLIS;
+            for (int rowIndex = 0; rowIndex < rowCount; rowIndex++) {
+                int windowIndex = rowIndex % windowSize;
+                Row_ row = waitForRow(futureWindow[windowIndex], rowIndex);
+                int nextRowIndex = rowIndex + windowSize;
+                futureWindow[windowIndex] = nextRowIndex < rowCount
+                        ? submitRow(executor, rowCalculator, nextRowIndex) : null;
+                rowConsumer.acceptRow(rowIndex, row);
+                long currentTimeMillis = System.currentTimeMillis();
+                if (currentTimeMillis >= nextProgressLogTimeMillis) {
+                    logger.info("  Calculated {}/{} rows ({} rows/sec).", rowIndex + 1, rowCount,
+                            calculateRowsPerSecond(rowIndex + 1, currentTimeMillis - startTimeMillis));
+                    nextProgressLogTimeMillis = currentTimeMillis + PROGRESS_LOG_INTERVAL_MILLIS;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private <Row_> Future<Row_> submitRow(ExecutorService executor, RowCalculator<Row_> rowCalculator, int rowIndex) {
+        return executor.submit(() -> rowCalculator.calculateRow(rowIndex));
+    }
+
+    private <Row_> Row_ waitForRow(Future<Row_> future, int rowIndex) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for row (" + rowIndex + ").", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Calculating row (" + rowIndex + ") failed.", cause);
+        }
+    }
+
+    private static String calculateRowsPerSecond(int rowCount, long timeMillis) {
+        return String.format("%.2f", rowCount * 1000.0 / Math.max(timeMillis, 1L));
+    }
+
+    @FunctionalInterface
+    public interface RowCalculator<Row_> {
+
+        /**
+         * Called concurrently from multiple worker threads.
+         * @param rowIndex {@code 0 <= rowIndex < rowCount}
+         * @return never null
+         */
+        Row_ calculateRow(int rowIndex);
+
+    }
+
+    @FunctionalInterface
+    public interface RowConsumer<Row_> {
+
+        /**
+         * Called on the thread that called {@link #calculate(int, RowCalculator, RowConsumer)},
+         * in ascending rowIndex order.
+         * @param rowIndex {@code 0 <= rowIndex < rowCount}
+         * @param row never null
+         */
+        void acceptRow(int rowIndex, Row_ row) throws IOException;
+
+    }
+
+    private static class MatrixThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "matrix-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
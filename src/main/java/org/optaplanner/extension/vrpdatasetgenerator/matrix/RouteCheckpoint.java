@@ -0,0 +1,253 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Side file that keeps every completed {@link RouteRow} of a matrix run,
+ * so a run that died halfway resumes from the rows it already calculated.
+ * <p>
+ * The file is append only: a header followed by 1 record per completed row, in completion order.
+ * Every record ends with a checksum, so a record that was only partially written when the process died
+ * is detected and discarded when the checkpoint is opened again.
+ * The fingerprint in the header identifies the location list and weighting:
+ * a checkpoint with a different fingerprint is discarded instead of resumed.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class RouteCheckpoint implements Closeable {
+
+    private static final long MAGIC = 0x565052434B505431L; // "VPRCKPT1"
+    private static final int HEADER_SIZE = 24;
+
+    protected final transient Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final File checkpointFile;
+    private final int size;
+    private final int recordSize;
+
+    private final RandomAccessFile randomAccessFile;
+    private final FileChannel channel;
+    private final ByteBuffer recordBuffer;
+    /**
+     * The file offset of the record of each row, -1 if that row is not completed yet.
+     */
+    private final long[] rowOffsets;
+    private int completedRowCount;
+    private long endOffset;
+
+    /**
+     * @param checkpointDir never null, created if it does not exist
+     * @param name never null, unique per location list and weighting
+     * @param fingerprint identifies the location list and weighting
+     * @param size the number of rows, which is also the number of columns
+     * @return never null
+     */
+    public static RouteCheckpoint open(File checkpointDir, String name, long fingerprint, int size) {
+        File checkpointFile = new File(checkpointDir, name + ".checkpoint");
+        try {
+            FileUtils.forceMkdir(checkpointDir);
+            return new RouteCheckpoint(checkpointFile, fingerprint, size);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not open the checkpointFile (" + checkpointFile + ").", e);
+        }
+    }
+
+    private RouteCheckpoint(File checkpointFile, long fingerprint, int size) throws IOException {
+        this.checkpointFile = checkpointFile;
+        this.size = size;
+        // rowIndex, distances, times and checksum
+        recordSize = 4 + size * 8 + size * 8 + 8;
+        recordBuffer = ByteBuffer.allocate(recordSize);
+        rowOffsets = new long[size];
+        Arrays.fill(rowOffsets, -1L);
+        randomAccessFile = new RandomAccessFile(checkpointFile, "rw");
+        channel = randomAccessFile.getChannel();
+        if (!readHeader(fingerprint)) {
+            channel.truncate(0L);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putInt(size).putInt(recordSize).putLong(fingerprint);
+            header.flip();
+            channel.write(header, 0L);
+            channel.force(false);
+            endOffset = HEADER_SIZE;
+        } else {
+            readRecords();
+            if (completedRowCount > 0) {
+                logger.info("Resuming from checkpoint ({}) with {}/{} rows already completed.",
+                        checkpointFile.getName(), completedRowCount, size);
+            }
+        }
+    }
+
+    private boolean readHeader(long fingerprint) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, 0L);
+        header.flip();
+        if (header.getLong() != MAGIC || header.getInt() != size || header.getInt() != recordSize
+                || header.getLong() != fingerprint) {
+            logger.warn("Discarding checkpoint ({}) because it belongs to a different location list.",
+                    checkpointFile.getName());
+            return false;
+        }
+        return true;
+    }
+
+    private void readRecords() throws IOException {
+        long fileSize = channel.size();
+        long offset = HEADER_SIZE;
+        while (offset + recordSize <= fileSize) {
+            recordBuffer.clear();
+            readFully(recordBuffer, offset);
+            int rowIndex = recordBuffer.getInt(0);
+            if (rowIndex < 0 || rowIndex >= size || recordBuffer.getLong(recordSize - 8) != checksum(recordBuffer)) {
+                break;
+            }
+            if (rowOffsets[rowIndex] < 0L) {
+                completedRowCount++;
+            }
+            rowOffsets[rowIndex] = offset;
+            offset += recordSize;
+        }
+        if (offset < fileSize) {
+            logger.warn("Discarding the incomplete tail ({} bytes) of checkpoint ({}).",
+                    fileSize - offset, checkpointFile.getName());
+            channel.truncate(offset);
+        }
+        endOffset = offset;
+    }
+
+    private long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, recordSize - 8);
+        return crc.getValue();
+    }
+
+    private void readFully(ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            int readCount = channel.read(buffer, offset + buffer.position());
+            if (readCount < 0) {
+                throw new IOException("Unexpected end of the checkpointFile (" + checkpointFile + ").");
+            }
+        }
+    }
+
+    public File getCheckpointFile() {
+        return checkpointFile;
+    }
+
+    public int getCompletedRowCount() {
+        return completedRowCount;
+    }
+
+    public boolean isCompleted() {
+        return completedRowCount == size;
+    }
+
+    /**
+     * @return never null, in ascending order
+     */
+    public int[] getMissingRowIndexes() {
+        int[] missingRowIndexes = new int[size - completedRowCount];
+        int i = 0;
+        for (int rowIndex = 0; rowIndex < size; rowIndex++) {
+            if (rowOffsets[rowIndex] < 0L) {
+                missingRowIndexes[i] = rowIndex;
+                i++;
+            }
+        }
+        return missingRowIndexes;
+    }
+
+    /**
+     * Appends the row without forcing it to disk: it survives a crash of the process,
+     * but not necessarily of the operating system. A torn record fails its checksum and is recalculated.
+     * @param rowIndex {@code 0 <= rowIndex < size}
+     * @param row never null
+     */
+    public void writeRow(int rowIndex, RouteRow row) throws IOException {
+        recordBuffer.clear();
+        recordBuffer.putInt(rowIndex);
+        for (double distance : row.getDistances()) {
+            recordBuffer.putDouble(distance);
+        }
+        for (long time : row.getTimes()) {
+            recordBuffer.putLong(time);
+        }
+        recordBuffer.putLong(checksum(recordBuffer));
+        recordBuffer.flip();
+        long offset = endOffset;
+        while (recordBuffer.hasRemaining()) {
+            channel.write(recordBuffer, offset + recordBuffer.position());
+        }
+        endOffset += recordSize;
+        if (rowOffsets[rowIndex] < 0L) {
+            completedRowCount++;
+        }
+        rowOffsets[rowIndex] = offset;
+    }
+
+    /**
+     * @param rowIndex {@code 0 <= rowIndex < size}, must be completed
+     * @param row never null, overwritten and returned, to avoid garbage while streaming all rows
+     * @return row
+     */
+    public RouteRow readRow(int rowIndex, RouteRow row) throws IOException {
+        long offset = rowOffsets[rowIndex];
+        if (offset < 0L) {
+            throw new IllegalStateException("The rowIndex (" + rowIndex + ") is not completed in checkpoint ("
+                    + checkpointFile.getName() + ").");
+        }
+        recordBuffer.clear();
+        readFully(recordBuffer, offset);
+        recordBuffer.position(4);
+        double[] distances = row.getDistances();
+        for (int i = 0; i < size; i++) {
+            distances[i] = recordBuffer.getDouble();
+        }
+        long[] times = row.getTimes();
+        for (int i = 0; i < size; i++) {
+            times[i] = recordBuffer.getLong();
+        }
+        return row;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.force(false);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+}
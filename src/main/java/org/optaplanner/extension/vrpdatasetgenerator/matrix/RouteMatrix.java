@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The road distance and time between every pair of locations, as calculated by 1 routing pass.
+ * <p>
+ * Every {@link org.optaplanner.extension.vrpdatasetgenerator.GenerationDistanceType} that uses the same weighting
+ * can be written from the same instance.
+ * <p>
+ * A symmetric instance only keeps the upper triangle of every row (the columns at or after the row)
+ * and mirrors it for the lower triangle.
+ */
+public class RouteMatrix implements Closeable {
+
+    /**
+     * @param size {@code >= 0}
+     * @return never null
+     */
+    public static RouteMatrix createOnHeap(int size) {
+        return createOnHeap(size, false);
+    }
+
+    /**
+     * @param size {@code >= 0}
+     * @param symmetric true to only store the upper triangle
+     * @return never null
+     */
+    public static RouteMatrix createOnHeap(int size, boolean symmetric) {
+        if (symmetric) {
+            return new RouteMatrix(size, true, new TriangularDistanceMatrix(size), new TriangularDistanceMatrix(size));
+        }
+        return new RouteMatrix(size, false, new DenseDistanceMatrix(size, size), new DenseDistanceMatrix(size, size));
+    }
+
+    /**
+     * @param directory never null, must exist, the matrix files are deleted on {@link #close()}
+     * @param size {@code >= 0}
+     * @return never null
+     */
+    public static RouteMatrix createOffHeap(File directory, int size) {
+        return createOffHeap(directory, size, false);
+    }
+
+    /**
+     * The lower triangle of a symmetric instance is never written and {@link MappedDistanceMatrix}
+     * doesn't initialize its files, so those pages of the sparse files stay empty.
+     * @param directory never null, must exist, the matrix files are deleted on {@link #close()}
+     * @param size {@code >= 0}
+     * @param symmetric true to only store the upper triangle
+     * @return never null
+     */
+    public static RouteMatrix createOffHeap(File directory, int size, boolean symmetric) {
+        String prefix = "routeMatrix-" + size + "-" + System.nanoTime();
+        return new RouteMatrix(size, symmetric,
+                new MappedDistanceMatrix(new File(directory, prefix + "-distances.bin"), size, size),
+                new MappedDistanceMatrix(new File(directory, prefix + "-times.bin"), size, size));
+    }
+
+    private final int size;
+    private final boolean symmetric;
+    private final DistanceMatrix distances;
+    private final DistanceMatrix times;
+
+    private RouteMatrix(int size, boolean symmetric, DistanceMatrix distances, DistanceMatrix times) {
+        this.size = size;
+        this.symmetric = symmetric;
+        this.distances = distances;
+        this.times = times;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * @param fromIndex {@code 0 <= fromIndex < size}
+     * @param row never null, only the columns from fromIndex onwards are read if this matrix is symmetric
+     */
+    public void setRow(int fromIndex, RouteRow row) {
+        double[] rowDistances = row.getDistances();
+        long[] rowTimes = row.getTimes();
+        for (int toIndex = symmetric ? fromIndex : 0; toIndex < size; toIndex++) {
+            distances.setDistance(fromIndex, toIndex, rowDistances[toIndex]);
+            // A time in milliseconds fits exactly in a double
+            times.setDistance(fromIndex, toIndex, rowTimes[toIndex]);
+        }
+    }
+
+    /**
+     * @param fromIndex {@code 0 <= fromIndex < size}
+     * @param toIndex {@code 0 <= toIndex < size}
+     * @return in meters
+     */
+    public double getDistance(int fromIndex, int toIndex) {
+        if (symmetric && fromIndex > toIndex) {
+            return distances.getDistance(toIndex, fromIndex);
+        }
+        return distances.getDistance(fromIndex, toIndex);
+    }
+
+    /**
+     * @param fromIndex {@code 0 <= fromIndex < size}
+     * @param toIndex {@code 0 <= toIndex < size}
+     * @return in milliseconds
+     */
+    public long getTime(int fromIndex, int toIndex) {
+        if (symmetric && fromIndex > toIndex) {
+            return (long) times.getDistance(toIndex, fromIndex);
+        }
+        return (long) times.getDistance(fromIndex, toIndex);
+    }
+
+    public long getMemoryUsage() {
+        return distances.getMemoryUsage() + times.getMemoryUsage();
+    }
+
+    @Override
+    public void close() throws IOException {
+        close(distances);
+        close(times);
+    }
+
+    private static void close(DistanceMatrix matrix) throws IOException {
+        if (matrix instanceof MappedDistanceMatrix) {
+            MappedDistanceMatrix mappedMatrix = (MappedDistanceMatrix) matrix;
+            mappedMatrix.close();
+            if (!mappedMatrix.getFile().delete()) {
+                throw new IOException("Could not delete the matrix file (" + mappedMatrix.getFile() + ").");
+            }
+        }
+    }
+
+}
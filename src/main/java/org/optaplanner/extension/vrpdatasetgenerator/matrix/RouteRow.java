@@ -0,0 +1,46 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+/**
+ * The road distances and times from 1 origin to every location.
+ */
+public class RouteRow {
+
+    private final double[] distances;
+    private final long[] times;
+
+    public RouteRow(int size) {
+        distances = new double[size];
+        times = new long[size];
+    }
+
+    /**
+     * @return never null, in meters
+     */
+    public double[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * @return never null, in milliseconds
+     */
+    public long[] getTimes() {
+        return times;
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.IOException;
+
+/**
+ * The hub and nearby distances of a {@code HUB_AND_NEARBY_MATRIX},
+ * in primitive matrices instead of the {@code Map<..., Double>} fields of the segmented locations.
+ * <p>
+ * Hubs and locations are addressed by their index, not by their id.
+ */
+public class SegmentedDistanceMatrix {
+
+    private final int hubCount;
+    private final int locationCount;
+    private final DenseDistanceMatrix hubToHubMatrix;
+    private final SparseDistanceMatrix hubToNearbyMatrix;
+    private final SparseDistanceMatrix locationToHubMatrix;
+    private final SparseDistanceMatrix locationToNearbyMatrix;
+
+    public SegmentedDistanceMatrix(int hubCount, int locationCount) {
+        this.hubCount = hubCount;
+        this.locationCount = locationCount;
+        hubToHubMatrix = new DenseDistanceMatrix(hubCount, hubCount);
+        hubToNearbyMatrix = new SparseDistanceMatrix(hubCount, locationCount);
+        locationToHubMatrix = new SparseDistanceMatrix(locationCount, hubCount);
+        locationToNearbyMatrix = new SparseDistanceMatrix(locationCount, locationCount);
+    }
+
+    public int getHubCount() {
+        return hubCount;
+    }
+
+    public int getLocationCount() {
+        return locationCount;
+    }
+
+    public DenseDistanceMatrix getHubToHubMatrix() {
+        return hubToHubMatrix;
+    }
+
+    public SparseDistanceMatrix getHubToNearbyMatrix() {
+        return hubToNearbyMatrix;
+    }
+
+    public SparseDistanceMatrix getLocationToHubMatrix() {
+        return locationToHubMatrix;
+    }
+
+    public SparseDistanceMatrix getLocationToNearbyMatrix() {
+        return locationToNearbyMatrix;
+    }
+
+    /**
+     * Same semantics as {@code RoadSegmentLocation.getDistanceDouble(RoadSegmentLocation)}:
+     * the nearby distance if there is one, otherwise the shortest distance through the hubs.
+     * @param fromIndex {@code 0 <= fromIndex < locationCount}
+     * @param toIndex {@code 0 <= toIndex < locationCount}
+     * @return {@link Double#MAX_VALUE} if unreachable
+     */
+    public double getLocationDistance(int fromIndex, int toIndex) {
+        double nearbyDistance = locationToNearbyMatrix.getDistance(fromIndex, toIndex);
+        if (!Double.isNaN(nearbyDistance)) {
+            return nearbyDistance;
+        }
+        double[] shortestDistance = {Double.MAX_VALUE};
+        forEachInRow(locationToHubMatrix, fromIndex, (hubIndex, hubDistance) -> {
+            double distance = hubDistance + getHubDistance(hubIndex, toIndex);
+            if (distance < shortestDistance[0]) {
+                shortestDistance[0] = distance;
+            }
+        });
+        return shortestDistance[0];
+    }
+
+    /**
+     * Same semantics as {@code HubSegmentLocation.getDistanceDouble(RoadSegmentLocation)}.
+     * @param hubIndex {@code 0 <= hubIndex < hubCount}
+     * @param toIndex {@code 0 <= toIndex < locationCount}
+     * @return {@link Double#MAX_VALUE} if unreachable
+     */
+    public double getHubDistance(int hubIndex, int toIndex) {
+        double nearbyDistance = hubToNearbyMatrix.getDistance(hubIndex, toIndex);
+        if (!Double.isNaN(nearbyDistance)) {
+            return nearbyDistance;
+        }
+        double[] shortestDistance = {Double.MAX_VALUE};
+        forEachInRow(hubToHubMatrix, hubIndex, (otherHubIndex, otherHubDistance) -> {
+            double otherHubNearbyDistance = hubToNearbyMatrix.getDistance(otherHubIndex, toIndex);
+            if (!Double.isNaN(otherHubNearbyDistance)) {
+                double distance = otherHubDistance + otherHubNearbyDistance;
+                if (distance < shortestDistance[0]) {
+                    shortestDistance[0] = distance;
+                }
+            }
+        });
+        return shortestDistance[0];
+    }
+
+    private static void forEachInRow(DistanceMatrix matrix, int row, DistanceMatrix.EntryVisitor visitor) {
+        try {
+            matrix.forEachInRow(row, visitor);
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossible state: an in-memory matrix does not do IO.", e);
+        }
+    }
+
+    /**
+     * @return the number of distances that end up in the {@code SEGMENTED_EDGE_WEIGHT_SECTION}
+     */
+    public long getEntryCount() {
+        long entryCount = (long) hubCount * (hubCount - 1);
+        for (int hubIndex = 0; hubIndex < hubCount; hubIndex++) {
+            entryCount += hubToNearbyMatrix.getRowSize(hubIndex);
+        }
+        for (int locationIndex = 0; locationIndex < locationCount; locationIndex++) {
+            entryCount += locationToHubMatrix.getRowSize(locationIndex)
+                    + locationToNearbyMatrix.getRowSize(locationIndex);
+        }
+        return entryCount;
+    }
+
+    public long getMemoryUsage() {
+        return hubToHubMatrix.getMemoryUsage() + hubToNearbyMatrix.getMemoryUsage()
+                + locationToHubMatrix.getMemoryUsage() + locationToNearbyMatrix.getMemoryUsage();
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Stores only the set distances, per row in insertion order, in primitive arrays.
+ * <p>
+ * Rows with more than a few entries also get a primitive open addressing index,
+ * so {@link #getDistance(int, int)} doesn't need to scan the row.
+ */
+public class SparseDistanceMatrix implements DistanceMatrix {
+
+    private static final int INDEX_THRESHOLD = 8;
+    private static final int[] EMPTY_COLUMNS = new int[0];
+    private static final double[] EMPTY_DISTANCES = new double[0];
+
+    private final int rowCount;
+    private final int columnCount;
+    private final int[][] rowColumns;
+    private final double[][] rowDistances;
+    private final int[] rowSizes;
+    /**
+     * Per row, null or a hash table from column to position + 1 (0 means empty).
+     */
+    private final int[][] rowIndexes;
+
+    public SparseDistanceMatrix(int rowCount, int columnCount) {
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        rowColumns = new int[rowCount][];
+        rowDistances = new double[rowCount][];
+        rowSizes = new int[rowCount];
+        rowIndexes = new int[rowCount][];
+        Arrays.fill(rowColumns, EMPTY_COLUMNS);
+        Arrays.fill(rowDistances, EMPTY_DISTANCES);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    public int getRowSize(int row) {
+        return rowSizes[row];
+    }
+
+    public boolean contains(int row, int column) {
+        return findPosition(row, column) >= 0;
+    }
+
+    @Override
+    public double getDistance(int row, int column) {
+        int position = findPosition(row, column);
+        return position < 0 ? Double.NaN : rowDistances[row][position];
+    }
+
+    @Override
+    public void setDistance(int row, int column, double distance) {
+        int position = findPosition(row, column);
+        if (position >= 0) {
+            rowDistances[row][position] = distance;
+            return;
+        }
+        int size = rowSizes[row];
+        if (size == rowColumns[row].length) {
+            int newLength = Math.max(4, size * 2);
+            rowColumns[row] = Arrays.copyOf(rowColumns[row], newLength);
+            rowDistances[row] = Arrays.copyOf(rowDistances[row], newLength);
+        }
+        rowColumns[row][size] = column;
+        rowDistances[row][size] = distance;
+        rowSizes[row] = size + 1;
+        if (rowIndexes[row] != null) {
+            if ((size + 1) * 2 > rowIndexes[row].length) {
+                rebuildIndex(row);
+            } else {
+                insertIntoIndex(rowIndexes[row], column, size);
+            }
+        } else if (size + 1 > INDEX_THRESHOLD) {
+            rebuildIndex(row);
+        }
+    }
+
+    private int findPosition(int row, int column) {
+        int[] index = rowIndexes[row];
+        if (index == null) {
+            int[] columns = rowColumns[row];
+            for (int position = 0; position < rowSizes[row]; position++) {
+                if (columns[position] == column) {
+                    return position;
+                }
+            }
+            return -1;
+        }
+        int mask = index.length - 1;
+        for (int slot = hash(column) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+            int position = index[slot] - 1;
+            if (rowColumns[row][position] == column) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private void rebuildIndex(int row) {
+        int size = rowSizes[row];
+        int[] index = new int[Integer.highestOneBit(Math.max(size, 1) * 4)];
+        for (int position = 0; position < size; position++) {
+            insertIntoIndex(index, rowColumns[row][position], position);
+        }
+        rowIndexes[row] = index;
+    }
+
+    private static void insertIntoIndex(int[] index, int column, int position) {
+        int mask = index.length - 1;
+        int slot = hash(column) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
+    private static int hash(int column) {
+        return column * 0x9E3779B9;
+    }
+
+    @Override
+    public void forEachInRow(int row, EntryVisitor visitor) throws IOException {
+        int[] columns = rowColumns[row];
+        double[] distances = rowDistances[row];
+        for (int position = 0; position < rowSizes[row]; position++) {
+            visitor.visit(columns[position], distances[position]);
+        }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        long memoryUsage = 0L;
+        for (int row = 0; row < rowCount; row++) {
+            memoryUsage += (long) rowColumns[row].length * Integer.BYTES
+                    + (long) rowDistances[row].length * Double.BYTES;
+            if (rowIndexes[row] != null) {
+                memoryUsage += (long) rowIndexes[row].length * Integer.BYTES;
+            }
+        }
+        return memoryUsage;
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+/**
+ * Assembles the rows of a full {@link RouteMatrix} from the route matrices of geographic tiles
+ * and the route matrix between the border locations of all tiles.
+ * <p>
+ * A route within a tile comes from its tile matrix.
+ * A route to another tile goes from the origin to a border location of its own tile,
+ * then to a border location of the destination tile and then to the destination.
+ * Of all those border pairs, the one with the lowest distance (or time) is used,
+ * so the result is an upper bound of the real route.
+ * <p>
+ * This class is thread-safe if the given matrices are not changed anymore.
+ */
+public class TiledRouteAssembler {
+
+    private final boolean minimizeDistance;
+    private final int[] tileIndexes;
+    private final int[] indexesInTile;
+    private final int[][] borderIndexes;
+    private final int[][] borderMatrixIndexes;
+    private final RouteMatrix[] tileMatrices;
+    private final RouteMatrix borderMatrix;
+
+    /**
+     * @param minimizeDistance true to pick the border pair with the lowest distance, false for the lowest time
+     * @param tileIndexes never null, the tile of every location
+     * @param indexesInTile never null, the index of every location in the matrix of its tile
+     * @param borderIndexes never null, the location indexes of the border locations of every tile
+     * @param borderMatrixIndexes never null, the index in the borderMatrix of every border location of every tile
+     * @param tileMatrices never null, the matrix of every tile
+     * @param borderMatrix never null
+     */
+    public TiledRouteAssembler(boolean minimizeDistance, int[] tileIndexes, int[] indexesInTile,
+            int[][] borderIndexes, int[][] borderMatrixIndexes, RouteMatrix[] tileMatrices, RouteMatrix borderMatrix) {
+        if (tileIndexes.length != indexesInTile.length) {
+            throw new IllegalArgumentException("The tileIndexes length (" + tileIndexes.length
+                    + ") differs from the indexesInTile length (" + indexesInTile.length + ").");
+        }
+        for (int tileIndex = 0; tileIndex < tileMatrices.length; tileIndex++) {
+            if (borderIndexes[tileIndex].length == 0) {
+                throw new IllegalArgumentException("The tile (" + tileIndex + ") has no border locations.");
+            }
+        }
+        this.minimizeDistance = minimizeDistance;
+        this.tileIndexes = tileIndexes;
+        this.indexesInTile = indexesInTile;
+        this.borderIndexes = borderIndexes;
+        this.borderMatrixIndexes = borderMatrixIndexes;
+        this.tileMatrices = tileMatrices;
+        this.borderMatrix = borderMatrix;
+    }
+
+    public int getSize() {
+        return tileIndexes.length;
+    }
+
+    /**
+     * @param fromIndex {@code 0 <= fromIndex < size}
+     * @return never null, a new row
+     */
+    public RouteRow assembleRow(int fromIndex) {
+        int size = tileIndexes.length;
+        RouteRow row = new RouteRow(size);
+        double[] distances = row.getDistances();
+        long[] times = row.getTimes();
+        int fromTileIndex = tileIndexes[fromIndex];
+        int fromIndexInTile = indexesInTile[fromIndex];
+        RouteMatrix fromTileMatrix = tileMatrices[fromTileIndex];
+        // The best route to every border location of every other tile, leaving the origin tile through its borders
+        double[][] borderDistances = new double[tileMatrices.length][];
+        long[][] borderTimes = new long[tileMatrices.length][];
+        for (int toTileIndex = 0; toTileIndex < tileMatrices.length; toTileIndex++) {
+            if (toTileIndex == fromTileIndex) {
+                continue;
+            }
+            int[] toBorderMatrixIndexes = borderMatrixIndexes[toTileIndex];
+            borderDistances[toTileIndex] = new double[toBorderMatrixIndexes.length];
+            borderTimes[toTileIndex] = new long[toBorderMatrixIndexes.length];
+            for (int q = 0; q < toBorderMatrixIndexes.length; q++) {
+                double bestDistance = Double.POSITIVE_INFINITY;
+                long bestTime = Long.MAX_VALUE;
+                for (int p = 0; p < borderIndexes[fromTileIndex].length; p++) {
+                    int fromBorderIndexInTile = indexesInTile[borderIndexes[fromTileIndex][p]];
+                    int fromBorderMatrixIndex = borderMatrixIndexes[fromTileIndex][p];
+                    double distance = fromTileMatrix.getDistance(fromIndexInTile, fromBorderIndexInTile)
+                            + borderMatrix.getDistance(fromBorderMatrixIndex, toBorderMatrixIndexes[q]);
+                    long time = fromTileMatrix.getTime(fromIndexInTile, fromBorderIndexInTile)
+                            + borderMatrix.getTime(fromBorderMatrixIndex, toBorderMatrixIndexes[q]);
+                    if (isBetter(distance, time, bestDistance, bestTime)) {
+                        bestDistance = distance;
+                        bestTime = time;
+                    }
+                }
+                borderDistances[toTileIndex][q] = bestDistance;
+                borderTimes[toTileIndex][q] = bestTime;
+            }
+        }
+        for (int toIndex = 0; toIndex < size; toIndex++) {
+            int toTileIndex = tileIndexes[toIndex];
+            int toIndexInTile = indexesInTile[toIndex];
+            if (toTileIndex == fromTileIndex) {
+                distances[toIndex] = fromTileMatrix.getDistance(fromIndexInTile, toIndexInTile);
+                times[toIndex] = fromTileMatrix.getTime(fromIndexInTile, toIndexInTile);
+                continue;
+            }
+            RouteMatrix toTileMatrix = tileMatrices[toTileIndex];
+            double bestDistance = Double.POSITIVE_INFINITY;
+            long bestTime = Long.MAX_VALUE;
+            for (int q = 0; q < borderIndexes[toTileIndex].length; q++) {
+                int toBorderIndexInTile = indexesInTile[borderIndexes[toTileIndex][q]];
+                double distance = borderDistances[toTileIndex][q]
+                        + toTileMatrix.getDistance(toBorderIndexInTile, toIndexInTile);
+                long time = borderTimes[toTileIndex][q] + toTileMatrix.getTime(toBorderIndexInTile, toIndexInTile);
+                if (isBetter(distance, time, bestDistance, bestTime)) {
+                    bestDistance = distance;
+                    bestTime = time;
+                }
+            }
+            distances[toIndex] = bestDistance;
+            times[toIndex] = bestTime;
+        }
+        return row;
+    }
+
+    private boolean isBetter(double distance, long time, double bestDistance, long bestTime) {
+        return minimizeDistance ? distance < bestDistance : time < bestTime;
+    }
+
+}
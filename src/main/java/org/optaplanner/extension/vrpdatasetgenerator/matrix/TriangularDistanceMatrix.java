@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.matrix;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Stores a symmetric square matrix as its upper triangle, including the diagonal,
+ * in 1 flat {@code double[]} on the heap: half the memory of a {@link DenseDistanceMatrix}.
+ * <p>
+ * The distance from row to column and from column to row is the same cell,
+ * so setting 1 of them also sets the other.
+ * Different threads can write different rows concurrently,
+ * as long as every thread only writes the columns at or after its own row.
+ */
+public class TriangularDistanceMatrix implements DistanceMatrix {
+
+    private final int size;
+    private final double[] distances;
+
+    public TriangularDistanceMatrix(int size) {
+        long cellCount = (long) size * (size + 1) / 2L;
+        if (cellCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The size (" + size
+                    + ") is too big for an on-heap triangular matrix. Use a "
+                    + MappedDistanceMatrix.class.getSimpleName() + " instead.");
+        }
+        this.size = size;
+        distances = new double[(int) cellCount];
+        Arrays.fill(distances, Double.NaN);
+    }
+
+    @Override
+    public int getRowCount() {
+        return size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return size;
+    }
+
+    private int index(int row, int column) {
+        if (row > column) {
+            int swap = row;
+            row = column;
+            column = swap;
+        }
+        // The rows before this row hold size + (size - 1) + ... + (size - row + 1) cells
+        return (int) ((long) row * (2 * size - row + 1) / 2L) + (column - row);
+    }
+
+    @Override
+    public double getDistance(int row, int column) {
+        return distances[index(row, column)];
+    }
+
+    @Override
+    public void setDistance(int row, int column, double distance) {
+        distances[index(row, column)] = distance;
+    }
+
+    @Override
+    public void forEachInRow(int row, EntryVisitor visitor) throws IOException {
+        for (int column = 0; column < size; column++) {
+            double distance = distances[index(row, column)];
+            if (!Double.isNaN(distance)) {
+                visitor.visit(column, distance);
+            }
+        }
+    }
+
+    @Override
+    public long getMemoryUsage() {
+        return (long) distances.length * Double.BYTES;
+    }
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.routing;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphHopperStorage;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Imports every OSM file only once per encoding, into a store directory shared by all generators,
+ * and loads it with memory-mapped storage, so a cold start only maps the graph files instead of reading them
+ * into the heap.
+ * <p>
+ * Every graph gets its own subdirectory, named after the OSM file, its CRC32 checksum, the encoding
+ * and the {@link PreparationProfile},
+ * so a changed OSM file or profile is imported again instead of silently loading the stale graph.
+ * The checksum of an OSM file is only calculated once per file version:
+ * it is remembered in {@value #CHECKSUM_FILE_NAME}, with the file size and last modified time.
+ * An import is done in a temporary subdirectory that is only renamed when it is complete,
+ * so a killed import is never loaded.
+ * <p>
+ * Within 1 JVM, every graph is loaded only once and shared, because {@link GraphHopperOSM} is read-safe.
+ * This class is thread-safe.
+ */
+public class GraphHopperStoreManager {
+
+    public static final String DEFAULT_STORE_DIR = "local/graphHopper";
+    public static final String CHECKSUM_FILE_NAME = "osmChecksums.properties";
+
+    private static final GraphHopperStoreManager INSTANCE = new GraphHopperStoreManager();
+
+    /**
+     * @return never null, shared by all generators in this JVM
+     */
+    public static GraphHopperStoreManager getInstance() {
+        return INSTANCE;
+    }
+
+    protected final transient Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final Map<File, GraphHopperOSM> graphHopperMap = new HashMap<>();
+
+    private GraphHopperStoreManager() {
+    }
+
+    /**
+     * Loads it with the {@link PreparationProfile#DEFAULT}.
+     * @param osmPath never null, must exist
+     * @param storeDir never null, for example {@link #DEFAULT_STORE_DIR}, created if it does not exist
+     * @param encoding never null, for example {@code car}
+     * @return never null, imported and loaded
+     */
+    public GraphHopperOSM load(String osmPath, String storeDir, String encoding) {
+        return load(osmPath, storeDir, encoding, PreparationProfile.DEFAULT);
+    }
+
+    /**
+     * @param osmPath never null, must exist
+     * @param storeDir never null, for example {@link #DEFAULT_STORE_DIR}, created if it does not exist
+     * @param encoding never null, for example {@code car}
+     * @param preparationProfile never null
+     * @return never null, imported, prepared and loaded
+     */
+    public synchronized GraphHopperOSM load(String osmPath, String storeDir, String encoding,
+            PreparationProfile preparationProfile) {
+        File osmFile = new File(osmPath);
+        if (!osmFile.exists()) {
+            throw new IllegalStateException("The osmPath (" + osmPath + ") does not exist.\n" +
+                    "Download the osm file from http://download.geofabrik.de/ first.");
+        }
+        File graphDir;
+        try {
+            File storeDirFile = new File(storeDir);
+            FileUtils.forceMkdir(storeDirFile);
+            graphDir = new File(storeDirFile, osmFile.getName().replaceAll("(\\.osm)?(\\.pbf)?$", "")
+                    + "-" + Long.toHexString(readChecksum(storeDirFile, osmFile)) + "-" + encoding
+                    + "-" + preparationProfile.getCode())
+                    .getAbsoluteFile();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not read the osmPath (" + osmPath
+                    + ") or the storeDir (" + storeDir + ").", e);
+        }
+        GraphHopperOSM graphHopper = graphHopperMap.get(graphDir);
+        if (graphHopper == null) {
+            if (!graphDir.exists()) {
+                importGraph(osmPath, graphDir, encoding, preparationProfile);
+            }
+            graphHopper = loadGraph(osmPath, graphDir, encoding, preparationProfile);
+            graphHopperMap.put(graphDir, graphHopper);
+        }
+        return graphHopper;
+    }
+
+    private long readChecksum(File storeDir, File osmFile) throws IOException {
+        File checksumFile = new File(storeDir, CHECKSUM_FILE_NAME);
+        Properties checksumProperties = new Properties();
+        if (checksumFile.exists()) {
+            try (InputStream in = new FileInputStream(checksumFile)) {
+                checksumProperties.load(in);
+            }
+        }
+        String key = osmFile.getAbsolutePath() + "|" + osmFile.length() + "|" + osmFile.lastModified();
+        String checksumString = checksumProperties.getProperty(key);
+        if (checksumString != null) {
+            return Long.parseLong(checksumString, 16);
+        }
+        logger.info("Calculating the checksum of osmFile ({})...", osmFile);
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[1024 * 1024];
+        try (InputStream in = new FileInputStream(osmFile)) {
+            for (int readCount = in.read(buffer); readCount >= 0; readCount = in.read(buffer)) {
+                crc.update(buffer, 0, readCount);
+            }
+        }
+        long checksum = crc.getValue();
+        checksumProperties.setProperty(key, Long.toHexString(checksum));
+        try (OutputStream out = new FileOutputStream(checksumFile)) {
+            checksumProperties.store(out, "The CRC32 checksum per OSM file path, size and last modified time");
+        }
+        return checksum;
+    }
+
+    private void importGraph(String osmPath, File graphDir, String encoding, PreparationProfile preparationProfile) {
+        File importDir = new File(graphDir.getParentFile(), graphDir.getName() + ".importing");
+        logger.info("Importing and preparing osmPath ({}) into graphDir ({})...", osmPath, graphDir);
+        long startTime = System.currentTimeMillis();
+        try {
+            // Left over by an import that was killed
+            FileUtils.deleteDirectory(importDir);
+            GraphHopperOSM importer = createGraphHopper(osmPath, importDir, encoding, preparationProfile);
+            importer.importOrLoad();
+            importer.close();
+            Files.move(importDir.toPath(), graphDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not import the osmPath (" + osmPath
+                    + ") into the graphDir (" + graphDir + ").", e);
+        }
+        logger.info("Imported osmPath ({}) in {} ms.", osmPath, System.currentTimeMillis() - startTime);
+    }
+
+    private GraphHopperOSM loadGraph(String osmPath, File graphDir, String encoding,
+            PreparationProfile preparationProfile) {
+        long startTime = System.currentTimeMillis();
+        GraphHopperOSM graphHopper = createGraphHopper(osmPath, graphDir, encoding, preparationProfile);
+        graphHopper.importOrLoad();
+        GraphHopperStorage storage = graphHopper.getGraphHopperStorage();
+        logger.info("Loaded graphDir ({}) with {} nodes in {} ms, {} memory-mapped.",
+                graphDir.getName(), storage.getNodes(), System.currentTimeMillis() - startTime,
+                FileUtils.byteCountToDisplaySize(storage.getCapacity()));
+        return graphHopper;
+    }
+
+    private GraphHopperOSM createGraphHopper(String osmPath, File graphDir, String encoding,
+            PreparationProfile preparationProfile) {
+        GraphHopperOSM graphHopper = (GraphHopperOSM) new GraphHopperOSM().forServer();
+        graphHopper.setOSMFile(osmPath);
+        graphHopper.setGraphHopperLocation(graphDir.getPath());
+        graphHopper.setEncodingManager(new EncodingManager(encoding));
+        graphHopper.setMemoryMapped();
+        preparationProfile.applyTo(graphHopper);
+        return graphHopper;
+    }
+
+}
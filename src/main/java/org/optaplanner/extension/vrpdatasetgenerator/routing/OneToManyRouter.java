@@ -0,0 +1,190 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.DijkstraOneToMany;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.QueryResult;
+
+/**
+ * Routes from 1 origin to many targets with a single shortest path tree search,
+ * instead of 1 {@link com.graphhopper.GHRequest} per pair.
+ * <p>
+ * Every location is snapped only once, through the {@link LocationIndex}, into a shared {@link QueryGraph}.
+ * For each origin, a {@link DijkstraOneToMany} search keeps expanding the same tree until it settled all targets,
+ * so an n x n matrix costs n searches instead of n * n searches.
+ * <p>
+ * A {@link DijkstraOneToMany} ignores the from node until it is cleared and keeps expanding its previous tree,
+ * so the tree is cleared whenever the origin changes.
+ * <p>
+ * The {@link QueryGraph} is only read after construction, so this class is thread-safe:
+ * every thread gets its own {@link DijkstraOneToMany} instance.
+ */
+public class OneToManyRouter {
+
+    private final int locationCount;
+    private final QueryGraph queryGraph;
+    private final Weighting weighting;
+    private final int[] nodes;
+
+    private final ThreadLocal<ShortestPathTree> treeThreadLocal;
+
+    /**
+     * @param graphHopper never null, already loaded
+     * @param vehicle never null, for example {@code "car"}
+     * @param weightingName never null, {@code "shortest"} or {@code "fastest"}
+     * @param latitudes never null, same length as longitudes
+     * @param longitudes never null, same length as latitudes
+     */
+    public OneToManyRouter(GraphHopper graphHopper, String vehicle, String weightingName,
+            double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("The latitudes length (" + latitudes.length
+                    + ") differs from the longitudes length (" + longitudes.length + ").");
+        }
+        locationCount = latitudes.length;
+        FlagEncoder encoder = graphHopper.getEncodingManager().getEncoder(vehicle);
+        weighting = createWeighting(encoder, weightingName);
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
+        DefaultEdgeFilter edgeFilter = new DefaultEdgeFilter(encoder);
+        List<QueryResult> queryResultList = new ArrayList<>(locationCount);
+        for (int i = 0; i < locationCount; i++) {
+            QueryResult queryResult = locationIndex.findClosest(latitudes[i], longitudes[i], edgeFilter);
+            if (!queryResult.isValid()) {
+                throw new IllegalArgumentException("The location (" + latitudes[i] + ", " + longitudes[i]
+                        + ") with index (" + i + ") could not be snapped to the road network.");
+            }
+            queryResultList.add(queryResult);
+        }
+        queryGraph = new QueryGraph(graphHopper.getGraphHopperStorage());
+        queryGraph.lookup(queryResultList);
+        // After the lookup, the closest node of each queryResult refers to a (possibly virtual) node of the queryGraph
+        nodes = new int[locationCount];
+        for (int i = 0; i < locationCount; i++) {
+            nodes[i] = queryResultList.get(i).getClosestNode();
+        }
+        treeThreadLocal = ThreadLocal.withInitial(
+                () -> new ShortestPathTree(new DijkstraOneToMany(queryGraph, weighting, TraversalMode.NODE_BASED)));
+    }
+
+    private static Weighting createWeighting(FlagEncoder encoder, String weightingName) {
+        switch (weightingName) {
+            case "shortest":
+                return new ShortestWeighting(encoder);
+            case "fastest":
+                return new FastestWeighting(encoder);
+            default:
+                throw new IllegalArgumentException("Unsupported weightingName (" + weightingName + ").");
+        }
+    }
+
+    public int getLocationCount() {
+        return locationCount;
+    }
+
+    /**
+     * Clears the shortest path tree of this thread and roots it at the origin,
+     * so the next calls of {@link #calcPath(int, int)} with that fromIndex grow a fresh tree.
+     * @param fromIndex {@code 0 <= fromIndex < locationCount}
+     */
+    public void startTree(int fromIndex) {
+        treeThreadLocal.get().start(nodes[fromIndex]);
+    }
+
+    /**
+     * Consecutive calls with the same fromIndex on the same thread reuse the shortest path tree.
+     * A call with another fromIndex than the previous call on this thread starts a new tree.
+     * @param fromIndex {@code 0 <= fromIndex < locationCount}
+     * @param toIndex {@code 0 <= toIndex < locationCount}
+     * @return never null, {@link Path#isFound()} is true
+     */
+    public Path calcPath(int fromIndex, int toIndex) {
+        ShortestPathTree tree = treeThreadLocal.get();
+        int fromNode = nodes[fromIndex];
+        if (tree.fromNode != fromNode) {
+            tree.start(fromNode);
+        }
+        Path path = tree.algorithm.calcPath(fromNode, nodes[toIndex]);
+        if (!path.isFound()) {
+            throw new IllegalStateException("No path found from index (" + fromIndex
+                    + ") to index (" + toIndex + ").");
+        }
+        return path;
+    }
+
+    /**
+     * Settles all targets with a single search from the origin, which always starts with a new tree.
+     * @param fromIndex {@code 0 <= fromIndex < locationCount}
+     * @param distances never null, length {@code locationCount}, filled in meters
+     * @param times never null, length {@code locationCount}, filled in milliseconds
+     */
+    public void calcRow(int fromIndex, double[] distances, long[] times) {
+        calcRow(fromIndex, 0, distances, times);
+    }
+
+    /**
+     * Settles only the targets from firstToIndex onwards, for example the upper triangle of a symmetric matrix.
+     * The distances and times before firstToIndex are left untouched.
+     * @param fromIndex {@code 0 <= fromIndex < locationCount}
+     * @param firstToIndex {@code 0 <= firstToIndex <= locationCount}
+     * @param distances never null, length {@code locationCount}, filled in meters
+     * @param times never null, length {@code locationCount}, filled in milliseconds
+     */
+    public void calcRow(int fromIndex, int firstToIndex, double[] distances, long[] times) {
+        startTree(fromIndex);
+        for (int toIndex = firstToIndex; toIndex < locationCount; toIndex++) {
+            if (toIndex == fromIndex) {
+                distances[toIndex] = 0.0;
+                times[toIndex] = 0L;
+                continue;
+            }
+            Path path = calcPath(fromIndex, toIndex);
+            distances[toIndex] = path.getDistance();
+            times[toIndex] = path.getTime();
+        }
+    }
+
+    private static class ShortestPathTree {
+
+        private final DijkstraOneToMany algorithm;
+        /** -1 if no tree has been grown yet. */
+        private int fromNode = -1;
+
+        private ShortestPathTree(DijkstraOneToMany algorithm) {
+            this.algorithm = algorithm;
+        }
+
+        private void start(int fromNode) {
+            algorithm.clear();
+            this.fromNode = fromNode;
+        }
+
+    }
+
+}
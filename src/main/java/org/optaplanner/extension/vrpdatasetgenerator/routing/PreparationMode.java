@@ -0,0 +1,49 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.routing;
+
+/**
+ * How GraphHopper speeds up the routes of 1 weighting.
+ */
+public enum PreparationMode {
+    /**
+     * No preparation: plain bidirectional A*, the slowest queries, but no import overhead.
+     */
+    FLEXIBLE("flex"),
+    /**
+     * Contraction hierarchies: the fastest queries, but the slowest preparation.
+     */
+    CONTRACTION_HIERARCHIES("ch"),
+    /**
+     * Landmarks: faster than flexible and a faster preparation than contraction hierarchies.
+     */
+    LANDMARKS("lm");
+
+    private final String code;
+
+    PreparationMode(String code) {
+        this.code = code;
+    }
+
+    /**
+     * @return never null, used in the graph directory name
+     */
+    public String getCode() {
+        return code;
+    }
+
+}
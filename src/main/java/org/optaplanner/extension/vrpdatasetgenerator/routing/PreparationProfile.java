@@ -0,0 +1,185 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.util.Parameters;
+
+/**
+ * The {@link PreparationMode} per weighting (such as {@code fastest} and {@code shortest}).
+ * A weighting without a mode is {@link PreparationMode#FLEXIBLE}.
+ * <p>
+ * The preparation is stored in the graph directory, so a graph can only be loaded with the profile it was
+ * imported with: the {@link GraphHopperStoreManager} puts the {@link #getCode()} in the graph directory name.
+ * <p>
+ * This class is immutable, so it is thread-safe.
+ */
+public class PreparationProfile {
+
+    /**
+     * Contraction hierarchies for both weightings that the generators use.
+     */
+    public static final PreparationProfile DEFAULT = parse(
+            "fastest:CONTRACTION_HIERARCHIES,shortest:CONTRACTION_HIERARCHIES");
+
+    /**
+     * @param text never null, for example {@code fastest:CONTRACTION_HIERARCHIES,shortest:LANDMARKS},
+     * empty for no preparation at all
+     * @return never null
+     */
+    public static PreparationProfile parse(String text) {
+        Map<String, PreparationMode> modeMap = new TreeMap<>();
+        if (!text.isEmpty()) {
+            for (String entry : text.split(",")) {
+                String[] tokens = entry.split(":");
+                if (tokens.length != 2) {
+                    throw new IllegalArgumentException("The preparation profile entry (" + entry
+                            + ") is not in the format weighting:mode.");
+                }
+                modeMap.put(tokens[0].trim(), PreparationMode.valueOf(tokens[1].trim()));
+            }
+        }
+        return new PreparationProfile(modeMap);
+    }
+
+    private final Map<String, PreparationMode> modeMap;
+
+    /**
+     * @param modeMap never null, copied
+     */
+    public PreparationProfile(Map<String, PreparationMode> modeMap) {
+        this.modeMap = Collections.unmodifiableMap(new TreeMap<>(modeMap));
+    }
+
+    /**
+     * @param weightingName never null
+     * @return never null
+     */
+    public PreparationMode getMode(String weightingName) {
+        return modeMap.getOrDefault(weightingName, PreparationMode.FLEXIBLE);
+    }
+
+    /**
+     * @return never null, for example {@code fastest-ch_shortest-lm}, in weighting order
+     */
+    public String getCode() {
+        if (modeMap.isEmpty()) {
+            return "flex";
+        }
+        StringBuilder code = new StringBuilder();
+        for (Map.Entry<String, PreparationMode> entry : modeMap.entrySet()) {
+            if (code.length() > 0) {
+                code.append('_');
+            }
+            code.append(entry.getKey()).append('-').append(entry.getValue().getCode());
+        }
+        return code.toString();
+    }
+
+    /**
+     * Configures which weightings are prepared, before the graph is imported or loaded.
+     * Disabling is allowed, so {@link #applyTo(GHRequest, String)} can route the other weightings.
+     * @param graphHopper never null, not loaded yet
+     */
+    public void applyTo(GraphHopper graphHopper) {
+        List<String> chWeightingList = getWeightingList(PreparationMode.CONTRACTION_HIERARCHIES);
+        List<String> lmWeightingList = getWeightingList(PreparationMode.LANDMARKS);
+        graphHopper.setCHEnabled(!chWeightingList.isEmpty());
+        if (!chWeightingList.isEmpty()) {
+            graphHopper.getCHFactoryDecorator().setWeightingsAsStrings(chWeightingList);
+        }
+        graphHopper.getCHFactoryDecorator().setDisablingAllowed(true);
+        graphHopper.getLMFactoryDecorator().setEnabled(!lmWeightingList.isEmpty());
+        if (!lmWeightingList.isEmpty()) {
+            graphHopper.getLMFactoryDecorator().setWeightingsAsStrings(lmWeightingList);
+        }
+        graphHopper.getLMFactoryDecorator().setDisablingAllowed(true);
+    }
+
+    private List<String> getWeightingList(PreparationMode mode) {
+        List<String> weightingList = new ArrayList<>(modeMap.size());
+        for (Map.Entry<String, PreparationMode> entry : modeMap.entrySet()) {
+            if (entry.getValue() == mode) {
+                weightingList.add(entry.getKey());
+            }
+        }
+        return weightingList;
+    }
+
+    /**
+     * Selects the prepared speed-up of the weighting, or none if it is not prepared.
+     * @param request never null
+     * @param weightingName never null, the weighting of the request
+     * @return request
+     */
+    public GHRequest applyTo(GHRequest request, String weightingName) {
+        switch (getMode(weightingName)) {
+            case CONTRACTION_HIERARCHIES:
+                break;
+            case LANDMARKS:
+                request.getHints().put(Parameters.CH.DISABLE, true);
+                break;
+            case FLEXIBLE:
+                request.getHints().put(Parameters.CH.DISABLE, true);
+                request.getHints().put(Parameters.Landmark.DISABLE, true);
+                break;
+            default:
+                throw new IllegalStateException("The preparation mode (" + getMode(weightingName)
+                        + ") is not implemented.");
+        }
+        return request;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return modeMap.equals(((PreparationProfile) o).modeMap);
+    }
+
+    @Override
+    public int hashCode() {
+        return modeMap.hashCode();
+    }
+
+    /**
+     * @return never null, in the {@link #parse(String)} format
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, PreparationMode> entry : modeMap.entrySet()) {
+            if (text.length() > 0) {
+                text.append(',');
+            }
+            text.append(entry.getKey()).append(':').append(entry.getValue().name());
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.routing;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.graphhopper.PathWrapper;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent route cache from a (from, to) coordinate pair to the road distance and time between them.
+ * <p>
+ * There is 1 cache file per OSM file fingerprint, vehicle and weighting,
+ * so a changed OSM file or a different weighting never returns stale routes.
+ * The file is an open addressing hash table, memory-mapped so it survives between runs
+ * (and a crashed run) without explicit serialization.
+ * <p>
+ * This class is thread-safe: lookups share a read lock, so parallel routing threads don't block each other
+ * on cache hits. Only storing a new route (after routing it, which takes far longer) takes the write lock.
+ */
+public class RouteCache implements Closeable {
+
+    private static final long MAGIC = 0x5650524F55544531L; // "VPROUTE1"
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 56;
+    private static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / SLOT_SIZE;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final double MAX_LOAD_FACTOR = 0.6;
+
+    protected final transient Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final File cacheFile;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+    private boolean full = false;
+
+    private final AtomicLong hitCount = new AtomicLong(0L);
+    private final AtomicLong missCount = new AtomicLong(0L);
+
+    /**
+     * @param cacheDir never null, created if it does not exist
+     * @param osmFile never null, its name, length and last modified time determine the fingerprint
+     * @param vehicle never null, for example {@code "car"}
+     * @param weightingName never null, for example {@code "shortest"}
+     * @return never null
+     */
+    public static RouteCache open(File cacheDir, File osmFile, String vehicle, String weightingName) {
+        if (!osmFile.exists()) {
+            throw new IllegalArgumentException("The osmFile (" + osmFile + ") does not exist.");
+        }
+        String fingerprint = Long.toHexString(osmFile.length()) + "-" + Long.toHexString(osmFile.lastModified());
+        String osmName = osmFile.getName().replaceAll("\\.osm(\\.pbf)?$", "");
+        File cacheFile = new File(cacheDir, osmName + "-" + fingerprint + "-" + vehicle + "-" + weightingName + ".cache");
+        try {
+            FileUtils.forceMkdir(cacheDir);
+            return new RouteCache(cacheFile);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not open the cacheFile (" + cacheFile + ").", e);
+        }
+    }
+
+    private RouteCache(File cacheFile) throws IOException {
+        this.cacheFile = cacheFile;
+        boolean exists = cacheFile.exists() && cacheFile.length() >= HEADER_SIZE;
+        randomAccessFile = new RandomAccessFile(cacheFile, "rw");
+        if (exists) {
+            MappedByteBuffer header = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getLong(0) != MAGIC) {
+                throw new IllegalStateException("The cacheFile (" + cacheFile + ") is not a route cache file.\n"
+                        + "Delete it to rebuild it.");
+            }
+            capacity = header.getInt(8);
+            size = header.getInt(12);
+            buffer = map(randomAccessFile, capacity);
+        } else {
+            capacity = INITIAL_CAPACITY;
+            size = 0;
+            buffer = map(randomAccessFile, capacity);
+            writeHeader();
+        }
+        logger.info("Opened route cache ({}) with {} routes.", cacheFile.getName(), size);
+    }
+
+    private static MappedByteBuffer map(RandomAccessFile randomAccessFile, int capacity) throws IOException {
+        long fileSize = HEADER_SIZE + (long) capacity * SLOT_SIZE;
+        randomAccessFile.setLength(fileSize);
+        return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+    }
+
+    private void writeHeader() {
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, capacity);
+        buffer.putInt(12, size);
+    }
+
+    /**
+     * @return null if the route is not cached, otherwise a {@link PathWrapper} with only a distance and a time
+     */
+    public PathWrapper get(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double distance;
+        long time;
+        lock.readLock().lock();
+        try {
+            int offset = offset(findSlot(fromLatitude, fromLongitude, toLatitude, toLongitude));
+            if (buffer.getLong(offset + 48) == 0L) {
+                missCount.incrementAndGet();
+                return null;
+            }
+            distance = buffer.getDouble(offset + 32);
+            time = buffer.getLong(offset + 40);
+        } finally {
+            lock.readLock().unlock();
+        }
+        hitCount.incrementAndGet();
+        return new PathWrapper().setDistance(distance).setTime(time);
+    }
+
+    public void put(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude,
+            double distance, long time) {
+        lock.writeLock().lock();
+        try {
+            putLocked(fromLatitude, fromLongitude, toLatitude, toLongitude, distance, time);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putLocked(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude,
+            double distance, long time) {
+        if (full) {
+            return;
+        }
+        if (size + 1 > capacity * MAX_LOAD_FACTOR) {
+            if (capacity * 2L > MAX_CAPACITY) {
+                logger.warn("The route cache ({}) is full with {} routes, new routes are no longer cached.",
+                        cacheFile.getName(), size);
+                full = true;
+                return;
+            }
+            resize(capacity * 2);
+        }
+        int slot = findSlot(fromLatitude, fromLongitude, toLatitude, toLongitude);
+        int offset = offset(slot);
+        if (buffer.getLong(offset + 48) == 0L) {
+            size++;
+            buffer.putInt(12, size);
+        }
+        writeSlot(offset, fromLatitude, fromLongitude, toLatitude, toLongitude, distance, time);
+    }
+
+    private void writeSlot(int offset, double fromLatitude, double fromLongitude, double toLatitude, double toLongitude,
+            double distance, long time) {
+        buffer.putDouble(offset, fromLatitude);
+        buffer.putDouble(offset + 8, fromLongitude);
+        buffer.putDouble(offset + 16, toLatitude);
+        buffer.putDouble(offset + 24, toLongitude);
+        buffer.putDouble(offset + 32, distance);
+        buffer.putLong(offset + 40, time);
+        buffer.putLong(offset + 48, 1L);
+    }
+
+    private int findSlot(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        int slot = hash(fromLatitude, fromLongitude, toLatitude, toLongitude) & (capacity - 1);
+        while (true) {
+            int offset = offset(slot);
+            if (buffer.getLong(offset + 48) == 0L
+                    || (buffer.getDouble(offset) == fromLatitude
+                    && buffer.getDouble(offset + 8) == fromLongitude
+                    && buffer.getDouble(offset + 16) == toLatitude
+                    && buffer.getDouble(offset + 24) == toLongitude)) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static int hash(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        long hash = Double.doubleToLongBits(fromLatitude);
+        hash = hash * 31L + Double.doubleToLongBits(fromLongitude);
+        hash = hash * 31L + Double.doubleToLongBits(toLatitude);
+        hash = hash * 31L + Double.doubleToLongBits(toLongitude);
+        // Spread the bits, because the power of 2 capacity only looks at the lowest bits
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return (int) hash;
+    }
+
+    /**
+     * Called with the write lock, so no lookup reads the old buffer when it is unmapped.
+     */
+    private void resize(int newCapacity) {
+        File resizeFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".resize");
+        try {
+            MappedByteBuffer oldBuffer = buffer;
+            int oldCapacity = capacity;
+            RandomAccessFile oldRandomAccessFile = randomAccessFile;
+            randomAccessFile = new RandomAccessFile(resizeFile, "rw");
+            capacity = newCapacity;
+            buffer = map(randomAccessFile, capacity);
+            for (int oldSlot = 0; oldSlot < oldCapacity; oldSlot++) {
+                int oldOffset = offset(oldSlot);
+                if (oldBuffer.getLong(oldOffset + 48) != 0L) {
+                    double fromLatitude = oldBuffer.getDouble(oldOffset);
+                    double fromLongitude = oldBuffer.getDouble(oldOffset + 8);
+                    double toLatitude = oldBuffer.getDouble(oldOffset + 16);
+                    double toLongitude = oldBuffer.getDouble(oldOffset + 24);
+                    writeSlot(offset(findSlot(fromLatitude, fromLongitude, toLatitude, toLongitude)),
+                            fromLatitude, fromLongitude, toLatitude, toLongitude,
+                            oldBuffer.getDouble(oldOffset + 32), oldBuffer.getLong(oldOffset + 40));
+                }
+            }
+            writeHeader();
+            buffer.force();
+            unmap(oldBuffer);
+            oldRandomAccessFile.close();
+            // The open mapping of the resizeFile follows the rename
+            Files.move(resizeFile.toPath(), cacheFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not resize the cacheFile (" + cacheFile
+                    + ") to capacity (" + newCapacity + ").", e);
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public void logStatistics() {
+        int routeCount;
+        lock.readLock().lock();
+        try {
+            routeCount = size;
+        } finally {
+            lock.readLock().unlock();
+        }
+        long hits = hitCount.get();
+        long misses = missCount.get();
+        logger.info("Route cache ({}) has {} routes: {} hits and {} misses ({}% hit ratio).",
+                cacheFile.getName(), routeCount, hits, misses,
+                String.format("%.1f", (hits + misses) == 0L ? 0.0 : hits * 100.0 / (hits + misses)));
+    }
+
+    public void flush() {
+        lock.readLock().lock();
+        try {
+            buffer.force();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+            unmap(buffer);
+            randomAccessFile.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the mapping now instead of when the buffer is garbage collected,
+     * so the file can be replaced or deleted (which fails on Windows while it is mapped).
+     * The buffer must never be accessed again.
+     * If the JVM doesn't allow it, the mapping is released by the garbage collector.
+     */
+    private void unmap(MappedByteBuffer mappedBuffer) {
+        try {
+            // Java 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", java.nio.ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), mappedBuffer);
+            return;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Fall through to the Java 8 way
+        }
+        try {
+            Method cleanerMethod = mappedBuffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(mappedBuffer);
+            if (cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.debug("Could not unmap the buffer of cacheFile ({}), the garbage collector will.",
+                    cacheFile.getName(), e);
+        }
+    }
+
+}
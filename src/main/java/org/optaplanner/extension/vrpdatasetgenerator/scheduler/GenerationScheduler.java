@@ -0,0 +1,315 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.scheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a graph of {@link GenerationTask}s on a pool of worker threads:
+ * a task starts as soon as all its dependencies completed, a worker is free
+ * and its memoryUsage fits in the memory budget next to the memory of the running tasks and retained results.
+ * <p>
+ * Ready tasks start in the order they were added, so the tasks of the first datasets finish (and release their
+ * results) first. If nothing runs and nothing fits, the first ready task starts anyway, so an oversized task
+ * slows down the schedule instead of deadlocking it.
+ * <p>
+ * This class is not thread-safe: all scheduling happens on the thread that calls {@link #run(List)}.
+ */
+public class GenerationScheduler {
+
+    private static final long PROGRESS_LOG_INTERVAL_MILLIS = 10_000L;
+
+    protected final transient Logger logger = LoggerFactory.getLogger(getClass());
+
+    private final int threadCount;
+    private final long memoryBudget;
+
+    /**
+     * @param threadCount {@code >= 1}, the maximum number of tasks that run at the same time
+     * @param memoryBudget {@code >= 0}, in bytes
+     */
+    public GenerationScheduler(int threadCount, long memoryBudget) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("The threadCount (" + threadCount + ") must be at least 1.");
+        }
+        if (memoryBudget < 0L) {
+            throw new IllegalArgumentException("The memoryBudget (" + memoryBudget + ") must not be negative.");
+        }
+        this.threadCount = threadCount;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Runs all tasks and returns when they all completed.
+     * If a task fails, no new tasks are started, the running tasks are awaited,
+     * all retained results are released and the failure is rethrown.
+     * @param taskList never null, every dependency must be in the list before its dependents
+     */
+    public void run(List<GenerationTask<?>> taskList) {
+        new Schedule(taskList).run();
+    }
+
+    private class Schedule {
+
+        private final List<GenerationTask<?>> taskList;
+        private final PriorityQueue<GenerationTask<?>> readyTaskQueue
+                = new PriorityQueue<>(Comparator.comparingInt(task -> task.index));
+        private final BlockingQueue<TaskCompletion> completionQueue = new LinkedBlockingQueue<>();
+        private final List<GenerationTask<?>> retainedTaskList = new ArrayList<>();
+
+        private final long totalWorkload;
+        private long completedWorkload = 0L;
+        private int completedTaskCount = 0;
+        private int runningTaskCount = 0;
+        private long reservedMemory = 0L;
+        private long peakReservedMemory = 0L;
+        private TaskCompletion failure = null;
+
+        private long startTimeMillis;
+        private long nextProgressLogTimeMillis;
+
+        public Schedule(List<GenerationTask<?>> taskList) {
+            this.taskList = taskList;
+            long totalWorkload = 0L;
+            for (int i = 0; i < taskList.size(); i++) {
+                GenerationTask<?> task = taskList.get(i);
+                if (task.index >= 0) {
+                    throw new IllegalArgumentException("The task (" + task + ") is scheduled twice.");
+                }
+                task.index = i;
+                task.remainingDependencyCount = task.getDependencyList().size();
+                for (GenerationTask<?> dependency : task.getDependencyList()) {
+                    if (dependency.index < 0 || dependency.index >= i || taskList.get(dependency.index) != dependency) {
+                        throw new IllegalArgumentException("The task (" + task + ")'s dependency (" + dependency
+                                + ") is not earlier in the taskList.");
+                    }
+                    dependency.dependentList.add(task);
+                    dependency.remainingDependentCount++;
+                }
+                totalWorkload += task.getWorkload();
+            }
+            this.totalWorkload = totalWorkload;
+            for (GenerationTask<?> task : taskList) {
+                if (task.remainingDependencyCount == 0) {
+                    readyTaskQueue.add(task);
+                }
+            }
+        }
+
+        public void run() {
+            startTimeMillis = System.currentTimeMillis();
+            nextProgressLogTimeMillis = startTimeMillis + PROGRESS_LOG_INTERVAL_MILLIS;
+            logger.info("Scheduling {} tasks with {} threads and a memory budget of {} MB.",
+                    taskList.size(), threadCount, toMegabytes(memoryBudget));
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount, new GenerationThreadFactory());
+            try {
+                while (completedTaskCount < taskList.size()) {
+                    if (failure == null) {
+                        startReadyTasks(executor);
+                    }
+                    if (runningTaskCount == 0) {
+                        break;
+                    }
+                    complete(takeCompletion());
+                }
+            } finally {
+                executor.shutdownNow();
+                if (failure != null || completedTaskCount < taskList.size()) {
+                    for (GenerationTask<?> task : retainedTaskList) {
+                        release(task);
+                    }
+                }
+            }
+            if (failure != null) {
+                Throwable cause = failure.throwable;
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException("The task (" + failure.task + ") failed.", cause);
+            }
+            long timeMillis = System.currentTimeMillis() - startTimeMillis;
+            logger.info("Completed {} tasks in {} with {} threads and a peak reserved memory of {}/{} MB.",
+                    completedTaskCount, formatDuration(timeMillis), threadCount,
+                    toMegabytes(peakReservedMemory), toMegabytes(memoryBudget));
+        }
+
+        private void startReadyTasks(ExecutorService executor) {
+            while (runningTaskCount < threadCount && !readyTaskQueue.isEmpty()) {
+                GenerationTask<?> task = readyTaskQueue.peek();
+                if (reservedMemory + task.getMemoryUsage() > memoryBudget) {
+                    if (runningTaskCount > 0) {
+                        // Wait for memory to be released
+                        return;
+                    }
+                    logger.warn("The task ({}) needs {} MB, which exceeds the memory budget ({}/{} MB reserved).",
+                            task, toMegabytes(task.getMemoryUsage()),
+                            toMegabytes(reservedMemory), toMegabytes(memoryBudget));
+                }
+                readyTaskQueue.poll();
+                reservedMemory += task.getMemoryUsage();
+                peakReservedMemory = Math.max(peakReservedMemory, reservedMemory);
+                runningTaskCount++;
+                executor.execute(() -> {
+                    long taskStartTimeMillis = System.currentTimeMillis();
+                    Throwable throwable = null;
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        throwable = e;
+                    }
+                    completionQueue.add(new TaskCompletion(task,
+                            System.currentTimeMillis() - taskStartTimeMillis, throwable));
+                });
+            }
+        }
+
+        private TaskCompletion takeCompletion() {
+            try {
+                return completionQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the running tasks.", e);
+            }
+        }
+
+        private void complete(TaskCompletion completion) {
+            GenerationTask<?> task = completion.task;
+            runningTaskCount--;
+            if (completion.throwable != null) {
+                logger.error("The task ({}) failed after {}.", task, formatDuration(completion.timeMillis));
+                if (failure == null) {
+                    failure = completion;
+                }
+                reservedMemory -= task.getMemoryUsage();
+                return;
+            }
+            completedTaskCount++;
+            completedWorkload += task.getWorkload();
+            for (GenerationTask<?> dependent : task.dependentList) {
+                dependent.remainingDependencyCount--;
+                if (dependent.remainingDependencyCount == 0) {
+                    readyTaskQueue.add(dependent);
+                }
+            }
+            if (task.remainingDependentCount == 0) {
+                release(task);
+            } else {
+                retainedTaskList.add(task);
+            }
+            for (GenerationTask<?> dependency : task.getDependencyList()) {
+                dependency.remainingDependentCount--;
+                if (dependency.remainingDependentCount == 0) {
+                    retainedTaskList.remove(dependency);
+                    release(dependency);
+                }
+            }
+            logProgress(task, completion.timeMillis);
+        }
+
+        private void release(GenerationTask<?> task) {
+            if (task.released) {
+                return;
+            }
+            reservedMemory -= task.getMemoryUsage();
+            try {
+                task.release();
+            } catch (Exception e) {
+                logger.warn("Could not release the result of task (" + task + ").", e);
+            }
+        }
+
+        private void logProgress(GenerationTask<?> task, long timeMillis) {
+            long currentTimeMillis = System.currentTimeMillis();
+            if (timeMillis < PROGRESS_LOG_INTERVAL_MILLIS && currentTimeMillis < nextProgressLogTimeMillis
+                    && completedTaskCount < taskList.size()) {
+                logger.debug("Completed task ({}) in {}.", task, formatDuration(timeMillis));
+                return;
+            }
+            nextProgressLogTimeMillis = currentTimeMillis + PROGRESS_LOG_INTERVAL_MILLIS;
+            long elapsedMillis = currentTimeMillis - startTimeMillis;
+            String eta = completedWorkload == 0L ? "unknown"
+                    : formatDuration((long) (elapsedMillis * (double) (totalWorkload - completedWorkload)
+                    / completedWorkload));
+            logger.info("Completed task ({}) in {}: {}/{} tasks, {}% of the workload,"
+                            + " {} running, {}/{} MB reserved, ETA {}.",
+                    task, formatDuration(timeMillis), completedTaskCount, taskList.size(),
+                    totalWorkload == 0L ? 100L : completedWorkload * 100L / totalWorkload,
+                    runningTaskCount, toMegabytes(reservedMemory), toMegabytes(memoryBudget), eta);
+        }
+
+    }
+
+    private static long toMegabytes(long bytes) {
+        return bytes / (1024L * 1024L);
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000L;
+        if (seconds < 60L) {
+            return millis + " ms";
+        }
+        return String.format("%dh%02dm%02ds", seconds / 3600L, (seconds / 60L) % 60L, seconds % 60L);
+    }
+
+    private static class TaskCompletion {
+
+        private final GenerationTask<?> task;
+        private final long timeMillis;
+        private final Throwable throwable;
+
+        public TaskCompletion(GenerationTask<?> task, long timeMillis, Throwable throwable) {
+            this.task = task;
+            this.timeMillis = timeMillis;
+            this.throwable = throwable;
+        }
+
+    }
+
+    private static class GenerationThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "generation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.optaplanner.extension.vrpdatasetgenerator.scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 1 node of the task graph that a {@link GenerationScheduler} runs,
+ * for example reading a location file, calculating a road matrix or writing a vrp file.
+ * <p>
+ * The result of a task is kept (and its memoryUsage stays reserved) until all tasks that depend on it completed,
+ * after which it is released, so for example a road matrix is shared by all variants written from it.
+ * @param <Result_> the type of the result, {@link Void} if the task has no result
+ */
+public class GenerationTask<Result_> {
+
+    private final String name;
+    private final long memoryUsage;
+    private final long workload;
+    private final List<GenerationTask<?>> dependencyList;
+    private final TaskAction<Result_> action;
+    private final ResultReleaser<Result_> resultReleaser;
+
+    // Only used by the GenerationScheduler, on its coordinating thread
+    final List<GenerationTask<?>> dependentList = new ArrayList<>(4);
+    int index = -1;
+    int remainingDependencyCount;
+    int remainingDependentCount;
+    boolean released = false;
+
+    private volatile boolean completed = false;
+    private volatile Result_ result = null;
+
+    /**
+     * @param name never null, used in the progress log
+     * @param memoryUsage {@code >= 0}, the estimated bytes that this task and its result hold
+     * @param workload {@code >= 0}, the estimated work relative to the other tasks, used for the ETA
+     * @param action never null
+     * @param dependencies never null, the tasks whose results the action uses
+     */
+    public GenerationTask(String name, long memoryUsage, long workload, TaskAction<Result_> action,
+            GenerationTask<?>... dependencies) {
+        this(name, memoryUsage, workload, action, null, dependencies);
+    }
+
+    /**
+     * @param resultReleaser null if the result only needs to be garbage collected,
+     * otherwise called when all dependents completed or the schedule failed
+     */
+    public GenerationTask(String name, long memoryUsage, long workload, TaskAction<Result_> action,
+            ResultReleaser<Result_> resultReleaser, GenerationTask<?>... dependencies) {
+        if (memoryUsage < 0L) {
+            throw new IllegalArgumentException("The memoryUsage (" + memoryUsage + ") of task (" + name
+                    + ") must not be negative.");
+        }
+        if (workload < 0L) {
+            throw new IllegalArgumentException("The workload (" + workload + ") of task (" + name
+                    + ") must not be negative.");
+        }
+        this.name = name;
+        this.memoryUsage = memoryUsage;
+        this.workload = workload;
+        this.action = action;
+        this.resultReleaser = resultReleaser;
+        dependencyList = Arrays.asList(dependencies);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    public long getWorkload() {
+        return workload;
+    }
+
+    public List<GenerationTask<?>> getDependencyList() {
+        return dependencyList;
+    }
+
+    /**
+     * Only call this from the action of a dependent task.
+     * @return null if the result is {@link Void}
+     */
+    public Result_ getResult() {
+        if (!completed) {
+            throw new IllegalStateException("The task (" + name + ") is not completed.");
+        }
+        if (released) {
+            throw new IllegalStateException("The result of task (" + name + ") is already released.");
+        }
+        return result;
+    }
+
+    void run() throws Exception {
+        result = action.run();
+        completed = true;
+    }
+
+    boolean isCompleted() {
+        return completed;
+    }
+
+    void release() throws Exception {
+        released = true;
+        Result_ releasedResult = result;
+        result = null;
+        if (resultReleaser != null && releasedResult != null) {
+            resultReleaser.release(releasedResult);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    @FunctionalInterface
+    public interface TaskAction<Result_> {
+
+        /**
+         * Called on a worker thread, after all dependencies completed.
+         * @return null if the result is {@link Void}
+         */
+        Result_ run() throws Exception;
+
+    }
+
+    @FunctionalInterface
+    public interface ResultReleaser<Result_> {
+
+        /**
+         * @param result never null
+         */
+        void release(Result_ result) throws Exception;
+
+    }
+
+}
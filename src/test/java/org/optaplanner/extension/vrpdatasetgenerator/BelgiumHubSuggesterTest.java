@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.extension.vrpdatasetgenerator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.optaplanner.examples.vehiclerouting.domain.location.AirLocation;
+
+import static org.junit.Assert.*;
+
+public class BelgiumHubSuggesterTest {
+
+    // The crossings of the 3 x 3 road grid in grid.osm
+    private static final double[] LATITUDES = {50.850, 50.850, 50.850, 50.852, 50.852, 50.852, 50.855, 50.855, 50.855};
+    private static final double[] LONGITUDES = {4.350, 4.353, 4.357, 4.350, 4.353, 4.357, 4.350, 4.353, 4.357};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void collectRoutePointsIndependentOfThreadCount() throws Exception {
+        File osmFile = new File(getClass().getResource("routing/grid.osm").toURI());
+        BelgiumHubSuggester suggester = new BelgiumHubSuggester(osmFile.getPath(),
+                temporaryFolder.newFolder("graphHopper").getPath());
+        List<AirLocation> locationList = new ArrayList<>(LATITUDES.length);
+        for (int i = 0; i < LATITUDES.length; i++) {
+            AirLocation location = new AirLocation();
+            location.setId((long) i);
+            location.setLatitude(LATITUDES[i]);
+            location.setLongitude(LONGITUDES[i]);
+            location.setName("Location" + i);
+            locationList.add(location);
+        }
+        suggester.setThreadCount(1);
+        String expected = collectRoutePoints(suggester, locationList);
+        assertFalse(expected.trim().isEmpty());
+        suggester.setThreadCount(4);
+        assertEquals(expected, collectRoutePoints(suggester, locationList));
+    }
+
+    private String collectRoutePoints(BelgiumHubSuggester suggester, List<AirLocation> locationList) {
+        Map<BelgiumHubSuggester.Point, BelgiumHubSuggester.Point> fromPointMap = new LinkedHashMap<>();
+        Map<BelgiumHubSuggester.Point, BelgiumHubSuggester.Point> toPointMap = new LinkedHashMap<>();
+        suggester.collectRoutePoints(locationList, fromPointMap, toPointMap);
+        return describe(fromPointMap) + "\n" + describe(toPointMap);
+    }
+
+    private String describe(Map<BelgiumHubSuggester.Point, BelgiumHubSuggester.Point> pointMap) {
+        StringBuilder description = new StringBuilder();
+        for (BelgiumHubSuggester.Point point : pointMap.values()) {
+            for (BelgiumHubSuggester.PointPart pointPart : point.pointPartMap.values()) {
+                description.append(pointPart).append(" x").append(pointPart.count)
+                        .append(" after ").append(pointPart.previousPart).append("\n");
+            }
+        }
+        return description.toString();
+    }
+
+}
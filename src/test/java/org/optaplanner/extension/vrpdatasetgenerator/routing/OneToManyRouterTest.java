@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.optaplanner.extension.vrpdatasetgenerator.routing;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class OneToManyRouterTest {
+
+    private static final String WEIGHTING_NAME = "shortest";
+    private static final PreparationProfile PREPARATION_PROFILE = PreparationProfile.parse(WEIGHTING_NAME + ":FLEXIBLE");
+    private static final double DELTA = 0.001;
+
+    // The crossings of the 3 x 3 road grid in grid.osm, so no location snaps to a virtual node
+    private static final double[] LATITUDES = {50.850, 50.850, 50.850, 50.852, 50.852, 50.852, 50.855, 50.855, 50.855};
+    private static final double[] LONGITUDES = {4.350, 4.353, 4.357, 4.350, 4.353, 4.357, 4.350, 4.353, 4.357};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private GraphHopper graphHopper;
+    private OneToManyRouter router;
+
+    @Before
+    public void setUp() throws Exception {
+        graphHopper = GraphHopperStoreManager.getInstance().load(getOsmFile().getPath(),
+                temporaryFolder.newFolder("graphHopper").getPath(), "car", PREPARATION_PROFILE);
+        router = new OneToManyRouter(graphHopper, "car", WEIGHTING_NAME, LATITUDES, LONGITUDES);
+    }
+
+    private File getOsmFile() throws URISyntaxException {
+        return new File(getClass().getResource("grid.osm").toURI());
+    }
+
+    @Test
+    public void calcPathWithDifferentOriginsOnSameThread() {
+        for (int fromIndex = 0; fromIndex < LATITUDES.length; fromIndex++) {
+            for (int toIndex = 0; toIndex < LATITUDES.length; toIndex++) {
+                if (fromIndex != toIndex) {
+                    assertEquals("From (" + fromIndex + ") to (" + toIndex + ")",
+                            routeDistance(fromIndex, toIndex), router.calcPath(fromIndex, toIndex).getDistance(), DELTA);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void calcPathWithAlternatingOriginsOnSameThread() {
+        int lastIndex = LATITUDES.length - 1;
+        for (int toIndex = 1; toIndex < lastIndex; toIndex++) {
+            assertEquals(routeDistance(0, toIndex), router.calcPath(0, toIndex).getDistance(), DELTA);
+            assertEquals(routeDistance(lastIndex, toIndex), router.calcPath(lastIndex, toIndex).getDistance(), DELTA);
+        }
+    }
+
+    @Test
+    public void calcRowWithDifferentOriginsOnSameThread() {
+        double[] distances = new double[LATITUDES.length];
+        long[] times = new long[LATITUDES.length];
+        for (int fromIndex = 0; fromIndex < LATITUDES.length; fromIndex++) {
+            router.calcRow(fromIndex, distances, times);
+            for (int toIndex = 0; toIndex < LATITUDES.length; toIndex++) {
+                double expectedDistance = fromIndex == toIndex ? 0.0 : routeDistance(fromIndex, toIndex);
+                assertEquals("From (" + fromIndex + ") to (" + toIndex + ")",
+                        expectedDistance, distances[toIndex], DELTA);
+            }
+        }
+    }
+
+    private double routeDistance(int fromIndex, int toIndex) {
+        GHRequest request = new GHRequest(LATITUDES[fromIndex], LONGITUDES[fromIndex],
+                LATITUDES[toIndex], LONGITUDES[toIndex])
+                .setWeighting(WEIGHTING_NAME)
+                .setVehicle("car");
+        PREPARATION_PROFILE.applyTo(request, WEIGHTING_NAME);
+        GHResponse response = graphHopper.route(request);
+        assertFalse(response.getErrors().toString(), response.hasErrors());
+        return response.getBest().getDistance();
+    }
+
+}